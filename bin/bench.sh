@@ -0,0 +1,2 @@
+#!/usr/bin/env bash
+mvn -P bench clean package -DskipTests && java -jar target/benchmarks.jar -prof gc "$@"
\ No newline at end of file
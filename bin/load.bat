@@ -0,0 +1 @@
+mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/classpath.txt && for /f "delims=" %%c in (target\classpath.txt) do java -Dlog4j.configurationFile=conf/log4j.xml -Djava.util.logging.manager=org.apache.logging.log4j.jul.LogManager -cp "target\test-classes;target\classes;%%c" ru.ovchinnikov.load.LoadGenerator %*
\ No newline at end of file
@@ -0,0 +1,2 @@
+#!/usr/bin/env bash
+mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/classpath.txt && java -Dlog4j.configurationFile=conf/log4j.xml -Djava.util.logging.manager=org.apache.logging.log4j.jul.LogManager -cp "target/test-classes:target/classes:$(cat target/classpath.txt)" ru.ovchinnikov.load.LoadGenerator "$@"
@@ -0,0 +1,68 @@
+package ru.ovchinnikov.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ovchinnikov.model.Account;
+import ru.ovchinnikov.storage.AccountStorage;
+
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AccountStorageBenchmark {
+    // power of two, so the next id is picked with a mask
+    private static final int LOOKUPS = 1 << 16;
+
+    @Param({"1000", "1000000"})
+    private int accounts;
+
+    private AccountStorage storage;
+    private Account[] stored;
+    private long[] lookups;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        storage = new AccountStorage();
+        stored = new Account[accounts];
+        for (int i = 0; i < accounts; i++) {
+            stored[i] = Account.create(i + 1, 100);
+            storage.store(stored[i]);
+        }
+        // random order defeats the prefetcher, as ids of real requests do
+        Random random = new Random(42);
+        lookups = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookups[i] = 1 + random.nextInt(accounts);
+        }
+    }
+
+    @Benchmark
+    public Optional<Account> findExisting() {
+        return storage.findAccountFor(lookups[next++ & (LOOKUPS - 1)]);
+    }
+
+    @Benchmark
+    public Optional<Account> findAbsent() {
+        return storage.findAccountFor(-lookups[next++ & (LOOKUPS - 1)]);
+    }
+
+    // replaces an account with itself, so the table doesn't grow between invocations
+    @Benchmark
+    public void storeExisting() {
+        storage.store(stored[(int) lookups[next++ & (LOOKUPS - 1)] - 1]);
+    }
+
+    @Benchmark
+    public boolean storeAndRemoveNew() {
+        Account account = stored[(int) lookups[next++ & (LOOKUPS - 1)] - 1];
+        long id = account.id() + accounts;
+        storage.store(Account.create(id, 0));
+        return storage.remove(id);
+    }
+}
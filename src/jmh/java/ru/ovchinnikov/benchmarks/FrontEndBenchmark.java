@@ -0,0 +1,109 @@
+package ru.ovchinnikov.benchmarks;
+
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.openjdk.jmh.annotations.*;
+import ru.ovchinnikov.ConfigConstant;
+import ru.ovchinnikov.Main;
+import ru.ovchinnikov.binary.BinaryClient;
+import ru.ovchinnikov.binary.BinaryProtocol.Status;
+import ru.ovchinnikov.rest.AccountService;
+import ru.ovchinnikov.rest.TransactionService;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same transfer sent to the embedded server through the REST API and through the binary protocol, one
+ * request at a time and, for the binary protocol, {@value #PIPELINE} requests in flight per connection.
+ * Run with {@code -t} to load the server from several connections.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Dbinary.port=18081"})
+public class FrontEndBenchmark {
+    private static final int PIPELINE = 64;
+    private static final String HOST = "localhost";
+
+    @State(Scope.Benchmark)
+    public static class Server {
+        private HttpServer server;
+        private long from;
+        private long to;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            server = Main.startServer();
+            try (BinaryClient client = new BinaryClient(HOST, ConfigConstant.BINARY_PORT)) {
+                client.createAccount();
+                from = client.read().account();
+                client.createAccount();
+                to = client.read().account();
+                client.recharge(from, Long.MAX_VALUE / 2);
+                if (client.read().status() != Status.OK) {
+                    throw new IllegalStateException("Couldn't fund account " + from);
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            Main.stopServer(server);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Connection {
+        private Client restClient;
+        private WebTarget transfer;
+        private BinaryClient binaryClient;
+
+        @Setup(Level.Trial)
+        public void setUp(Server server) throws IOException {
+            restClient = ClientBuilder.newClient();
+            transfer = restClient.target(Main.BASE_URI).path(AccountService.ACCOUNTS)
+                    .path(server.from + TransactionService.TRANSFER)
+                    .queryParam("to", server.to).queryParam("amount", "0.01").queryParam("desc", "benchmark");
+            binaryClient = new BinaryClient(HOST, ConfigConstant.BINARY_PORT);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            restClient.close();
+            binaryClient.close();
+        }
+    }
+
+    @Benchmark
+    public int rest(Connection connection) {
+        Response response = connection.transfer.request(MediaType.APPLICATION_JSON).post(Entity.json(""));
+        response.close();
+        return response.getStatus();
+    }
+
+    @Benchmark
+    public Status binary(Server server, Connection connection) throws IOException {
+        connection.binaryClient.transfer(server.from, server.to, 1, "benchmark");
+        return connection.binaryClient.read().status();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIPELINE)
+    public Status binaryPipelined(Server server, Connection connection) throws IOException {
+        for (int i = 0; i < PIPELINE; i++) {
+            connection.binaryClient.transfer(server.from, server.to, 1, "benchmark");
+        }
+        Status status = null;
+        for (int i = 0; i < PIPELINE; i++) {
+            status = connection.binaryClient.read().status();
+        }
+        return status;
+    }
+}
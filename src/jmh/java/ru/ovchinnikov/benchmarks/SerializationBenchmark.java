@@ -0,0 +1,94 @@
+package ru.ovchinnikov.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
+import org.openjdk.jmh.annotations.*;
+import ru.ovchinnikov.json.ModelJsonWriter;
+import ru.ovchinnikov.model.Account;
+import ru.ovchinnikov.model.Transaction;
+
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.MediaType;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response bodies written by Jackson set up the way jersey-media-json-jackson sets it up: Jackson
+ * annotations first, JAXB annotations second, against the same bodies written by {@link ModelJsonWriter}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+    private static final ObjectMapper MAPPER = new ObjectMapper().setAnnotationIntrospector(
+            AnnotationIntrospector.pair(new JacksonAnnotationIntrospector(),
+                    new JaxbAnnotationIntrospector(TypeFactory.defaultInstance())));
+    private static final ObjectWriter ACCOUNTS = MAPPER.writerFor(new TypeReference<List<Account>>() {
+    });
+    private static final ObjectWriter TRANSACTIONS = MAPPER.writerFor(new TypeReference<List<Transaction>>() {
+    });
+    private static final ModelJsonWriter PRECOMPILED = new ModelJsonWriter();
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    @Param({"1", "100", "10000"})
+    private int size;
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream(1 << 20);
+    private List<Account> accounts;
+    private List<Transaction> transactions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        accounts = new ArrayList<>(size);
+        transactions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            accounts.add(Account.create(i + 1, 12_345 + i));
+            transactions.add(Transaction.create(i + 1, i + 2, 1_050 + i, "benchmark", 1_500_000_000_000L + i));
+        }
+    }
+
+    @Benchmark
+    public int accounts() throws IOException {
+        return write(accounts, ACCOUNTS);
+    }
+
+    @Benchmark
+    public int transactions() throws IOException {
+        return write(transactions, TRANSACTIONS);
+    }
+
+    @Benchmark
+    public int accountsPrecompiled() throws IOException {
+        return write(ModelJsonWriter.accounts(accounts));
+    }
+
+    @Benchmark
+    public int transactionsPrecompiled() throws IOException {
+        return write(ModelJsonWriter.transactions(transactions));
+    }
+
+    private int write(GenericEntity<?> entity) throws IOException {
+        output.reset();
+        PRECOMPILED.writeTo(entity.getEntity(), entity.getRawType(), entity.getType(), NO_ANNOTATIONS,
+                MediaType.APPLICATION_JSON_TYPE, null, output);
+        return output.size();
+    }
+
+    private int write(Object value, ObjectWriter writer) throws IOException {
+        output.reset();
+        writer.writeValue(output, value);
+        return output.size();
+    }
+}
@@ -0,0 +1,58 @@
+package ru.ovchinnikov.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ovchinnikov.controllers.TransactionController;
+import ru.ovchinnikov.journal.Journal;
+import ru.ovchinnikov.model.Account;
+import ru.ovchinnikov.reactor.Reactor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip of a mutation through a single shard reactor with journaling off: hand-off to the reactor
+ * thread, validation, balance update, history append and completion back to the caller.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class TransactionControllerBenchmark {
+    private static final long FROM = 1;
+    private static final long TO = 2;
+
+    private ExecutorService[] executors;
+    private TransactionController controller;
+
+    // fresh storages every iteration, so the history doesn't pile up for the whole run
+    @Setup(Level.Iteration)
+    public void setUp() {
+        executors = Reactor.newExecutors(1);
+        Reactor reactor = Reactor.withEmptyStorages(executors);
+        reactor.shardFor(FROM).accountStorage().store(Account.create(FROM, Long.MAX_VALUE / 2));
+        reactor.shardFor(TO).accountStorage().store(Account.create(TO, 0));
+        controller = new TransactionController(reactor, Journal.DISABLED);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        executors[0].shutdownNow();
+    }
+
+    @Benchmark
+    public void transfer() {
+        controller.transferAsync(FROM, TO, 1, "benchmark").toCompletableFuture().join();
+    }
+
+    @Benchmark
+    public void withdraw() {
+        controller.withdrawAsync(FROM, 1).toCompletableFuture().join();
+    }
+
+    @Benchmark
+    public void recharge() {
+        controller.rechargeAsync(TO, 1).toCompletableFuture().join();
+    }
+}
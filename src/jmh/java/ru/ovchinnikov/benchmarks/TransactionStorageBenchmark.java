@@ -0,0 +1,57 @@
+package ru.ovchinnikov.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ovchinnikov.model.Transaction;
+import ru.ovchinnikov.model.TransactionKind;
+import ru.ovchinnikov.storage.TransactionPage;
+import ru.ovchinnikov.storage.TransactionStorage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of history operations against the length of the history of the account involved.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Thread)
+public class TransactionStorageBenchmark {
+    private static final long ACCOUNT = 1;
+    private static final long OTHER = 2;
+    private static final int PAGE = 100;
+
+    @Param({"10", "10000", "1000000"})
+    private int history;
+
+    private TransactionStorage storage;
+    private Transaction transaction;
+    private long timestamp;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        storage = new TransactionStorage();
+        for (timestamp = 0; timestamp < history; timestamp++) {
+            storage.store(Transaction.create(ACCOUNT, OTHER, 100, "benchmark", timestamp), TransactionKind.TRANSFER);
+        }
+        transaction = Transaction.create(ACCOUNT, OTHER, 100, "benchmark", timestamp);
+    }
+
+    // appends to both accounts, grows the history by the number of invocations in the iteration
+    @Benchmark
+    public void store() {
+        storage.store(transaction, TransactionKind.TRANSFER);
+    }
+
+    @Benchmark
+    public List<Transaction> findAll() {
+        return storage.findTransactionsFor(ACCOUNT);
+    }
+
+    @Benchmark
+    public TransactionPage findLatestPage() {
+        return storage.findTransactionsFor(ACCOUNT, timestamp - PAGE, Long.MAX_VALUE, null, PAGE);
+    }
+}
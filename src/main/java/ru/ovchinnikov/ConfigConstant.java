@@ -1,5 +1,65 @@
 package ru.ovchinnikov;
 
+import ru.ovchinnikov.config.LiveSetting;
+import ru.ovchinnikov.config.Settings;
+
+// read once at start-up from the Settings, see conf/rvlt.properties; only LiveSettings change later
 public interface ConfigConstant {
-    int REQUEST_TIMEOUT_SEC = 10;
+    String SERVER_URI = Settings.shared().stringValue("server.uri", "http://localhost:8080/revolut");
+    // 0 leaves the choice to Grizzly
+    int SERVER_SELECTOR_THREADS = Settings.shared().intValue("server.selector.threads", 0);
+    int SERVER_WORKER_THREADS = Settings.shared().intValue("server.worker.threads", 0);
+    // -1 for unbounded
+    int SERVER_WORKER_QUEUE = Settings.shared().intValue("server.worker.queue", -1);
+    // threads resuming asynchronous responses, which serializes their bodies
+    int SERVER_RESPONSE_THREADS = Settings.shared().intValue("server.response.threads",
+            Runtime.getRuntime().availableProcessors());
+    int SERVER_KEEP_ALIVE_IDLE_SEC = Settings.shared().intValue("server.keepalive.idle.sec", 30);
+    int SERVER_KEEP_ALIVE_MAX_REQUESTS = Settings.shared().intValue("server.keepalive.max.requests", 256);
+    // port of the binary protocol on the host of server.uri, off unless given, 0 for any free port
+    int BINARY_PORT = Settings.shared().intValue("binary.port", -1);
+    // 0 leaves the choice to Grizzly
+    int BINARY_SELECTOR_THREADS = Settings.shared().intValue("binary.selector.threads", 0);
+    // default of every endpoint, each one can be set apart as timeout.<endpoint>.ms
+    LiveSetting REQUEST_TIMEOUT_MS = Settings.shared().live("request.timeout.ms", 10_000);
+    long CONFIG_RELOAD_INTERVAL_MS = Settings.shared().longValue("config.reload.interval.ms", 5_000);
+    int REACTOR_SHARDS = Settings.shared().intValue("reactor.shards", Runtime.getRuntime().availableProcessors());
+    // power of two, per shard
+    int REACTOR_RING_SIZE = Settings.shared().intValue("reactor.ring.size", 16 * 1024);
+    // BLOCKING, YIELDING or BUSY_SPIN
+    String REACTOR_WAIT_STRATEGY = Settings.shared().stringValue("reactor.wait.strategy", "BLOCKING");
+    // commands a shard may have queued for another to be admitted, capped by the ring size
+    LiveSetting ADMISSION_QUEUE_LIMIT = Settings.shared().live("admission.queue.limit", REACTOR_RING_SIZE);
+    // the same for listings, history and batches, which are shed first
+    LiveSetting ADMISSION_BULK_QUEUE_LIMIT = Settings.shared().live("admission.bulk.queue.limit",
+            REACTOR_RING_SIZE / 4);
+    // Retry-After of a request turned away
+    LiveSetting ADMISSION_RETRY_AFTER_SEC = Settings.shared().live("admission.retry.after.sec", 1);
+    String LEDGER_CURRENCY = "EUR";
+    // journaling is off unless a directory is given
+    String JOURNAL_DIR = Settings.shared().stringValue("journal.dir", "");
+    String JOURNAL_DURABILITY = Settings.shared().stringValue("journal.durability", "SYNC");
+    int JOURNAL_SEGMENT_SIZE = Settings.shared().intValue("journal.segment.size", 64 * 1024 * 1024);
+    int JOURNAL_MAX_BATCH = Settings.shared().intValue("journal.max.batch", 4096);
+    long JOURNAL_LINGER_MICROS = Settings.shared().longValue("journal.linger.micros", 0);
+    long JOURNAL_FLUSH_INTERVAL_MS = Settings.shared().longValue("journal.flush.interval.ms", 10);
+    int JOURNAL_QUEUE_CAPACITY = Settings.shared().intValue("journal.queue.capacity", 64 * 1024);
+    int PAGE_LIMIT = 100;
+    int MAX_PAGE_LIMIT = 1000;
+    int ACCOUNTS_STREAM_CHUNK = 1024;
+    int TRANSACTIONS_STREAM_CHUNK = 1024;
+    // width of the buckets of the per shard time index of transactions
+    long TIMELINE_BUCKET_MILLIS = Settings.shared().longValue("timeline.bucket.millis", 60_000);
+    // days of per day totals kept for the rollups of an account's summary, counted back from its latest one
+    int SUMMARY_RETENTION_DAYS = Settings.shared().intValue("summary.retention.days", 92);
+    int MAX_TRANSFER_BATCH = 10_000;
+    // shards an atomic batch may stop at once
+    int MAX_ATOMIC_BATCH_SHARDS = Settings.shared().intValue("transfer.batch.atomic.max.shards", 4);
+    int MAX_ACCOUNT_BLOCK = 1_000_000;
+    // descriptions interned into codes, process wide
+    int DESCRIPTION_DICTIONARY_SIZE = Settings.shared().intValue("description.dictionary.size", 64 * 1024);
+    int DESCRIPTION_MAX_ENCODED_LENGTH = 64;
+    int IDEMPOTENCY_CACHE_SIZE = Settings.shared().intValue("idempotency.cache.size", 1024 * 1024);
+    long IDEMPOTENCY_TTL_SEC = Settings.shared().longValue("idempotency.ttl.sec", 24 * 60 * 60);
+    long SNAPSHOT_INTERVAL_SEC = Settings.shared().longValue("snapshot.interval.sec", 300);
 }
@@ -2,17 +2,21 @@ package ru.ovchinnikov;
 
 import ru.ovchinnikov.controllers.AccountController;
 import ru.ovchinnikov.controllers.TransactionController;
+import ru.ovchinnikov.rest.IdempotencyCache;
 
 public class Injector {
     private static volatile AccountController accountController;
     private static volatile TransactionController transactionController;
+    private static volatile IdempotencyCache idempotencyCache;
 
     private Injector() {
     }
 
-    public static void init(AccountController accountController, TransactionController transactionController) {
+    public static void init(AccountController accountController, TransactionController transactionController,
+                            IdempotencyCache idempotencyCache) {
         Injector.accountController = accountController;
         Injector.transactionController = transactionController;
+        Injector.idempotencyCache = idempotencyCache;
     }
 
     public static AccountController accountController() {
@@ -22,4 +26,8 @@ public class Injector {
     public static TransactionController transactionController() {
         return transactionController;
     }
+
+    public static IdempotencyCache idempotencyCache() {
+        return idempotencyCache;
+    }
 }
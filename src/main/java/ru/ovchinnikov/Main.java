@@ -1,38 +1,122 @@
 package ru.ovchinnikov;
 
 import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.NetworkListener;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
 import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
 import org.glassfish.jersey.server.ResourceConfig;
+import ru.ovchinnikov.binary.BinaryServer;
+import ru.ovchinnikov.config.Settings;
 import ru.ovchinnikov.controllers.AccountController;
 import ru.ovchinnikov.controllers.TransactionController;
-import ru.ovchinnikov.storage.AccountStorage;
-import ru.ovchinnikov.storage.TransactionStorage;
+import ru.ovchinnikov.journal.Journal;
+import ru.ovchinnikov.journal.JournalConfig;
+import ru.ovchinnikov.journal.MappedJournal;
+import ru.ovchinnikov.journal.Recovery;
+import ru.ovchinnikov.journal.Snapshotter;
+import ru.ovchinnikov.metrics.Metrics;
+import ru.ovchinnikov.reactor.Reactor;
+import ru.ovchinnikov.rest.IdempotencyCache;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.file.Paths;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static ru.ovchinnikov.ConfigConstant.*;
 
 
 public class Main {
-    public static final String BASE_URI = "http://localhost:8080/revolut";
-    private final static ExecutorService reactorExecutor = Executors.newSingleThreadExecutor();
+    public static final String BASE_URI = SERVER_URI;
+    // every shard keeps its thread for good, so each reactor gets threads of its own
+    private static volatile ExecutorService[] reactorExecutors = new ExecutorService[0];
+    private static volatile Journal journal = Journal.DISABLED;
+    private static volatile Snapshotter snapshotter;
+    private static volatile BinaryServer binaryServer;
 
     public static HttpServer startServer() {
         ResourceConfig rc = bootstrapServer();
-        return GrizzlyHttpServerFactory.createHttpServer(URI.create(BASE_URI), rc);
+        HttpServer server = GrizzlyHttpServerFactory.createHttpServer(URI.create(BASE_URI), rc, false);
+        for (NetworkListener listener : server.getListeners()) {
+            configure(listener);
+        }
+        try {
+            server.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't start server at " + BASE_URI, e);
+        }
+        if (BINARY_PORT >= 0) {
+            startBinaryServer();
+        }
+        return server;
+    }
+
+    private static void startBinaryServer() {
+        String host = URI.create(BASE_URI).getHost();
+        try {
+            binaryServer = BinaryServer.start(host, BINARY_PORT, BINARY_SELECTOR_THREADS,
+                    Injector.accountController(), Injector.transactionController());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't start binary server at " + host + ":" + BINARY_PORT, e);
+        }
+    }
+
+    // Grizzly keeps its own defaults for whatever isn't set
+    private static void configure(NetworkListener listener) {
+        TCPNIOTransport transport = listener.getTransport();
+        if (SERVER_SELECTOR_THREADS > 0) {
+            transport.setSelectorRunnersCount(SERVER_SELECTOR_THREADS);
+        }
+        ThreadPoolConfig workers = transport.getWorkerThreadPoolConfig().copy().setQueueLimit(SERVER_WORKER_QUEUE);
+        if (SERVER_WORKER_THREADS > 0) {
+            workers.setCorePoolSize(SERVER_WORKER_THREADS).setMaxPoolSize(SERVER_WORKER_THREADS);
+        }
+        transport.setWorkerThreadPoolConfig(workers);
+        listener.getKeepAlive().setIdleTimeoutInSeconds(SERVER_KEEP_ALIVE_IDLE_SEC);
+        listener.getKeepAlive().setMaxRequestsCount(SERVER_KEEP_ALIVE_MAX_REQUESTS);
     }
 
     private static ResourceConfig bootstrapServer() {
-        AccountStorage accountStorage = new AccountStorage();
-        TransactionStorage transactionStorage = new TransactionStorage();
-        AccountController accountController = new AccountController(reactorExecutor, accountStorage);
-        TransactionController transactionController =
-                new TransactionController(reactorExecutor, transactionStorage, accountStorage);
-        Injector.init(accountController, transactionController);
+        Settings.shared().watch(CONFIG_RELOAD_INTERVAL_MS);
+        stopReactor();
+        reactorExecutors = Reactor.newExecutors(REACTOR_SHARDS);
+        Reactor reactor = Reactor.withEmptyStorages(reactorExecutors);
+        Metrics.watch(reactor);
+        journal = openJournal(reactor);
+        AccountController accountController = new AccountController(reactor, journal);
+        TransactionController transactionController = new TransactionController(reactor, journal);
+        IdempotencyCache idempotencyCache = new IdempotencyCache(IDEMPOTENCY_CACHE_SIZE, IDEMPOTENCY_TTL_SEC,
+                TimeUnit.SECONDS);
+        Injector.init(accountController, transactionController, idempotencyCache);
         return new ResourceConfig().packages("ru.ovchinnikov");
     }
 
+    private static Journal openJournal(Reactor reactor) {
+        if (JOURNAL_DIR.isEmpty()) {
+            return Journal.DISABLED;
+        }
+        JournalConfig config = new JournalConfig(Paths.get(JOURNAL_DIR),
+                JournalConfig.Durability.valueOf(JOURNAL_DURABILITY), JOURNAL_SEGMENT_SIZE, JOURNAL_MAX_BATCH,
+                JOURNAL_LINGER_MICROS, JOURNAL_FLUSH_INTERVAL_MS, JOURNAL_QUEUE_CAPACITY);
+        try {
+            MappedJournal mappedJournal = Recovery.recover(config, reactor);
+            snapshotter = new Snapshotter(mappedJournal);
+            snapshotter.start(SNAPSHOT_INTERVAL_SEC);
+            return mappedJournal;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't open journal in " + JOURNAL_DIR, e);
+        }
+    }
+
+    private static void stopReactor() {
+        for (ExecutorService reactorExecutor : reactorExecutors) {
+            reactorExecutor.shutdownNow();
+        }
+    }
+
     public static void main(String[] args) {
         final HttpServer server = startServer();
         System.out.println(String.format("Jersey app started with WADL available at "
@@ -42,9 +126,23 @@ public class Main {
         } catch (IOException e) {
             e.printStackTrace();
         } finally {
-            reactorExecutor.shutdownNow();
-            server.shutdownNow();
+            stopServer(server);
         }
     }
-}
 
+    /**
+     * Stops the server together with the reactor threads and the journal, so nothing keeps the JVM running.
+     */
+    public static void stopServer(HttpServer server) {
+        server.shutdownNow();
+        if (binaryServer != null) {
+            binaryServer.close();
+            binaryServer = null;
+        }
+        stopReactor();
+        if (snapshotter != null) {
+            snapshotter.close();
+        }
+        journal.close();
+    }
+}
@@ -0,0 +1,138 @@
+package ru.ovchinnikov.binary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static ru.ovchinnikov.binary.BinaryProtocol.*;
+
+/**
+ * Blocking client of {@link BinaryProtocol} over one connection. Each request method only buffers the request
+ * and returns its id; requests go out on {@link #flush()} or when a response is read. To pipeline, send
+ * a number of requests and then read as many responses, matching them by id.
+ */
+// @NotThreadSafe
+public final class BinaryClient implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private final Socket socket;
+    private final DataOutputStream output;
+    private final DataInputStream input;
+    private long nextRequestId;
+
+    public BinaryClient(String host, int port) throws IOException {
+        this.socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+        this.input = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+    }
+
+    public long transfer(long from, long to, long amount, String description) throws IOException {
+        byte[] encoded = description.getBytes(StandardCharsets.UTF_8);
+        if (encoded.length > 0xFFFF) {
+            throw new IllegalArgumentException("Description of " + encoded.length + " bytes is too long");
+        }
+        long requestId = header(Opcode.TRANSFER, 3 * Long.BYTES + Short.BYTES + encoded.length);
+        output.writeLong(from);
+        output.writeLong(to);
+        output.writeLong(amount);
+        output.writeShort(encoded.length);
+        output.write(encoded);
+        return requestId;
+    }
+
+    public long recharge(long account, long amount) throws IOException {
+        long requestId = header(Opcode.RECHARGE, 2 * Long.BYTES);
+        output.writeLong(account);
+        output.writeLong(amount);
+        return requestId;
+    }
+
+    public long withdraw(long account, long amount) throws IOException {
+        long requestId = header(Opcode.WITHDRAW, 2 * Long.BYTES);
+        output.writeLong(account);
+        output.writeLong(amount);
+        return requestId;
+    }
+
+    public long getAccount(long account) throws IOException {
+        long requestId = header(Opcode.GET_ACCOUNT, Long.BYTES);
+        output.writeLong(account);
+        return requestId;
+    }
+
+    public long createAccount() throws IOException {
+        return header(Opcode.CREATE_ACCOUNT, 0);
+    }
+
+    public void flush() throws IOException {
+        output.flush();
+    }
+
+    /**
+     * Sends whatever is buffered and waits for the next response.
+     */
+    public Reply read() throws IOException {
+        flush();
+        int length = input.readInt();
+        Status status = Status.of(input.readByte());
+        long requestId = input.readLong();
+        if (length == RESPONSE_HEADER_SIZE + ACCOUNT_BODY_SIZE) {
+            return new Reply(requestId, status, input.readLong(), input.readLong());
+        }
+        if (length != RESPONSE_HEADER_SIZE) {
+            throw new IOException("Malformed response of " + length + " bytes");
+        }
+        return new Reply(requestId, status, 0, 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    private long header(Opcode opcode, int bodySize) throws IOException {
+        long requestId = nextRequestId++;
+        output.writeInt(REQUEST_HEADER_SIZE + bodySize);
+        output.writeByte(opcode.code());
+        output.writeLong(requestId);
+        return requestId;
+    }
+
+    // @Immutable
+    public static final class Reply {
+        private final long requestId;
+        private final Status status;
+        private final long account;
+        private final long balance;
+
+        private Reply(long requestId, Status status, long account, long balance) {
+            this.requestId = requestId;
+            this.status = status;
+            this.account = account;
+            this.balance = balance;
+        }
+
+        public long requestId() {
+            return requestId;
+        }
+
+        public Status status() {
+            return status;
+        }
+
+        // id of the account returned, for GET_ACCOUNT and CREATE_ACCOUNT answered OK
+        public long account() {
+            return account;
+        }
+
+        // in minor units
+        public long balance() {
+            return balance;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package ru.ovchinnikov.binary;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.filterchain.BaseFilter;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.filterchain.NextAction;
+import ru.ovchinnikov.controllers.AccountController;
+import ru.ovchinnikov.controllers.TransactionController;
+import ru.ovchinnikov.model.Account;
+import ru.ovchinnikov.reactor.Deadline;
+import ru.ovchinnikov.reactor.DeadlineExceededException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static ru.ovchinnikov.ConfigConstant.REQUEST_TIMEOUT_MS;
+import static ru.ovchinnikov.binary.BinaryProtocol.*;
+import static ru.ovchinnikov.controllers.Futures.unwrap;
+
+/**
+ * Cuts frames of {@link BinaryProtocol} out of what a connection reads, submits each request to the controllers
+ * right on the selector thread and writes the response from wherever its future completes. Nothing waits,
+ * so a connection may have any number of requests in flight.
+ */
+// @ThreadSafe
+final class BinaryFilter extends BaseFilter {
+    private static final Logger log = LogManager.getLogger(BinaryFilter.class);
+    private static final int TRANSFER_FIXED_SIZE = 3 * Long.BYTES + Short.BYTES;
+    private static final int AMOUNT_BODY_SIZE = 2 * Long.BYTES;
+    private final AccountController accountController;
+    private final TransactionController transactionController;
+
+    BinaryFilter(AccountController accountController, TransactionController transactionController) {
+        this.accountController = accountController;
+        this.transactionController = transactionController;
+    }
+
+    @Override
+    public NextAction handleRead(FilterChainContext ctx) {
+        Buffer input = ctx.getMessage();
+        Connection<?> connection = ctx.getConnection();
+        while (input.remaining() >= LENGTH_SIZE) {
+            int start = input.position();
+            int length = input.getInt(start);
+            if (length < REQUEST_HEADER_SIZE || length > MAX_FRAME_SIZE) {
+                return close(ctx, input, "frame of " + length + " bytes");
+            }
+            int end = start + LENGTH_SIZE + length;
+            if (input.limit() < end) {
+                break;
+            }
+            input.position(start + LENGTH_SIZE);
+            if (!dispatch(connection, input, end - start - LENGTH_SIZE - REQUEST_HEADER_SIZE)) {
+                return close(ctx, input, "malformed request");
+            }
+            input.position(end);
+        }
+        if (!input.hasRemaining()) {
+            input.tryDispose();
+            return ctx.getStopAction();
+        }
+        // kept until the rest of the frame arrives
+        Buffer remainder = input.split(input.position());
+        input.tryDispose();
+        return ctx.getStopAction(remainder);
+    }
+
+    private static NextAction close(FilterChainContext ctx, Buffer input, String reason) {
+        log.warn("Closing {}: {}", ctx.getConnection().getPeerAddress(), reason);
+        input.tryDispose();
+        ctx.getConnection().closeSilently();
+        return ctx.getStopAction();
+    }
+
+    // reads the request out of the buffer, returns false if it is malformed
+    private boolean dispatch(Connection<?> connection, Buffer input, int bodySize) {
+        Opcode opcode = Opcode.of(input.get());
+        long requestId = input.getLong();
+        if (opcode == null) {
+            return false;
+        }
+        switch (opcode) {
+            case TRANSFER: {
+                if (bodySize < TRANSFER_FIXED_SIZE) {
+                    return false;
+                }
+                long from = input.getLong();
+                long to = input.getLong();
+                long amount = input.getLong();
+                int descriptionLength = input.getShort() & 0xFFFF;
+                if (bodySize != TRANSFER_FIXED_SIZE + descriptionLength) {
+                    return false;
+                }
+                String description = descriptionLength == 0 ? "" : input.toStringContent(StandardCharsets.UTF_8,
+                        input.position(), input.position() + descriptionLength);
+                respond(connection, requestId,
+                        () -> transactionController.transferAsync(from, to, amount, description));
+                return true;
+            }
+            case RECHARGE: {
+                if (bodySize != AMOUNT_BODY_SIZE) {
+                    return false;
+                }
+                long account = input.getLong();
+                long amount = input.getLong();
+                respond(connection, requestId, () -> transactionController.rechargeAsync(account, amount));
+                return true;
+            }
+            case WITHDRAW: {
+                if (bodySize != AMOUNT_BODY_SIZE) {
+                    return false;
+                }
+                long account = input.getLong();
+                long amount = input.getLong();
+                respond(connection, requestId, () -> transactionController.withdrawAsync(account, amount));
+                return true;
+            }
+            case GET_ACCOUNT: {
+                if (bodySize != Long.BYTES) {
+                    return false;
+                }
+                long account = input.getLong();
+                respond(connection, requestId, () -> accountController.findAccountAsync(account));
+                return true;
+            }
+            case CREATE_ACCOUNT: {
+                if (bodySize != 0) {
+                    return false;
+                }
+                respond(connection, requestId, accountController::createAccountAsync);
+                return true;
+            }
+            default:
+                return false;
+        }
+    }
+
+    // the commands submitted carry a deadline, as the REST API's do, so a late request is dropped unrun
+    private static void respond(Connection<?> connection, long requestId, Supplier<CompletionStage<?>> submission) {
+        CompletionStage<?> result;
+        try {
+            result = Deadline.within(REQUEST_TIMEOUT_MS.get(), TimeUnit.MILLISECONDS, submission);
+        } catch (RuntimeException e) {
+            result = failed(e);
+        }
+        result.whenComplete((value, error) -> {
+            if (error != null) {
+                write(connection, requestId, status(error), null);
+            } else if (value instanceof Optional) {
+                Optional<?> found = (Optional<?>) value;
+                write(connection, requestId, found.isPresent() ? Status.OK : Status.NOT_FOUND,
+                        (Account) found.orElse(null));
+            } else {
+                write(connection, requestId, Status.OK, value instanceof Account ? (Account) value : null);
+            }
+        });
+    }
+
+    private static CompletionStage<?> failed(Throwable error) {
+        CompletableFuture<?> failed = new CompletableFuture<>();
+        failed.completeExceptionally(error);
+        return failed;
+    }
+
+    private static Status status(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof IllegalArgumentException) {
+            return Status.REJECTED;
+        } else if (cause instanceof IllegalStateException) {
+            return Status.NOT_FOUND;
+        } else if (cause instanceof RejectedExecutionException) {
+            return Status.OVERLOADED;
+        } else if (cause instanceof DeadlineExceededException) {
+            return Status.TIMEOUT;
+        }
+        log.error("Unexpected error", cause);
+        return Status.ERROR;
+    }
+
+    private static void write(Connection<?> connection, long requestId, Status status, Account account) {
+        int length = RESPONSE_HEADER_SIZE + (account == null ? 0 : ACCOUNT_BODY_SIZE);
+        Buffer output = connection.getMemoryManager().allocate(LENGTH_SIZE + length);
+        output.putInt(length).put(status.code()).putLong(requestId);
+        if (account != null) {
+            output.putLong(account.id()).putLong(account.balanceUnits());
+        }
+        output.flip();
+        // queued by Grizzly, so responses completing on several shards at once never interleave
+        connection.write(output, null);
+    }
+}
@@ -0,0 +1,81 @@
+package ru.ovchinnikov.binary;
+
+/**
+ * Length-prefixed binary protocol of {@link BinaryServer}, for clients that move money at rates where
+ * HTTP and JSON cost more than the ledger does. All numbers are big-endian, amounts are {@code long}
+ * counts of minor units as in {@link ru.ovchinnikov.model.Money}, so no decimal is ever parsed.
+ * <pre>
+ *   request:  int length | byte opcode | long requestId | body
+ *   response: int length | byte status | long requestId | body
+ * </pre>
+ * {@code length} counts the bytes after it. Request bodies:
+ * <pre>
+ *   TRANSFER        long from | long to | long amount | short descriptionLength | UTF-8 description
+ *   RECHARGE        long account | long amount
+ *   WITHDRAW        long account | long amount
+ *   GET_ACCOUNT     long account
+ *   CREATE_ACCOUNT  (empty)
+ * </pre>
+ * Responses of {@code GET_ACCOUNT} and {@code CREATE_ACCOUNT} with status {@code OK} carry
+ * {@code long account | long balance}, any other response has no body.
+ * <p>
+ * A client may send any number of requests without waiting for responses. Requests run concurrently,
+ * as their shards get to them, and responses come back in the order they complete, matched to requests
+ * by the {@code requestId} the client chose. A malformed frame closes the connection.
+ */
+public final class BinaryProtocol {
+    public static final int LENGTH_SIZE = Integer.BYTES;
+    public static final int REQUEST_HEADER_SIZE = 1 + Long.BYTES;
+    public static final int RESPONSE_HEADER_SIZE = 1 + Long.BYTES;
+    public static final int ACCOUNT_BODY_SIZE = 2 * Long.BYTES;
+    public static final int MAX_FRAME_SIZE = 64 * 1024;
+
+    private BinaryProtocol() {
+    }
+
+    public enum Opcode {
+        TRANSFER, RECHARGE, WITHDRAW, GET_ACCOUNT, CREATE_ACCOUNT;
+
+        private static final Opcode[] VALUES = values();
+
+        // null for an unknown opcode
+        static Opcode of(int code) {
+            return code >= 0 && code < VALUES.length ? VALUES[code] : null;
+        }
+
+        public byte code() {
+            return (byte) ordinal();
+        }
+    }
+
+    // each one answers what the REST API answers with the status code in the comment
+    public enum Status {
+        // 200, 201
+        OK,
+        // 304: not enough money, negative amount or overflow
+        REJECTED,
+        // 404
+        NOT_FOUND,
+        // 503 with Retry-After: the shard's queue is full, the request hasn't run
+        OVERLOADED,
+        // 504: the request waited past its deadline and hasn't run
+        TIMEOUT,
+        // 400
+        BAD_REQUEST,
+        // 500
+        ERROR;
+
+        private static final Status[] VALUES = values();
+
+        public static Status of(int code) {
+            if (code < 0 || code >= VALUES.length) {
+                throw new IllegalArgumentException("Unknown status " + code);
+            }
+            return VALUES[code];
+        }
+
+        public byte code() {
+            return (byte) ordinal();
+        }
+    }
+}
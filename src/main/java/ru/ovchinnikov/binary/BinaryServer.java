@@ -0,0 +1,64 @@
+package ru.ovchinnikov.binary;
+
+import org.glassfish.grizzly.filterchain.FilterChainBuilder;
+import org.glassfish.grizzly.filterchain.TransportFilter;
+import org.glassfish.grizzly.nio.transport.TCPNIOServerConnection;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.glassfish.grizzly.strategies.SameThreadIOStrategy;
+import ru.ovchinnikov.controllers.AccountController;
+import ru.ovchinnikov.controllers.TransactionController;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+
+/**
+ * Second front end of the ledger, next to the REST API: serves {@link BinaryProtocol} on a TCP port of its
+ * own. Requests go straight from the selector threads to the controllers, with no worker pool in between,
+ * since submitting a command never blocks.
+ */
+// @ThreadSafe
+public final class BinaryServer implements AutoCloseable {
+    private final TCPNIOTransport transport;
+    private final TCPNIOServerConnection serverConnection;
+
+    private BinaryServer(TCPNIOTransport transport, TCPNIOServerConnection serverConnection) {
+        this.transport = transport;
+        this.serverConnection = serverConnection;
+    }
+
+    /**
+     * @param port 0 for any free port, see {@link #port()}
+     */
+    public static BinaryServer start(String host, int port, int selectorThreads,
+                                     AccountController accountController,
+                                     TransactionController transactionController) throws IOException {
+        TCPNIOTransportBuilder builder = TCPNIOTransportBuilder.newInstance();
+        builder.setIOStrategy(SameThreadIOStrategy.getInstance()).setTcpNoDelay(true);
+        if (selectorThreads > 0) {
+            builder.setSelectorRunnersCount(selectorThreads);
+        }
+        TCPNIOTransport transport = builder.build();
+        transport.setProcessor(FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .add(new BinaryFilter(accountController, transactionController))
+                .build());
+        TCPNIOServerConnection serverConnection = transport.bind(host, port);
+        transport.start();
+        return new BinaryServer(transport, serverConnection);
+    }
+
+    public int port() {
+        return ((InetSocketAddress) serverConnection.getLocalAddress()).getPort();
+    }
+
+    @Override
+    public void close() {
+        try {
+            transport.shutdownNow();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't stop binary server on port " + port(), e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package ru.ovchinnikov.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Numeric setting that takes the new value whenever its {@link Settings} are reloaded; reading it is
+ * a volatile read. A malformed value is logged and ignored, keeping the one the setting had before.
+ */
+// @ThreadSafe
+public final class LiveSetting extends Settings.Setting {
+    private static final Logger log = LogManager.getLogger(LiveSetting.class);
+    private final Settings settings;
+    private final LongSupplier fallback;
+    private final String fallbackSource;
+    private volatile boolean set;
+    private volatile long value;
+    private volatile String source;
+
+    LiveSetting(Settings settings, String name, LongSupplier fallback, String fallbackSource) {
+        super(name, null, null);
+        this.settings = settings;
+        this.fallback = fallback;
+        this.fallbackSource = fallbackSource;
+        this.source = fallbackSource;
+        String[] found = settings.lookup(name);
+        if (found != null) {
+            try {
+                update(Long.parseLong(found[0]), found[1]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Setting " + name + " from " + found[1] + " is malformed: "
+                        + found[0], e);
+            }
+        }
+    }
+
+    public long get() {
+        return set ? value : fallback.getAsLong();
+    }
+
+    void refresh() {
+        String[] found = settings.lookup(name());
+        if (found == null) {
+            set = false;
+            source = fallbackSource;
+            return;
+        }
+        try {
+            update(Long.parseLong(found[0]), found[1]);
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed {}={} from {}, keeping {}", name(), found[0], found[1], get());
+        }
+    }
+
+    private void update(long value, String source) {
+        this.value = value;
+        this.source = source;
+        this.set = true;
+    }
+
+    @Override
+    String value() {
+        return String.valueOf(get());
+    }
+
+    @Override
+    String source() {
+        return source;
+    }
+}
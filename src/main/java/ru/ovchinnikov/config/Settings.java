@@ -0,0 +1,224 @@
+package ru.ovchinnikov.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Settings of the service by name. A value is taken from the first source that has it: a system property
+ * ({@code -Dreactor.shards=8}), an environment variable ({@code RVLT_REACTOR_SHARDS=8}), the configuration
+ * file ({@value #DEFAULT_FILE} unless {@value #FILE_PROPERTY} names another one), and finally the default
+ * given in code.
+ * <p>
+ * Most settings size what is built at start-up and are read once. {@link LiveSetting}s, such as timeouts,
+ * take new values on {@link #reload()}, which {@link #watch(long)} runs whenever the file changes. Every
+ * setting read is remembered together with where its value came from, see {@link #describe()}.
+ */
+// @ThreadSafe
+public final class Settings {
+    public static final String FILE_PROPERTY = "config.file";
+    static final String DEFAULT_FILE = "conf/rvlt.properties";
+    private static final String ENVIRONMENT_PREFIX = "RVLT_";
+    private static final Logger log = LogManager.getLogger(Settings.class);
+    private static final Settings SHARED = new Settings(Paths.get(System.getProperty(FILE_PROPERTY, DEFAULT_FILE)),
+            System.getenv(), System.getProperties());
+
+    private final Path file;
+    private final Map<String, String> environment;
+    private final Properties systemProperties;
+    // by name, so they are described in order
+    private final ConcurrentMap<String, Setting> settings = new ConcurrentSkipListMap<>();
+    private volatile Properties fileProperties = new Properties();
+    private FileTime fileModified;
+    private ScheduledExecutorService watcher;
+
+    Settings(Path file, Map<String, String> environment, Properties systemProperties) {
+        this.file = file;
+        this.environment = environment;
+        this.systemProperties = systemProperties;
+        reload();
+    }
+
+    public static Settings shared() {
+        return SHARED;
+    }
+
+    public int intValue(String name, int defaultValue) {
+        return value(name, defaultValue, Integer::valueOf);
+    }
+
+    public long longValue(String name, long defaultValue) {
+        return value(name, defaultValue, Long::valueOf);
+    }
+
+    public String stringValue(String name, String defaultValue) {
+        return value(name, defaultValue, Function.identity());
+    }
+
+    /**
+     * @return setting that follows changes of the file, with the given default
+     */
+    public LiveSetting live(String name, long defaultValue) {
+        return register(new LiveSetting(this, name, () -> defaultValue, "default"));
+    }
+
+    /**
+     * @return setting that follows changes of the file and has the value of {@code fallback} unless set
+     */
+    public LiveSetting live(String name, LiveSetting fallback) {
+        return register(new LiveSetting(this, name, fallback::get, "as " + fallback.name()));
+    }
+
+    /**
+     * Re-reads the file if it has changed since it was read last and refreshes the live settings.
+     *
+     * @return whether the file has changed
+     */
+    public synchronized boolean reload() {
+        FileTime modified;
+        try {
+            modified = Files.getLastModifiedTime(file);
+        } catch (NoSuchFileException e) {
+            modified = null;
+        } catch (IOException e) {
+            log.warn("Couldn't check configuration file {}, keeping settings", file, e);
+            return false;
+        }
+        if (modified == null ? fileModified == null : modified.equals(fileModified)) {
+            return false;
+        }
+        Properties read = new Properties();
+        if (modified != null) {
+            try (InputStream input = Files.newInputStream(file)) {
+                read.load(input);
+            } catch (IOException e) {
+                log.warn("Couldn't read configuration file {}, keeping settings", file, e);
+                return false;
+            }
+        }
+        fileProperties = read;
+        fileModified = modified;
+        for (Setting setting : settings.values()) {
+            if (setting instanceof LiveSetting) {
+                ((LiveSetting) setting).refresh();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks the file for changes every {@code intervalMillis} from a daemon thread. Only the first call starts
+     * watching.
+     */
+    public synchronized void watch(long intervalMillis) {
+        if (watcher != null) {
+            return;
+        }
+        watcher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "settings-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watcher.scheduleWithFixedDelay(() -> {
+            if (reload()) {
+                log.info("Reloaded live settings from {}", file);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return effective value of every setting read so far in the format of the file, each preceded by
+     * a comment telling where the value came from
+     */
+    public String describe() {
+        StringBuilder builder = new StringBuilder();
+        for (Setting setting : settings.values()) {
+            builder.append("# ").append(setting.source());
+            if (setting instanceof LiveSetting) {
+                builder.append(", live");
+            }
+            builder.append('\n').append(setting.name()).append('=').append(setting.value()).append('\n');
+        }
+        return builder.toString();
+    }
+
+    // the value set for the name and where it came from, null if none of the sources has it
+    String[] lookup(String name) {
+        String value = systemProperties.getProperty(name);
+        if (value != null) {
+            return new String[]{value, "system property"};
+        }
+        String variable = ENVIRONMENT_PREFIX + name.toUpperCase(Locale.ROOT).replace('.', '_');
+        value = environment.get(variable);
+        if (value != null) {
+            return new String[]{value, "environment " + variable};
+        }
+        value = fileProperties.getProperty(name);
+        if (value != null) {
+            return new String[]{value.trim(), "file " + file};
+        }
+        return null;
+    }
+
+    private <T> T value(String name, T defaultValue, Function<String, T> parser) {
+        String[] found = lookup(name);
+        if (found == null) {
+            register(new Setting(name, String.valueOf(defaultValue), "default"));
+            return defaultValue;
+        }
+        T value;
+        try {
+            value = parser.apply(found[0]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Setting " + name + " from " + found[1] + " is malformed: "
+                    + found[0], e);
+        }
+        register(new Setting(name, found[0], found[1]));
+        return value;
+    }
+
+    private <S extends Setting> S register(S setting) {
+        settings.put(setting.name(), setting);
+        return setting;
+    }
+
+    static class Setting {
+        private final String name;
+        private final String value;
+        private final String source;
+
+        Setting(String name, String value, String source) {
+            this.name = name;
+            this.value = value;
+            this.source = source;
+        }
+
+        String name() {
+            return name;
+        }
+
+        String value() {
+            return value;
+        }
+
+        String source() {
+            return source;
+        }
+    }
+}
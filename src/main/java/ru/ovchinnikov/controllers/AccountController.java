@@ -2,66 +2,211 @@ package ru.ovchinnikov.controllers;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import ru.ovchinnikov.journal.Journal;
+import ru.ovchinnikov.journal.JournalRecord;
 import ru.ovchinnikov.model.Account;
+import ru.ovchinnikov.model.AccountRange;
+import ru.ovchinnikov.reactor.Command;
+import ru.ovchinnikov.reactor.CommandHandler;
+import ru.ovchinnikov.reactor.CommandType;
+import ru.ovchinnikov.reactor.Reactor;
+import ru.ovchinnikov.reactor.Shard;
+import ru.ovchinnikov.reactor.ShardOverloadedException;
 import ru.ovchinnikov.storage.AccountStorage;
+import ru.ovchinnikov.storage.TransactionStorage;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.TimeUnit;
 
-import static ru.ovchinnikov.ConfigConstant.REQUEST_TIMEOUT_SEC;
+import static ru.ovchinnikov.controllers.Futures.await;
+import static ru.ovchinnikov.controllers.Futures.journalRefusal;
+import static ru.ovchinnikov.controllers.Futures.takesMutations;
 
 // @ThreadSafe
 public class AccountController {
     private static final Logger log = LogManager.getLogger(AccountController.class);
-    private final ExecutorService reactorExecutor;
-    // @ThreadConfined
-    private final AccountStorage storage;
+    private final Reactor reactor;
+    private final Journal journal;
+    private final CommandHandler<CompletableFuture<Account>> create = this::doCreate;
+    private final CommandHandler<CompletableFuture<Boolean>> delete = this::doDelete;
 
     public AccountController(ExecutorService reactorExecutor, AccountStorage storage) {
-        this.reactorExecutor = reactorExecutor;
-        this.storage = storage;
+        this(Reactor.singleShard(reactorExecutor, storage, new TransactionStorage()), Journal.DISABLED);
+    }
+
+    public AccountController(Reactor reactor, Journal journal) {
+        this.reactor = reactor;
+        this.journal = journal;
     }
 
     public Account createAccount() throws Throwable {
-        try {
-            return CompletableFuture.supplyAsync(() -> {
-                Account account = Account.create();
-                storage.store(account);
-                return account;
-            }, reactorExecutor).get(REQUEST_TIMEOUT_SEC, TimeUnit.SECONDS);
-        } catch (ExecutionException e) {
-            throw e.getCause();
+        return await(this::createAccountAsync);
+    }
+
+    public CompletionStage<Account> createAccountAsync() {
+        if (!takesMutations(journal)) {
+            return journalRefusal(journal, CommandType.CREATE);
         }
+        long id = Account.nextId();
+        return reactor.shardFor(id).submitAsync(CommandType.CREATE, create, id, 0, 0, null);
     }
 
-    public Optional<Account> findAccount(long id) throws Throwable {
-        try {
-            return CompletableFuture.supplyAsync(() -> storage.findAccountFor(id), reactorExecutor)
-                    .get(REQUEST_TIMEOUT_SEC, TimeUnit.SECONDS);
-        } catch (ExecutionException e) {
-            throw e.getCause();
+    private CompletableFuture<Account> doCreate(Shard shard, Command command) {
+        Account account = Account.create(command.account());
+        shard.accountStorage().store(account);
+        return journal.append(JournalRecord.create(account.id())).thenApply(durable -> account);
+    }
+
+    public AccountRange createAccounts(int count) throws Throwable {
+        return await(() -> createAccountsAsync(count));
+    }
+
+    /**
+     * Creates {@code count} accounts with consecutive ids, one command per shard inserting all of its share
+     * and journaling it as a single record. Turned away as a whole unless every shard admits its part.
+     */
+    public CompletionStage<AccountRange> createAccountsAsync(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Expected positive number of accounts, got " + count);
+        }
+        if (!takesMutations(journal)) {
+            return journalRefusal(journal, CommandType.BATCH);
         }
+        for (int i = 0; i < reactor.shardCount(); i++) {
+            if (!reactor.shard(i).admits(CommandType.BATCH)) {
+                return ShardOverloadedException.rejection(CommandType.BATCH);
+            }
+        }
+        long first = Account.reserveIds(count);
+        long last = first + count - 1;
+        List<CompletableFuture<Void>> parts = new ArrayList<>(reactor.shardCount());
+        for (int i = 0; i < reactor.shardCount(); i++) {
+            Shard shard = reactor.shard(i);
+            parts.add(shard.submitAdmitted(CommandType.BATCH, () -> doCreateBlock(shard, first, last))
+                    .thenCompose(created -> created));
+        }
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> AccountRange.of(first, last));
+    }
+
+    private CompletableFuture<Void> doCreateBlock(Shard shard, long first, long last) {
+        int step = reactor.shardCount();
+        long start = first + Math.floorMod(shard.index() - first, (long) step);
+        if (start > last) {
+            return CompletableFuture.completedFuture(null);
+        }
+        AccountStorage storage = shard.accountStorage();
+        for (long id = start; id <= last; id += step) {
+            storage.store(Account.create(id));
+        }
+        return journal.append(JournalRecord.createBlock(start, last, step));
+    }
+
+    public Optional<Account> findAccount(long id) throws Throwable {
+        return await(() -> findAccountAsync(id));
+    }
+
+    /**
+     * Reads the shard's storage right away, without queueing behind its commands. The balance is the latest
+     * the shard has applied to this one account; reads of several accounts are not a consistent view of them,
+     * as a transfer changes its two accounts one after the other. Money in flight may be missing from such
+     * a set of reads but is never counted twice. The account returned is the one the shard goes on changing
+     * in place. A consistent view of a shard takes a command copying its accounts, as
+     * {@link #getAccountsAsync()} does.
+     */
+    public CompletionStage<Optional<Account>> findAccountAsync(long id) {
+        return CompletableFuture.completedFuture(reactor.shardFor(id).accountStorage().findAccountFor(id));
     }
 
     public List<Account> getAccounts() throws Throwable {
-        try {
-            return CompletableFuture.supplyAsync(storage::getAllAccounts, reactorExecutor)
-                    .get(REQUEST_TIMEOUT_SEC, TimeUnit.SECONDS);
-        } catch (ExecutionException e) {
-            throw e.getCause();
+        return await(this::getAccountsAsync);
+    }
+
+    /**
+     * Copies the accounts of each shard in a command of that shard, so the accounts of a shard are
+     * a consistent view of it, unlike those of different shards.
+     */
+    public CompletionStage<List<Account>> getAccountsAsync() {
+        List<CompletableFuture<List<Account>>> parts = new ArrayList<>(reactor.shardCount());
+        for (int i = 0; i < reactor.shardCount(); i++) {
+            Shard shard = reactor.shard(i);
+            parts.add(shard.submit(CommandType.SCAN, () -> {
+                List<Account> accounts = shard.accountStorage().getAllAccounts();
+                accounts.replaceAll(AccountController::copyOf);
+                return accounts;
+            }));
+        }
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            List<Account> accounts = new ArrayList<>();
+            for (CompletableFuture<List<Account>> part : parts) {
+                accounts.addAll(part.join());
+            }
+            return accounts;
+        });
+    }
+
+    public AccountPage getAccounts(AccountCursor from, int limit) throws Throwable {
+        return await(() -> getAccountsAsync(from, limit));
+    }
+
+    /**
+     * Collects up to {@code limit} accounts shard after shard, each shard visited by a task of its own,
+     * so no shard is held for longer than it takes to copy {@code limit} accounts.
+     */
+    public CompletionStage<AccountPage> getAccountsAsync(AccountCursor from, int limit) {
+        return collectAccounts(from.shard(), from.afterId(), limit, new ArrayList<>(limit));
+    }
+
+    private CompletionStage<AccountPage> collectAccounts(int shardIndex, long afterId, int limit,
+                                                         List<Account> into) {
+        if (shardIndex >= reactor.shardCount()) {
+            return CompletableFuture.completedFuture(new AccountPage(into, null));
         }
+        Shard shard = reactor.shard(shardIndex);
+        return shard.submit(CommandType.SCAN, () -> {
+            int start = into.size();
+            boolean more = shard.accountStorage().scanAccounts(afterId, limit - start, into);
+            into.subList(start, into.size()).replaceAll(AccountController::copyOf);
+            return more;
+        }).thenCompose(more -> {
+            if (more) {
+                long lastId = into.get(into.size() - 1).id();
+                return CompletableFuture.completedFuture(
+                        new AccountPage(into, new AccountCursor(shardIndex, lastId)));
+            }
+            if (into.size() == limit && shardIndex + 1 < reactor.shardCount()) {
+                return CompletableFuture.completedFuture(
+                        new AccountPage(into, new AccountCursor(shardIndex + 1, Long.MIN_VALUE)));
+            }
+            return collectAccounts(shardIndex + 1, Long.MIN_VALUE, limit, into);
+        });
+    }
+
+    // accounts change in place, so they leave the shard as copies taken by its command
+    private static Account copyOf(Account account) {
+        return Account.create(account.id(), account.balanceUnits());
     }
 
     public boolean deleteAccount(long id) throws Throwable {
-        try {
-            return CompletableFuture.supplyAsync(() -> storage.remove(id), reactorExecutor)
-                    .get(REQUEST_TIMEOUT_SEC, TimeUnit.SECONDS);
-        } catch (ExecutionException e) {
-            throw e.getCause();
+        return await(() -> deleteAccountAsync(id));
+    }
+
+    public CompletionStage<Boolean> deleteAccountAsync(long id) {
+        if (!takesMutations(journal)) {
+            return journalRefusal(journal, CommandType.DELETE);
+        }
+        return reactor.shardFor(id).submitAsync(CommandType.DELETE, delete, id, 0, 0, null);
+    }
+
+    private CompletableFuture<Boolean> doDelete(Shard shard, Command command) {
+        long id = command.account();
+        if (!shard.accountStorage().remove(id)) {
+            return CompletableFuture.completedFuture(false);
         }
+        return journal.append(JournalRecord.delete(id)).thenApply(durable -> true);
     }
 }
@@ -0,0 +1,75 @@
+package ru.ovchinnikov.controllers;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Opaque position of a walk over all accounts: a shard and the id of the last account returned from it. The
+ * walk goes through each shard in id order, so growing or shrinking the shard's storage between pages neither
+ * skips nor repeats an account.
+ */
+public final class AccountCursor {
+    public static final AccountCursor START = new AccountCursor(0, Long.MIN_VALUE);
+    private static final int ENCODED_BYTES = Integer.BYTES + Long.BYTES;
+
+    private final int shard;
+    private final long afterId;
+
+    AccountCursor(int shard, long afterId) {
+        this.shard = shard;
+        this.afterId = afterId;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value wasn't produced by {@link #encode()}
+     */
+    public static AccountCursor decode(String value) {
+        byte[] bytes = Base64.getUrlDecoder().decode(value);
+        if (bytes.length != ENCODED_BYTES) {
+            throw new IllegalArgumentException("Malformed cursor " + value);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int shard = buffer.getInt();
+        long afterId = buffer.getLong();
+        if (shard < 0) {
+            throw new IllegalArgumentException("Malformed cursor " + value);
+        }
+        return new AccountCursor(shard, afterId);
+    }
+
+    public String encode() {
+        byte[] bytes = ByteBuffer.allocate(ENCODED_BYTES).putInt(shard).putLong(afterId).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    int shard() {
+        return shard;
+    }
+
+    long afterId() {
+        return afterId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        AccountCursor that = (AccountCursor) o;
+
+        return shard == that.shard && afterId == that.afterId;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * shard + Long.hashCode(afterId);
+    }
+
+    @Override
+    public String toString() {
+        return "AccountCursor{" +
+                "shard=" + shard +
+                ", afterId=" + afterId +
+                '}';
+    }
+}
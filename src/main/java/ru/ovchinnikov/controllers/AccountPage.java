@@ -0,0 +1,27 @@
+package ru.ovchinnikov.controllers;
+
+import ru.ovchinnikov.model.Account;
+
+import java.util.List;
+import java.util.Optional;
+
+public final class AccountPage {
+    private final List<Account> accounts;
+    private final AccountCursor next;
+
+    AccountPage(List<Account> accounts, AccountCursor next) {
+        this.accounts = accounts;
+        this.next = next;
+    }
+
+    public List<Account> accounts() {
+        return accounts;
+    }
+
+    /**
+     * @return cursor to request the following page with, empty if this page is the last one
+     */
+    public Optional<AccountCursor> next() {
+        return Optional.ofNullable(next);
+    }
+}
@@ -0,0 +1,55 @@
+package ru.ovchinnikov.controllers;
+
+import ru.ovchinnikov.journal.Journal;
+import ru.ovchinnikov.journal.JournalFailedException;
+import ru.ovchinnikov.reactor.CommandType;
+import ru.ovchinnikov.reactor.Deadline;
+import ru.ovchinnikov.reactor.ShardOverloadedException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static ru.ovchinnikov.ConfigConstant.REQUEST_TIMEOUT_MS;
+
+public final class Futures {
+    private Futures() {
+    }
+
+    // the commands submitted carry the deadline of the wait, so shards drop them once it is given up
+    static <T> T await(Supplier<? extends CompletionStage<T>> submission) throws Throwable {
+        long timeout = REQUEST_TIMEOUT_MS.get();
+        CompletionStage<T> stage = Deadline.within(timeout, TimeUnit.MILLISECONDS, submission);
+        try {
+            return stage.toCompletableFuture().get(timeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    // false once mutations have to be turned away before they run, see journalRefusal
+    static boolean takesMutations(Journal journal) {
+        return journal.failure() == null && !journal.isBackedUp();
+    }
+
+    // 503 while the journal is backed up, for good once it has failed
+    static <T> CompletableFuture<T> journalRefusal(Journal journal, CommandType type) {
+        JournalFailedException failure = journal.failure();
+        if (failure == null) {
+            return ShardOverloadedException.journalRejection(type);
+        }
+        CompletableFuture<T> refused = new CompletableFuture<>();
+        refused.completeExceptionally(failure);
+        return refused;
+    }
+
+    public static Throwable unwrap(Throwable throwable) {
+        if (throwable instanceof CompletionException && throwable.getCause() != null) {
+            return throwable.getCause();
+        }
+        return throwable;
+    }
+}
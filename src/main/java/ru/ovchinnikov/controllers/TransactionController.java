@@ -2,66 +2,340 @@ package ru.ovchinnikov.controllers;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import ru.ovchinnikov.journal.Journal;
+import ru.ovchinnikov.journal.JournalRecord;
 import ru.ovchinnikov.model.Account;
+import ru.ovchinnikov.model.AccountSummary;
+import ru.ovchinnikov.model.Money;
 import ru.ovchinnikov.model.Transaction;
+import ru.ovchinnikov.model.TransactionKind;
+import ru.ovchinnikov.model.Transfer;
+import ru.ovchinnikov.model.TransferResult;
+import ru.ovchinnikov.reactor.CommandHandler;
+import ru.ovchinnikov.reactor.CommandType;
+import ru.ovchinnikov.reactor.Reactor;
+import ru.ovchinnikov.reactor.Shard;
+import ru.ovchinnikov.reactor.ShardOverloadedException;
 import ru.ovchinnikov.storage.AccountStorage;
+import ru.ovchinnikov.storage.HistoryCursor;
+import ru.ovchinnikov.storage.Rollup;
+import ru.ovchinnikov.storage.TransactionPage;
 import ru.ovchinnikov.storage.TransactionStorage;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.TimeUnit;
 
-import static ru.ovchinnikov.ConfigConstant.REQUEST_TIMEOUT_SEC;
+import static ru.ovchinnikov.ConfigConstant.MAX_ATOMIC_BATCH_SHARDS;
+import static ru.ovchinnikov.controllers.Futures.await;
+import static ru.ovchinnikov.controllers.Futures.journalRefusal;
+import static ru.ovchinnikov.controllers.Futures.takesMutations;
+import static ru.ovchinnikov.controllers.Futures.unwrap;
 
 // @ThreadSafe
 public class TransactionController {
     static final Logger log = LogManager.getLogger(TransactionController.class);
-    static final String WITHDRAW_DESC = "Withdraw";
-    static final String RECHARGE_DESC = "Recharge";
-    private final ExecutorService reactorExecutor;
-    // @ThreadConfined
-    private final TransactionStorage transactionStorage;
-    // @ThreadConfined
-    private final AccountStorage accountStorage;
+    static final String WITHDRAW_DESC = Transaction.WITHDRAW_DESC;
+    static final String RECHARGE_DESC = Transaction.RECHARGE_DESC;
+    private final Reactor reactor;
+    private final Journal journal;
+    private final CommandHandler<CompletableFuture<Void>> transfer = (shard, command) -> doTransfer(shard,
+            command.account(), command.counterpart(), command.amount(), command.description());
+    private final CommandHandler<CompletableFuture<Void>> withdraw =
+            (shard, command) -> doWithdraw(shard, command.account(), command.amount());
+    private final CommandHandler<CompletableFuture<Void>> recharge =
+            (shard, command) -> doRecharge(shard, command.account(), command.amount());
 
     public TransactionController(ExecutorService reactorExecutor,
                                  TransactionStorage transactionStorage,
                                  AccountStorage accountStorage) {
-        this.reactorExecutor = reactorExecutor;
-        this.transactionStorage = transactionStorage;
-        this.accountStorage = accountStorage;
+        this(Reactor.singleShard(reactorExecutor, accountStorage, transactionStorage), Journal.DISABLED);
+    }
+
+    public TransactionController(Reactor reactor, Journal journal) {
+        this.reactor = reactor;
+        this.journal = journal;
     }
 
     public void transfer(long from, long to, BigDecimal amount, String description) throws Throwable {
+        await(() -> transferAsync(from, to, Money.toUnits(amount), description));
+    }
+
+    public CompletionStage<Void> transferAsync(long from, long to, long amount, String description) {
+        if (!takesMutations(journal)) {
+            return journalRefusal(journal, CommandType.TRANSFER);
+        }
+        Shard source = reactor.shardFor(from);
+        Shard target = reactor.shardFor(to);
+        if (source == target) {
+            return source.submitAsync(CommandType.TRANSFER, transfer, from, to, amount, description);
+        }
+        return transferAcrossShards(source, target, from, to, amount, description);
+    }
+
+    private CompletableFuture<Void> doTransfer(Shard shard, long from, long to, long amount, String description) {
+        Transaction transaction = applyTransfer(from, to, amount, description);
+        shard.transactionStorage().store(transaction, TransactionKind.TRANSFER);
+        return journal.append(JournalRecord.transfer(from, to, amount, description, transaction.timestamp()));
+    }
+
+    // moves the money between accounts, which must be accessible to the calling task, and nothing else
+    private Transaction applyTransfer(long from, long to, long amount, String description) {
+        Account fromAccount = validatePresence(from, reactor.shardFor(from).accountStorage().findAccountFor(from));
+        Account toAccount = validatePresence(to, reactor.shardFor(to).accountStorage().findAccountFor(to));
+        if (fromAccount.balanceUnits() < amount) {
+            log.warn("Too few money on {}, to transfer {} to {}", fromAccount, Money.toDecimal(amount), toAccount);
+            throw new IllegalArgumentException("Not enough money on " + from);
+        }
+        if (amount < 0) {
+            log.warn("Negative amount {} when transfer from {} to {}", Money.toDecimal(amount), fromAccount, toAccount);
+            throw new IllegalArgumentException("Negative amount to transfer");
+        }
+        // debit first, as across shards, so a reader looking at both accounts may miss the money in flight
+        // but never sees it twice; the credit is the only step that can fail (on overflow) and is undone then
+        fromAccount.withdraw(amount);
         try {
-            CompletableFuture.supplyAsync(() -> {
-                doTransfer(from, to, amount, description);
-                return null;
-            }, reactorExecutor).get(REQUEST_TIMEOUT_SEC, TimeUnit.SECONDS);
-        } catch (ExecutionException e) {
-            throw e.getCause();
+            toAccount.recharge(amount);
+        } catch (IllegalArgumentException e) {
+            fromAccount.recharge(amount);
+            throw e;
+        }
+        return Transaction.create(from, to, amount, description, now());
+    }
+
+    public List<TransferResult> transferBatch(List<Transfer> transfers, boolean atomic) throws Throwable {
+        return await(() -> transferBatchAsync(transfers, atomic));
+    }
+
+    /**
+     * In atomic mode applies all the transfers in order in a single task run with every shard involved
+     * stopped, see {@link Reactor#submitExclusive}; the first failed transfer undoes the ones applied before
+     * it and the rest are not tried. An atomic batch involving more than {@code transfer.batch.atomic.max.shards}
+     * shards is refused with {@link IllegalArgumentException}.
+     * <p>
+     * Otherwise every transfer succeeds or fails on its own and no shard is stopped: the transfers within
+     * a shard are applied in order in one task of that shard, the ones across shards go as separate
+     * transfers, so they may be applied in any order relative to the rest. Turned away as a whole unless
+     * every shard involved admits its part.
+     * <p>
+     * Completes once the applied transfers are journaled.
+     */
+    public CompletionStage<List<TransferResult>> transferBatchAsync(List<Transfer> transfers, boolean atomic) {
+        if (!takesMutations(journal)) {
+            return journalRefusal(journal, CommandType.BATCH);
+        }
+        Set<Shard> involved = shardsOf(transfers);
+        if (involved.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        if (!atomic) {
+            return transferEach(transfers, involved);
+        }
+        if (involved.size() > MAX_ATOMIC_BATCH_SHARDS) {
+            CompletableFuture<List<TransferResult>> refused = new CompletableFuture<>();
+            refused.completeExceptionally(new IllegalArgumentException(
+                    "An atomic batch may involve up to " + MAX_ATOMIC_BATCH_SHARDS + " shards"));
+            return refused;
+        }
+        return reactor.submitExclusive(CommandType.BATCH, involved, () -> doAtomicBatch(transfers))
+                .thenCompose(applied -> applied);
+    }
+
+    // how many shards a batch of the transfers would stop
+    public int shardsInvolved(List<Transfer> transfers) {
+        return shardsOf(transfers).size();
+    }
+
+    private Set<Shard> shardsOf(List<Transfer> transfers) {
+        Set<Shard> involved = new LinkedHashSet<>();
+        for (Transfer transfer : transfers) {
+            involved.add(reactor.shardFor(transfer.from()));
+            involved.add(reactor.shardFor(transfer.to()));
+        }
+        return involved;
+    }
+
+    private CompletableFuture<List<TransferResult>> transferEach(List<Transfer> transfers, Set<Shard> involved) {
+        for (Shard shard : involved) {
+            if (!shard.admits(CommandType.BATCH)) {
+                return ShardOverloadedException.rejection(CommandType.BATCH);
+            }
+        }
+        TransferResult[] results = new TransferResult[transfers.size()];
+        Map<Shard, List<Integer>> withinShards = new LinkedHashMap<>();
+        List<CompletableFuture<?>> parts = new ArrayList<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            Transfer transfer = transfers.get(i);
+            Shard source = reactor.shardFor(transfer.from());
+            Shard target = reactor.shardFor(transfer.to());
+            if (source == target) {
+                withinShards.computeIfAbsent(source, shard -> new ArrayList<>()).add(i);
+                continue;
+            }
+            int index = i;
+            parts.add(transferAcrossShards(source, target, transfer.from(), transfer.to(), transfer.amountUnits(),
+                    transfer.description())
+                    .handle((done, error) -> results[index] = error == null ? TransferResult.DONE : failed(error)));
+        }
+        for (Map.Entry<Shard, List<Integer>> part : withinShards.entrySet()) {
+            Shard shard = part.getKey();
+            parts.add(shard.submitAdmitted(CommandType.BATCH,
+                    () -> doTransfersWithin(shard, transfers, part.getValue(), results))
+                    .thenCompose(applied -> applied));
+        }
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> Arrays.asList(results));
+    }
+
+    private CompletableFuture<Void> doTransfersWithin(Shard shard, List<Transfer> transfers, List<Integer> indices,
+                                                      TransferResult[] results) {
+        List<CompletableFuture<Void>> appends = new ArrayList<>(indices.size());
+        for (int index : indices) {
+            Transfer transfer = transfers.get(index);
+            try {
+                appends.add(doTransfer(shard, transfer.from(), transfer.to(), transfer.amountUnits(),
+                        transfer.description()));
+                results[index] = TransferResult.DONE;
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                results[index] = failed(e);
+            }
+        }
+        return CompletableFuture.allOf(appends.toArray(new CompletableFuture<?>[0]));
+    }
+
+    // the outcome of a transfer failed for a reason of its own, any other failure fails the whole batch
+    private static TransferResult failed(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof IllegalArgumentException) {
+            return TransferResult.failed(TransferResult.Status.REJECTED, cause.getMessage());
+        }
+        if (cause instanceof IllegalStateException) {
+            return TransferResult.failed(TransferResult.Status.NOT_FOUND, cause.getMessage());
+        }
+        throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(cause);
+    }
+
+    private CompletableFuture<List<TransferResult>> doAtomicBatch(List<Transfer> transfers) {
+        List<TransferResult> results = new ArrayList<>(transfers.size());
+        List<Transaction> applied = new ArrayList<>(transfers.size());
+        for (Transfer transfer : transfers) {
+            try {
+                applied.add(applyTransfer(transfer.from(), transfer.to(), transfer.amountUnits(),
+                        transfer.description()));
+                results.add(TransferResult.DONE);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                results.add(failed(e));
+                return CompletableFuture.completedFuture(abort(results, applied, transfers.size()));
+            }
+        }
+        CompletableFuture<?>[] appends = new CompletableFuture<?>[applied.size()];
+        for (int i = 0; i < applied.size(); i++) {
+            Transaction transaction = applied.get(i);
+            long from = transaction.from();
+            long to = transaction.to();
+            Shard fromShard = reactor.shardFor(from);
+            Shard toShard = reactor.shardFor(to);
+            if (fromShard == toShard) {
+                fromShard.transactionStorage().store(transaction, TransactionKind.TRANSFER);
+            } else {
+                fromShard.transactionStorage().store(from, transaction);
+                toShard.transactionStorage().store(to, transaction);
+            }
+            appends[i] = journal.append(JournalRecord.transfer(from, to, transaction.amountUnits(),
+                    transaction.description(), transaction.timestamp()));
+        }
+        return CompletableFuture.allOf(appends).thenApply(ignored -> results);
+    }
+
+    // undoes applied transfers latest first and marks everything but the failed one aborted
+    private List<TransferResult> abort(List<TransferResult> results, List<Transaction> applied, int total) {
+        for (int i = applied.size() - 1; i >= 0; i--) {
+            Transaction transaction = applied.get(i);
+            reactor.shardFor(transaction.to()).accountStorage().findAccountFor(transaction.to()).get()
+                    .withdraw(transaction.amountUnits());
+            reactor.shardFor(transaction.from()).accountStorage().findAccountFor(transaction.from()).get()
+                    .recharge(transaction.amountUnits());
+        }
+        int failed = results.size() - 1;
+        List<TransferResult> aborted = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            aborted.add(i == failed ? results.get(failed) : TransferResult.ABORTED);
         }
+        return aborted;
     }
 
-    private void doTransfer(long from, long to, BigDecimal amount, String description) {
-        Account fromAccount = validatePresence(from, accountStorage.findAccountFor(from));
-        Account toAccount = validatePresence(to, accountStorage.findAccountFor(to));
-        if (fromAccount.balance().compareTo(amount) < 0) {
-            log.warn("Too few money on {}, to transfer {} to {}", fromAccount, amount, toAccount);
+    // Accounts living on different shards are never touched by one task. The money is debited on the
+    // source shard first, then credited on the target shard, and finally the source shard either records
+    // the transaction or, if the credit failed, returns the money to the source account.
+    // Each leg is journaled; the journal keeps the order of appends, so once the credit is durable the
+    // debit is too, and a debit without credit or refund is refunded on replay.
+    private CompletableFuture<Void> transferAcrossShards(Shard source, Shard target,
+                                                         long from, long to,
+                                                         long amount, String description) {
+        long transferId = journal.nextTransferId();
+        return source.submit(CommandType.TRANSFER, () -> debit(source, transferId, from, to, amount, description))
+                .thenCompose(transaction -> target.submit(CommandType.TRANSFER,
+                        () -> credit(target, transferId, transaction))
+                        .handle((creditDurable, error) -> source.submitAsync(CommandType.TRANSFER,
+                                () -> settle(source, transferId, transaction, creditDurable, error)))
+                        .thenCompose(settled -> settled));
+    }
+
+    private Transaction debit(Shard shard, long transferId, long from, long to, long amount, String description) {
+        Account fromAccount = validatePresence(from, shard.accountStorage().findAccountFor(from));
+        if (fromAccount.balanceUnits() < amount) {
+            log.warn("Too few money on {}, to transfer {} to {}", fromAccount, Money.toDecimal(amount), to);
             throw new IllegalArgumentException("Not enough money on " + from);
         }
-        if (BigDecimal.ZERO.compareTo(amount) > 0) {
-            log.warn("Negative amount {} when transfer from {} to {}", amount, fromAccount, toAccount);
+        if (amount < 0) {
+            log.warn("Negative amount {} when transfer from {} to {}", Money.toDecimal(amount), fromAccount, to);
             throw new IllegalArgumentException("Negative amount to transfer");
         }
-        Transaction transaction = Transaction.create(fromAccount.id(), toAccount.id(), amount, description, now());
-        accountStorage.store(fromAccount.withdraw(amount));
-        accountStorage.store(toAccount.recharge(amount));
-        transactionStorage.store(transaction);
+        fromAccount.withdraw(amount);
+        long timestamp = now();
+        journal.append(JournalRecord.transferDebit(transferId, from, to, amount, description, timestamp));
+        return Transaction.create(from, to, amount, description, timestamp);
+    }
+
+    private CompletableFuture<Void> credit(Shard shard, long transferId, Transaction transaction) {
+        long to = transaction.to();
+        Account toAccount = validatePresence(to, shard.accountStorage().findAccountFor(to));
+        toAccount.recharge(transaction.amountUnits());
+        shard.transactionStorage().store(to, transaction);
+        return journal.append(JournalRecord.transferCredit(transferId, transaction.from(), to,
+                transaction.amountUnits(), transaction.description(), transaction.timestamp()));
+    }
+
+    private CompletableFuture<Void> settle(Shard shard, long transferId, Transaction transaction,
+                                           CompletableFuture<Void> creditDurable, Throwable creditError) {
+        long from = transaction.from();
+        if (creditError == null) {
+            shard.transactionStorage().store(from, transaction);
+            return creditDurable;
+        }
+        Optional<Account> fromAccount = shard.accountStorage().findAccountFor(from);
+        if (fromAccount.isPresent()) {
+            fromAccount.get().recharge(transaction.amountUnits());
+        } else {
+            log.error("Account {} deleted while transfer was in flight, {} is lost", from, transaction);
+        }
+        journal.append(JournalRecord.transferRefund(transferId, from, transaction.amountUnits()));
+        Throwable cause = unwrap(creditError);
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        throw new IllegalStateException(cause);
     }
 
     private Account validatePresence(long id, Optional<Account> accountHolder) {
@@ -73,74 +347,135 @@ public class TransactionController {
     }
 
     public List<Transaction> getAllTransactions(long id) throws Throwable {
-        try {
-            return CompletableFuture.supplyAsync(() -> {
-                if (!accountStorage.findAccountFor(id).isPresent()) {
-                    throw new IllegalStateException();
-                }
-                return transactionStorage.findTransactionsFor(id);
-            }, reactorExecutor).get(REQUEST_TIMEOUT_SEC, TimeUnit.SECONDS);
-        } catch (ExecutionException e) {
-            throw e.getCause();
-        }
+        return await(() -> getAllTransactionsAsync(id));
+    }
+
+    public CompletionStage<List<Transaction>> getAllTransactionsAsync(long id) {
+        Shard shard = reactor.shardFor(id);
+        return shard.submit(CommandType.HISTORY, () -> {
+            if (!shard.accountStorage().findAccountFor(id).isPresent()) {
+                throw new IllegalStateException();
+            }
+            return shard.transactionStorage().findTransactionsFor(id);
+        });
+    }
+
+    public TransactionPage getTransactions(long id, long from, long to, HistoryCursor after, int limit)
+            throws Throwable {
+        return await(() -> getTransactionsAsync(id, from, to, after, limit));
+    }
+
+    public CompletionStage<TransactionPage> getTransactionsAsync(long id, long from, long to, HistoryCursor after,
+                                                                 int limit) {
+        Shard shard = reactor.shardFor(id);
+        return shard.submit(CommandType.HISTORY, () -> {
+            if (!shard.accountStorage().findAccountFor(id).isPresent()) {
+                throw new IllegalStateException();
+            }
+            return shard.transactionStorage().findTransactionsFor(id, from, to, after, limit);
+        });
+    }
+
+    public AccountSummary getSummary(long id, Rollup rollup, long from, long to) throws Throwable {
+        return await(() -> getSummaryAsync(id, rollup, from, to));
+    }
+
+    /**
+     * Returns the totals of money in and out of the account, kept up to date by every transaction stored, see
+     * {@link TransactionStorage#summarize}. Costs the same however long the history is; the buckets, if asked
+     * for, one per day or month with transactions.
+     */
+    public CompletionStage<AccountSummary> getSummaryAsync(long id, Rollup rollup, long from, long to) {
+        Shard shard = reactor.shardFor(id);
+        return shard.submit(CommandType.SUMMARY, () -> {
+            if (!shard.accountStorage().findAccountFor(id).isPresent()) {
+                throw new IllegalStateException();
+            }
+            return shard.transactionStorage().summarize(id, rollup, from, to);
+        });
+    }
+
+    public int shardCount() {
+        return reactor.shardCount();
+    }
+
+    public TransactionPage getShardTransactions(int shardIndex, long from, long to, HistoryCursor after, int limit)
+            throws Throwable {
+        return await(() -> getShardTransactionsAsync(shardIndex, from, to, after, limit));
+    }
+
+    /**
+     * Returns a page of the transactions of all the accounts of one shard, see
+     * {@link TransactionStorage#findTransactions(long, long, HistoryCursor, int)}. Walking every shard gives
+     * each transaction once.
+     */
+    public CompletionStage<TransactionPage> getShardTransactionsAsync(int shardIndex, long from, long to,
+                                                                      HistoryCursor after, int limit) {
+        Shard shard = reactor.shard(shardIndex);
+        return shard.submit(CommandType.HISTORY,
+                () -> shard.transactionStorage().findTransactions(from, to, after, limit));
     }
 
     public void withdraw(long id, BigDecimal amount) throws Throwable {
-        try {
-            CompletableFuture.supplyAsync(() -> {
-                doWithdraw(id, amount);
-                return null;
-            }, reactorExecutor).get(REQUEST_TIMEOUT_SEC, TimeUnit.SECONDS);
-        } catch (ExecutionException e) {
-            throw e.getCause();
+        await(() -> withdrawAsync(id, Money.toUnits(amount)));
+    }
+
+    public CompletionStage<Void> withdrawAsync(long id, long amount) {
+        if (!takesMutations(journal)) {
+            return journalRefusal(journal, CommandType.WITHDRAW);
         }
+        return reactor.shardFor(id).submitAsync(CommandType.WITHDRAW, withdraw, id, 0, amount, null);
     }
 
-    private void doWithdraw(long id, BigDecimal amount) {
-        Optional<Account> accountHolder = accountStorage.findAccountFor(id);
+    private CompletableFuture<Void> doWithdraw(Shard shard, long id, long amount) {
+        Optional<Account> accountHolder = shard.accountStorage().findAccountFor(id);
         if (!accountHolder.isPresent()) {
             log.warn("Account {} already deleted, can't withdraw", id);
             throw new IllegalStateException("Deleted " + id);
         }
         Account account = accountHolder.get();
-        if (account.balance().compareTo(amount) < 0) {
-            log.warn("Too few money on {}, to withdraw {}", account, amount);
+        if (account.balanceUnits() < amount) {
+            log.warn("Too few money on {}, to withdraw {}", account, Money.toDecimal(amount));
             throw new IllegalArgumentException("Not enough money on " + id);
         }
-        if (BigDecimal.ZERO.compareTo(amount) > 0) {
-            log.warn("Negative amount {} when withdrawing account {}", amount, account);
+        if (amount < 0) {
+            log.warn("Negative amount {} when withdrawing account {}", Money.toDecimal(amount), account);
             throw new IllegalArgumentException("Negative amount to withdraw");
         }
-        Transaction transaction = Transaction.create(account.id(), account.id(), amount.negate(), WITHDRAW_DESC, now());
-        accountStorage.store(account.withdraw(amount));
-        transactionStorage.store(transaction);
+        long timestamp = now();
+        Transaction transaction = Transaction.create(account.id(), account.id(), -amount, WITHDRAW_DESC, timestamp);
+        account.withdraw(amount);
+        shard.transactionStorage().store(transaction, TransactionKind.WITHDRAWAL);
+        return journal.append(JournalRecord.withdraw(id, amount, timestamp));
     }
 
     public void recharge(long id, BigDecimal amount) throws Throwable {
-        try {
-            CompletableFuture.supplyAsync(() -> {
-                doRecharge(id, amount);
-                return null;
-            }, reactorExecutor).get(REQUEST_TIMEOUT_SEC, TimeUnit.SECONDS);
-        } catch (ExecutionException e) {
-            throw e.getCause();
+        await(() -> rechargeAsync(id, Money.toUnits(amount)));
+    }
+
+    public CompletionStage<Void> rechargeAsync(long id, long amount) {
+        if (!takesMutations(journal)) {
+            return journalRefusal(journal, CommandType.RECHARGE);
         }
+        return reactor.shardFor(id).submitAsync(CommandType.RECHARGE, recharge, id, 0, amount, null);
     }
 
-    private void doRecharge(long id, BigDecimal amount) {
-        Optional<Account> accountHolder = accountStorage.findAccountFor(id);
+    private CompletableFuture<Void> doRecharge(Shard shard, long id, long amount) {
+        Optional<Account> accountHolder = shard.accountStorage().findAccountFor(id);
         if (!accountHolder.isPresent()) {
             log.warn("Account {} already deleted, can't recharge", id);
             throw new IllegalStateException("Deleted " + id);
         }
         Account account = accountHolder.get();
-        if (BigDecimal.ZERO.compareTo(amount) > 0) {
-            log.warn("Negative amount {} when recharging account {}", amount, account);
+        if (amount < 0) {
+            log.warn("Negative amount {} when recharging account {}", Money.toDecimal(amount), account);
             throw new IllegalArgumentException("Negative amount to recharge");
         }
-        Transaction transaction = Transaction.create(account.id(), account.id(), amount, RECHARGE_DESC, now());
-        accountStorage.store(account.recharge(amount));
-        transactionStorage.store(transaction);
+        account.recharge(amount);
+        long timestamp = now();
+        Transaction transaction = Transaction.create(account.id(), account.id(), amount, RECHARGE_DESC, timestamp);
+        shard.transactionStorage().store(transaction, TransactionKind.RECHARGE);
+        return journal.append(JournalRecord.recharge(id, amount, timestamp));
     }
 
     protected long now() {
@@ -0,0 +1,53 @@
+package ru.ovchinnikov.journal;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Append only log of ledger mutations. A mutation is applied in memory first and acknowledged
+ * to the client only when the future returned by {@link #append} completes.
+ */
+// @ThreadSafe
+public interface Journal extends AutoCloseable {
+    Journal DISABLED = new Journal() {
+        private final CompletableFuture<Void> done = CompletableFuture.completedFuture(null);
+
+        @Override
+        public CompletableFuture<Void> append(JournalRecord record) {
+            return done;
+        }
+
+        @Override
+        public long nextTransferId() {
+            return 0;
+        }
+
+        @Override
+        public boolean isBackedUp() {
+            return false;
+        }
+
+        @Override
+        public JournalFailedException failure() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    // never waits, not even when the journal is backed up
+    CompletableFuture<Void> append(JournalRecord record);
+
+    // too many appends wait to be written, new mutations should be turned away until they are
+    boolean isBackedUp();
+
+    // why the journal takes no more records for good, null while it works
+    JournalFailedException failure();
+
+    // identifies the legs of a transfer between shards, unique among transfers in flight
+    long nextTransferId();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,75 @@
+package ru.ovchinnikov.journal;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// @Immutable
+public class JournalConfig {
+    public enum Durability {
+        // a mutation is acknowledged after the batch it belongs to is forced to disk
+        SYNC,
+        // a mutation is acknowledged once written to the mapped segment, segments are forced periodically
+        ASYNC
+    }
+
+    private final Path directory;
+    private final Durability durability;
+    private final int segmentSize;
+    private final int maxBatch;
+    private final long lingerNanos;
+    private final long flushIntervalNanos;
+    // appends waiting to be written past which the journal is backed up
+    private final int queueCapacity;
+
+    public JournalConfig(Path directory, Durability durability, int segmentSize, int maxBatch,
+                         long lingerMicros, long flushIntervalMillis, int queueCapacity) {
+        this.directory = directory;
+        this.durability = durability;
+        this.segmentSize = segmentSize;
+        this.maxBatch = maxBatch;
+        this.lingerNanos = TimeUnit.MICROSECONDS.toNanos(lingerMicros);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    public Durability durability() {
+        return durability;
+    }
+
+    public int segmentSize() {
+        return segmentSize;
+    }
+
+    public int maxBatch() {
+        return maxBatch;
+    }
+
+    public long lingerNanos() {
+        return lingerNanos;
+    }
+
+    public long flushIntervalNanos() {
+        return flushIntervalNanos;
+    }
+
+    public int queueCapacity() {
+        return queueCapacity;
+    }
+
+    @Override
+    public String toString() {
+        return "JournalConfig{" +
+                "directory=" + directory +
+                ", durability=" + durability +
+                ", segmentSize=" + segmentSize +
+                ", maxBatch=" + maxBatch +
+                ", lingerNanos=" + lingerNanos +
+                ", flushIntervalNanos=" + flushIntervalNanos +
+                ", queueCapacity=" + queueCapacity +
+                '}';
+    }
+}
@@ -0,0 +1,14 @@
+package ru.ovchinnikov.journal;
+
+/**
+ * A journal that failed to write or force its records takes no more of them: the ledger in memory may be
+ * ahead of what is on disk, so rather than go on acknowledging mutations the disk doesn't have, every
+ * append and every mutation is refused until a restart recovers the ledger from the disk.
+ */
+public final class JournalFailedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    JournalFailedException(Throwable cause) {
+        super("Journal failed, mutations are refused until restart", cause);
+    }
+}
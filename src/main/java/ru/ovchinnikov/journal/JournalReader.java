@@ -0,0 +1,50 @@
+package ru.ovchinnikov.journal;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+public final class JournalReader {
+    private static final Logger log = LogManager.getLogger(JournalReader.class);
+
+    public interface Handler {
+        void accept(long lsn, JournalRecord record);
+    }
+
+    private JournalReader() {
+    }
+
+    /**
+     * Feeds every intact record with LSN in {@code [fromLsn, toLsn)} to the handler, in journal order.
+     * Only the last segment may end with a torn record, one anywhere else means the journal is corrupted.
+     *
+     * @return LSN after the last record read
+     */
+    public static long read(Path directory, long fromLsn, long toLsn, Handler handler) throws IOException {
+        List<Path> segments = JournalSegment.list(directory);
+        long endLsn = fromLsn;
+        for (int i = 0; i < segments.size(); i++) {
+            Path segment = segments.get(i);
+            boolean last = i + 1 == segments.size();
+            if (!last && JournalSegment.baseLsnOf(segments.get(i + 1)) <= fromLsn) {
+                continue;
+            }
+            if (JournalSegment.baseLsnOf(segment) >= toLsn) {
+                break;
+            }
+            int end = JournalSegment.scan(segment, fromLsn, toLsn, handler);
+            if (end < 0) {
+                end = -end - 1;
+                if (!last) {
+                    throw new IOException("Corrupted journal segment " + segment + " at " + end);
+                }
+                log.warn("Journal {} ends with a torn record at {}, it is discarded", segment, end);
+            }
+            endLsn = JournalSegment.baseLsnOf(segment) + end;
+        }
+        return endLsn;
+    }
+}
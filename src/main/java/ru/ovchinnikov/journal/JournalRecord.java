@@ -0,0 +1,154 @@
+package ru.ovchinnikov.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// @Immutable
+public class JournalRecord {
+    public enum Type {
+        CREATE, DELETE, RECHARGE, WITHDRAW, TRANSFER, TRANSFER_DEBIT, TRANSFER_CREDIT, TRANSFER_REFUND, CREATE_BLOCK;
+
+        private static final Type[] VALUES = values();
+
+        static Type of(int ordinal) {
+            if (ordinal < 0 || ordinal >= VALUES.length) {
+                throw new IllegalArgumentException("Unknown journal record type " + ordinal);
+            }
+            return VALUES[ordinal];
+        }
+    }
+
+    static final int FIXED_SIZE = 1 + 5 * Long.BYTES + Integer.BYTES;
+    private static final byte[] NO_DESCRIPTION = new byte[0];
+
+    private final Type type;
+    private final long transferId;
+    private final long from;
+    private final long to;
+    private final long amount;
+    private final long timestamp;
+    private final String description;
+
+    private JournalRecord(Type type, long transferId, long from, long to,
+                          long amount, long timestamp, String description) {
+        this.type = type;
+        this.transferId = transferId;
+        this.from = from;
+        this.to = to;
+        this.amount = amount;
+        this.timestamp = timestamp;
+        this.description = description;
+    }
+
+    public static JournalRecord create(long id) {
+        return new JournalRecord(Type.CREATE, 0, id, id, 0, 0, null);
+    }
+
+    // accounts first, first + step, ... up to last
+    public static JournalRecord createBlock(long first, long last, long step) {
+        return new JournalRecord(Type.CREATE_BLOCK, 0, first, last, step, 0, null);
+    }
+
+    public static JournalRecord delete(long id) {
+        return new JournalRecord(Type.DELETE, 0, id, id, 0, 0, null);
+    }
+
+    public static JournalRecord recharge(long id, long amount, long timestamp) {
+        return new JournalRecord(Type.RECHARGE, 0, id, id, amount, timestamp, null);
+    }
+
+    public static JournalRecord withdraw(long id, long amount, long timestamp) {
+        return new JournalRecord(Type.WITHDRAW, 0, id, id, amount, timestamp, null);
+    }
+
+    public static JournalRecord transfer(long from, long to, long amount, String description, long timestamp) {
+        return new JournalRecord(Type.TRANSFER, 0, from, to, amount, timestamp, description);
+    }
+
+    public static JournalRecord transferDebit(long transferId, long from, long to, long amount,
+                                              String description, long timestamp) {
+        return new JournalRecord(Type.TRANSFER_DEBIT, transferId, from, to, amount, timestamp, description);
+    }
+
+    public static JournalRecord transferCredit(long transferId, long from, long to, long amount,
+                                               String description, long timestamp) {
+        return new JournalRecord(Type.TRANSFER_CREDIT, transferId, from, to, amount, timestamp, description);
+    }
+
+    public static JournalRecord transferRefund(long transferId, long from, long amount) {
+        return new JournalRecord(Type.TRANSFER_REFUND, transferId, from, from, amount, 0, null);
+    }
+
+    public Type type() {
+        return type;
+    }
+
+    public long transferId() {
+        return transferId;
+    }
+
+    public long from() {
+        return from;
+    }
+
+    public long to() {
+        return to;
+    }
+
+    public long amount() {
+        return amount;
+    }
+
+    public long timestamp() {
+        return timestamp;
+    }
+
+    public String description() {
+        return description;
+    }
+
+    byte[] encodedDescription() {
+        return description == null ? NO_DESCRIPTION : description.getBytes(StandardCharsets.UTF_8);
+    }
+
+    void writeTo(ByteBuffer buffer, byte[] encodedDescription) {
+        buffer.put((byte) type.ordinal())
+                .putLong(transferId)
+                .putLong(from)
+                .putLong(to)
+                .putLong(amount)
+                .putLong(timestamp)
+                .putInt(encodedDescription.length)
+                .put(encodedDescription);
+    }
+
+    static JournalRecord readFrom(ByteBuffer buffer) {
+        Type type = Type.of(buffer.get());
+        long transferId = buffer.getLong();
+        long from = buffer.getLong();
+        long to = buffer.getLong();
+        long amount = buffer.getLong();
+        long timestamp = buffer.getLong();
+        int descriptionLength = buffer.getInt();
+        String description = "";
+        if (descriptionLength > 0) {
+            byte[] bytes = new byte[descriptionLength];
+            buffer.get(bytes);
+            description = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new JournalRecord(type, transferId, from, to, amount, timestamp, description);
+    }
+
+    @Override
+    public String toString() {
+        return "JournalRecord{" +
+                "type=" + type +
+                ", transferId=" + transferId +
+                ", from=" + from +
+                ", to=" + to +
+                ", amount=" + amount +
+                ", timestamp=" + timestamp +
+                ", description='" + description + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,162 @@
+package ru.ovchinnikov.journal;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ru.ovchinnikov.model.Account;
+import ru.ovchinnikov.model.Transaction;
+import ru.ovchinnikov.model.TransactionKind;
+import ru.ovchinnikov.reactor.Reactor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rebuilds ledger state from a snapshot and the journal records written after it.
+ * Records are trusted: balances are not re-validated.
+ */
+// @NotThreadSafe
+public class JournalReplayer implements JournalReader.Handler, SnapshotFile.Visitor {
+    private static final Logger log = LogManager.getLogger(JournalReplayer.class);
+    private final LedgerState state;
+    private final Map<Long, JournalRecord> unsettledTransfers = new LinkedHashMap<>();
+    private long replayed;
+    private long lastAccountId;
+    private long lastTransferId;
+
+    public JournalReplayer(Reactor reactor) {
+        this(LedgerState.of(reactor));
+    }
+
+    public JournalReplayer(LedgerState state) {
+        this.state = state;
+    }
+
+    @Override
+    public void accept(long lsn, JournalRecord record) {
+        long from = record.from();
+        long to = record.to();
+        long amount = record.amount();
+        switch (record.type()) {
+            case CREATE:
+                state.storeAccount(Account.create(from));
+                lastAccountId = Math.max(lastAccountId, from);
+                break;
+            case CREATE_BLOCK:
+                for (long id = from; id <= to; id += amount) {
+                    state.storeAccount(Account.create(id));
+                    lastAccountId = Math.max(lastAccountId, id);
+                }
+                break;
+            case DELETE:
+                state.removeAccount(from);
+                break;
+            case RECHARGE:
+                credit(from, amount);
+                state.storeTransaction(Transaction.create(from, from, amount, Transaction.RECHARGE_DESC, record.timestamp()),
+                        TransactionKind.RECHARGE);
+                break;
+            case WITHDRAW:
+                debit(from, amount);
+                state.storeTransaction(Transaction.create(from, from, -amount, Transaction.WITHDRAW_DESC, record.timestamp()),
+                        TransactionKind.WITHDRAWAL);
+                break;
+            case TRANSFER:
+                debit(from, amount);
+                credit(to, amount);
+                state.storeTransaction(Transaction.create(from, to, amount, record.description(), record.timestamp()),
+                        TransactionKind.TRANSFER);
+                break;
+            case TRANSFER_DEBIT:
+                debit(from, amount);
+                unsettledTransfers.put(record.transferId(), record);
+                break;
+            case TRANSFER_CREDIT:
+                credit(to, amount);
+                state.storeTransaction(Transaction.create(from, to, amount, record.description(), record.timestamp()),
+                        TransactionKind.TRANSFER);
+                unsettledTransfers.remove(record.transferId());
+                break;
+            case TRANSFER_REFUND:
+                credit(from, amount);
+                unsettledTransfers.remove(record.transferId());
+                break;
+            default:
+                throw new IllegalStateException("Unexpected journal record " + record);
+        }
+        lastTransferId = Math.max(lastTransferId, record.transferId());
+        replayed++;
+    }
+
+    @Override
+    public void restoreAccount(long id, long balance) {
+        state.storeAccount(Account.create(id, balance));
+    }
+
+    @Override
+    public void restoreTransaction(Transaction transaction, TransactionKind kind) {
+        state.storeTransaction(transaction, kind);
+    }
+
+    @Override
+    public void restoreUnsettledTransfer(JournalRecord debit) {
+        unsettledTransfers.put(debit.transferId(), debit);
+    }
+
+    public void restoreSequences(long lastAccountId, long lastTransferId) {
+        this.lastAccountId = Math.max(this.lastAccountId, lastAccountId);
+        this.lastTransferId = Math.max(this.lastTransferId, lastTransferId);
+    }
+
+    /**
+     * Transfers debited on the source shard whose credit never made it to the journal before the
+     * process stopped. The money goes back to the source account and the refund is journaled.
+     */
+    public void refundUnsettledTransfers(Journal journal) {
+        List<JournalRecord> refunds = new ArrayList<>(unsettledTransfers.size());
+        for (JournalRecord debit : unsettledTransfers.values()) {
+            log.warn("Refunding transfer interrupted by restart {}", debit);
+            refunds.add(JournalRecord.transferRefund(debit.transferId(), debit.from(), debit.amount()));
+        }
+        for (JournalRecord refund : refunds) {
+            accept(-1, refund);
+            journal.append(refund).join();
+        }
+    }
+
+    public Collection<JournalRecord> unsettledTransfers() {
+        return unsettledTransfers.values();
+    }
+
+    public long replayed() {
+        return replayed;
+    }
+
+    public long lastAccountId() {
+        return lastAccountId;
+    }
+
+    public long lastTransferId() {
+        return lastTransferId;
+    }
+
+    private void credit(long id, long amount) {
+        Account account = state.findAccount(id).orElse(null);
+        if (account == null) {
+            log.warn("Journal credits {} to absent account {}, skipped", amount, id);
+            return;
+        }
+        account.recharge(amount);
+    }
+
+    private void debit(long id, long amount) {
+        Account account = state.findAccount(id).orElse(null);
+        if (account == null) {
+            log.warn("Journal debits {} from absent account {}, skipped", amount, id);
+            return;
+        }
+        account.withdraw(amount);
+    }
+}
@@ -0,0 +1,146 @@
+package ru.ovchinnikov.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Fixed size memory mapped journal file. Records are laid out as {@code [int length][int crc32][payload]},
+ * a zero length marks the end of written data. The segment is named after the LSN of its first byte,
+ * where LSN is the logical offset of a record in the whole journal.
+ */
+// @NotThreadSafe
+class JournalSegment implements Closeable {
+    static final String SUFFIX = ".journal";
+    static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    private final Path path;
+    private final long baseLsn;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final CRC32 crc = new CRC32();
+
+    private JournalSegment(Path path, long baseLsn, FileChannel channel, MappedByteBuffer buffer) {
+        this.path = path;
+        this.baseLsn = baseLsn;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    static JournalSegment create(Path directory, long baseLsn, int size) throws IOException {
+        Path path = directory.resolve(String.format("%020d%s", baseLsn, SUFFIX));
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new JournalSegment(path, baseLsn, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    // reopens the tail segment for appending after its last valid record, wiping whatever a crash left behind
+    static JournalSegment openForAppend(Path path, int position) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        for (int i = position; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) 0);
+        }
+        buffer.position(position);
+        return new JournalSegment(path, baseLsnOf(path), channel, buffer);
+    }
+
+    static List<Path> list(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    static long baseLsnOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    // returns the position after the last intact record, or -(position + 1) if scanning stopped at a torn record
+    static int scan(Path path, long fromLsn, long toLsn, JournalReader.Handler handler) throws IOException {
+        long baseLsn = baseLsnOf(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32 crc = new CRC32();
+            int position = 0;
+            while (buffer.capacity() - position >= HEADER_SIZE && baseLsn + position < toLsn) {
+                int length = buffer.getInt(position);
+                if (length == 0) {
+                    return position;
+                }
+                if (length < 0 || length > buffer.capacity() - position - HEADER_SIZE) {
+                    return -position - 1;
+                }
+                crc.reset();
+                crc.update(slice(buffer, position + HEADER_SIZE, length));
+                if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES)) {
+                    return -position - 1;
+                }
+                long lsn = baseLsn + position;
+                if (lsn >= fromLsn) {
+                    handler.accept(lsn, JournalRecord.readFrom(slice(buffer, position + HEADER_SIZE, length)));
+                }
+                position += HEADER_SIZE + length;
+            }
+            return position;
+        }
+    }
+
+    boolean append(JournalRecord record, byte[] encodedDescription) {
+        int length = JournalRecord.FIXED_SIZE + encodedDescription.length;
+        int position = buffer.position();
+        if (buffer.remaining() < HEADER_SIZE + length) {
+            return false;
+        }
+        buffer.position(position + HEADER_SIZE);
+        record.writeTo(buffer, encodedDescription);
+        crc.reset();
+        crc.update(slice(buffer, position + HEADER_SIZE, length));
+        buffer.putInt(position + Integer.BYTES, (int) crc.getValue());
+        buffer.putInt(position, length);
+        return true;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    long baseLsn() {
+        return baseLsn;
+    }
+
+    long endLsn() {
+        return baseLsn + buffer.position();
+    }
+
+    long limitLsn() {
+        return baseLsn + buffer.capacity();
+    }
+
+    Path path() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(position + length).position(position);
+        return slice;
+    }
+}
@@ -0,0 +1,53 @@
+package ru.ovchinnikov.journal;
+
+import ru.ovchinnikov.model.Account;
+import ru.ovchinnikov.model.Transaction;
+import ru.ovchinnikov.model.TransactionKind;
+import ru.ovchinnikov.reactor.Reactor;
+import ru.ovchinnikov.reactor.Shard;
+
+import java.util.Optional;
+
+// what journal replay and snapshot loading rebuild
+public interface LedgerState {
+    Optional<Account> findAccount(long id);
+
+    void storeAccount(Account account);
+
+    void removeAccount(long id);
+
+    // stores the transaction into history of both its accounts
+    void storeTransaction(Transaction transaction, TransactionKind kind);
+
+    // storages of the reactor accessed directly, only valid before the reactor starts serving requests
+    static LedgerState of(Reactor reactor) {
+        return new LedgerState() {
+            @Override
+            public Optional<Account> findAccount(long id) {
+                return reactor.shardFor(id).accountStorage().findAccountFor(id);
+            }
+
+            @Override
+            public void storeAccount(Account account) {
+                reactor.shardFor(account.id()).accountStorage().store(account);
+            }
+
+            @Override
+            public void removeAccount(long id) {
+                reactor.shardFor(id).accountStorage().remove(id);
+            }
+
+            @Override
+            public void storeTransaction(Transaction transaction, TransactionKind kind) {
+                Shard fromShard = reactor.shardFor(transaction.from());
+                Shard toShard = reactor.shardFor(transaction.to());
+                if (fromShard == toShard) {
+                    fromShard.transactionStorage().store(transaction, kind);
+                } else {
+                    fromShard.transactionStorage().store(transaction.from(), transaction);
+                    toShard.transactionStorage().store(transaction.to(), transaction);
+                }
+            }
+        };
+    }
+}
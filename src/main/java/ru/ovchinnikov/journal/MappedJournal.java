@@ -0,0 +1,284 @@
+package ru.ovchinnikov.journal;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Journal written to memory mapped segments by a single writer thread with group commit: the writer takes
+ * whatever has been appended since the previous batch (waiting up to the configured linger for more),
+ * writes it and forces the segment once for the whole batch.
+ * <p>
+ * Appending never waits: shard threads append and must not stop for the disk. The queue is unbounded and
+ * its capacity is a threshold instead, past which the journal {@link #isBackedUp() is backed up} and new
+ * mutations are turned away before they run.
+ * <p>
+ * Failing to write or force records is fatal: the journal fails everything appended then and later with
+ * {@link JournalFailedException}, and the writer stops.
+ */
+// @ThreadSafe
+public class MappedJournal implements Journal {
+    private static final Logger log = LogManager.getLogger(MappedJournal.class);
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final JournalConfig config;
+    private final BlockingQueue<Append> queue = new LinkedBlockingQueue<>();
+    // appended and not yet written
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong transferSequence;
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile JournalFailedException failure;
+    // everything before it is written into segments and forced to disk, so survives a crash of the OS
+    private volatile long forcedLsn;
+    // @ThreadConfined("journal-writer")
+    private JournalSegment segment;
+    // @ThreadConfined("journal-writer")
+    private boolean dirty;
+    // @ThreadConfined("journal-writer")
+    private long lastForceNanos = System.nanoTime();
+
+    private MappedJournal(JournalConfig config, JournalSegment segment, long lastTransferId) {
+        this.config = config;
+        this.segment = segment;
+        this.forcedLsn = segment.endLsn();
+        this.transferSequence = new AtomicLong(lastTransferId);
+        this.writer = new Thread(this::writeLoop, "journal-writer");
+    }
+
+    public static MappedJournal open(JournalConfig config, JournalReader.Handler replay) throws IOException {
+        return open(config, 0, 0, replay);
+    }
+
+    /**
+     * Replays records of the journal found in the configured directory starting with {@code fromLsn}
+     * through the handler and opens the journal for appending.
+     *
+     * @param fromLsn        LSN covered by the snapshot the state was restored from, 0 if none
+     * @param lastTransferId last transfer id known from the snapshot
+     */
+    public static MappedJournal open(JournalConfig config, long fromLsn, long lastTransferId,
+                                     JournalReader.Handler replay) throws IOException {
+        Path directory = config.directory();
+        Files.createDirectories(directory);
+        long[] lastReplayedTransferId = {lastTransferId};
+        long endLsn = JournalReader.read(directory, fromLsn, Long.MAX_VALUE, (lsn, record) -> {
+            lastReplayedTransferId[0] = Math.max(lastReplayedTransferId[0], record.transferId());
+            replay.accept(lsn, record);
+        });
+        List<Path> segments = JournalSegment.list(directory);
+        JournalSegment tail;
+        if (segments.isEmpty()) {
+            // never number records below what the snapshot already covers
+            tail = JournalSegment.create(directory, fromLsn, config.segmentSize());
+        } else {
+            Path last = segments.get(segments.size() - 1);
+            if (endLsn < fromLsn) {
+                // the tail lost records the snapshot covers, appending to it would number new records below
+                // the snapshot and recovery would skip them
+                log.warn("Journal ends at {} below snapshot {}, starting a new segment there", endLsn, fromLsn);
+                tail = JournalSegment.create(directory, fromLsn, config.segmentSize());
+            } else {
+                tail = JournalSegment.openForAppend(last, (int) (endLsn - JournalSegment.baseLsnOf(last)));
+            }
+        }
+        log.info("Journal opened at {} with {}", endLsn, config);
+        MappedJournal journal = new MappedJournal(config, tail, lastReplayedTransferId[0]);
+        journal.writer.start();
+        return journal;
+    }
+
+    @Override
+    public CompletableFuture<Void> append(JournalRecord record) {
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        if (failure != null) {
+            durable.completeExceptionally(failure);
+            return durable;
+        }
+        if (closed) {
+            durable.completeExceptionally(new IllegalStateException("Journal is closed"));
+            return durable;
+        }
+        pending.incrementAndGet();
+        queue.add(new Append(record, durable));
+        // the writer fails what is left in the queue when it stops, as does close() once it is gone; if
+        // either already has, this append came too late for them
+        if (failure != null) {
+            failLeftovers(failure);
+        } else if (closed && !writer.isAlive()) {
+            failLeftovers(new IllegalStateException("Journal is closed"));
+        }
+        return durable;
+    }
+
+    @Override
+    public boolean isBackedUp() {
+        return pending.get() >= config.queueCapacity();
+    }
+
+    @Override
+    public JournalFailedException failure() {
+        return failure;
+    }
+
+    @Override
+    public long nextTransferId() {
+        return transferSequence.incrementAndGet();
+    }
+
+    // a snapshot must not cover more than this, or a crash could leave the journal ending below it
+    public long forcedLsn() {
+        return forcedLsn;
+    }
+
+    public Path directory() {
+        return config.directory();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        JournalFailedException failure = this.failure;
+        failLeftovers(failure != null ? failure : new IllegalStateException("Journal is closed"));
+    }
+
+    private void failLeftovers(Throwable error) {
+        List<Append> leftovers = new ArrayList<>();
+        queue.drainTo(leftovers);
+        pending.addAndGet(-leftovers.size());
+        fail(leftovers, error);
+    }
+
+    private void writeLoop() {
+        List<Append> batch = new ArrayList<>(config.maxBatch());
+        long pollNanos = config.durability() == JournalConfig.Durability.ASYNC
+                ? Math.min(config.flushIntervalNanos(), IDLE_POLL_NANOS)
+                : IDLE_POLL_NANOS;
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Append first = queue.poll(pollNanos, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    gather(batch);
+                    writeBatch(batch);
+                    batch.clear();
+                }
+                forceIfDue();
+            }
+        } catch (InterruptedException e) {
+            log.warn("Journal writer interrupted", e);
+            fail(batch, e);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write or force the journal, refusing mutations from now on", e);
+            failure = new JournalFailedException(e);
+            fail(batch, failure);
+            pending.addAndGet(-batch.size());
+            failLeftovers(failure);
+        } finally {
+            closeSegment();
+        }
+    }
+
+    private void gather(List<Append> batch) throws InterruptedException {
+        int maxBatch = config.maxBatch();
+        queue.drainTo(batch, maxBatch - batch.size());
+        long deadline = System.nanoTime() + config.lingerNanos();
+        while (batch.size() < maxBatch) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) {
+                return;
+            }
+            Append next = queue.poll(left, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            queue.drainTo(batch, maxBatch - batch.size());
+        }
+    }
+
+    // a failure leaves the records of the batch written so far in the segment, so it stops the journal
+    private void writeBatch(List<Append> batch) throws IOException {
+        for (Append append : batch) {
+            write(append.record);
+        }
+        dirty = true;
+        if (config.durability() == JournalConfig.Durability.SYNC) {
+            force();
+        }
+        // no longer pending by the time its append completes
+        pending.addAndGet(-batch.size());
+        for (Append append : batch) {
+            append.durable.complete(null);
+        }
+    }
+
+    private void write(JournalRecord record) throws IOException {
+        byte[] description = record.encodedDescription();
+        if (segment.append(record, description)) {
+            return;
+        }
+        JournalSegment next = JournalSegment.create(config.directory(), segment.limitLsn(), config.segmentSize());
+        segment.force();
+        segment.close();
+        segment = next;
+        if (!segment.append(record, description)) {
+            throw new IOException("Record doesn't fit into an empty segment: " + record);
+        }
+    }
+
+    private void forceIfDue() {
+        if (dirty && System.nanoTime() - lastForceNanos >= config.flushIntervalNanos()) {
+            force();
+        }
+    }
+
+    // earlier segments were forced when they were filled
+    private void force() {
+        segment.force();
+        forcedLsn = segment.endLsn();
+        dirty = false;
+        lastForceNanos = System.nanoTime();
+    }
+
+    private void closeSegment() {
+        try {
+            segment.force();
+            segment.close();
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to close journal segment {}", segment.path(), e);
+        }
+    }
+
+    private static void fail(List<Append> appends, Throwable error) {
+        for (Append append : appends) {
+            append.durable.completeExceptionally(error);
+        }
+    }
+
+    private static class Append {
+        private final JournalRecord record;
+        private final CompletableFuture<Void> durable;
+
+        private Append(JournalRecord record, CompletableFuture<Void> durable) {
+            this.record = record;
+            this.durable = durable;
+        }
+    }
+}
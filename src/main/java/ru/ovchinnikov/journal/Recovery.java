@@ -0,0 +1,43 @@
+package ru.ovchinnikov.journal;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ru.ovchinnikov.model.Account;
+import ru.ovchinnikov.reactor.Reactor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+public final class Recovery {
+    private static final Logger log = LogManager.getLogger(Recovery.class);
+
+    private Recovery() {
+    }
+
+    /**
+     * Restores storages of the reactor from the latest snapshot and the journal written after it,
+     * then opens the journal for appending. Must be called before the reactor serves any request.
+     */
+    public static MappedJournal recover(JournalConfig config, Reactor reactor) throws IOException {
+        long started = System.nanoTime();
+        Path directory = config.directory();
+        Files.createDirectories(directory);
+        JournalReplayer replayer = new JournalReplayer(reactor);
+        long snapshotLsn = 0;
+        Optional<Path> snapshot = SnapshotFile.latest(directory);
+        if (snapshot.isPresent()) {
+            SnapshotFile.Trailer trailer = SnapshotFile.read(snapshot.get(), replayer);
+            replayer.restoreSequences(trailer.lastAccountId, trailer.lastTransferId);
+            snapshotLsn = trailer.lsn;
+        }
+        MappedJournal journal = MappedJournal.open(config, snapshotLsn, replayer.lastTransferId(), replayer);
+        Account.advanceIdSequence(replayer.lastAccountId());
+        replayer.refundUnsettledTransfers(journal);
+        log.info("Recovered from snapshot {} and {} journal records in {} ms", snapshot.orElse(null),
+                replayer.replayed(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return journal;
+    }
+}
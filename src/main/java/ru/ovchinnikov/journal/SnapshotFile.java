@@ -0,0 +1,223 @@
+package ru.ovchinnikov.journal;
+
+import ru.ovchinnikov.model.Account;
+import ru.ovchinnikov.model.Transaction;
+import ru.ovchinnikov.model.TransactionKind;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary image of the ledger covering every journal record below its LSN, named after that LSN.
+ * <pre>
+ * header       magic, version, lsn
+ * transactions (kind, from, to, amount, description, timestamp)* 0   -- in journal order
+ * accounts     count, (id, balance)*
+ * unsettled    count, (transferId, from, to, amount, timestamp, description)*
+ * trailer      lastAccountId, lastTransferId, crc32 of everything before it
+ * </pre>
+ * Transactions go first so that a new snapshot can stream them from the previous one without holding
+ * history in memory. The kind of a transaction is its {@link TransactionKind} ordinal plus one, so that
+ * 0 can end them.
+ */
+final class SnapshotFile {
+    static final String SUFFIX = ".snapshot";
+    private static final int MAGIC = 0x52564C53;
+    private static final int VERSION = 1;
+    private static final TransactionKind[] KINDS = TransactionKind.values();
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    interface Visitor {
+        void restoreTransaction(Transaction transaction, TransactionKind kind);
+
+        void restoreAccount(long id, long balance);
+
+        void restoreUnsettledTransfer(JournalRecord debit);
+    }
+
+    static class Trailer {
+        final long lsn;
+        final long lastAccountId;
+        final long lastTransferId;
+
+        private Trailer(long lsn, long lastAccountId, long lastTransferId) {
+            this.lsn = lsn;
+            this.lastAccountId = lastAccountId;
+            this.lastTransferId = lastTransferId;
+        }
+    }
+
+    private SnapshotFile() {
+    }
+
+    static List<Path> list(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    static Optional<Path> latest(Path directory) throws IOException {
+        List<Path> snapshots = list(directory);
+        return snapshots.isEmpty() ? Optional.empty() : Optional.of(snapshots.get(snapshots.size() - 1));
+    }
+
+    static long lsnOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    static Trailer read(Path path, Visitor visitor) throws IOException {
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE)) {
+            CheckedInputStream checked = new CheckedInputStream(file, new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            int version = in.readInt() == MAGIC ? in.readInt() : -1;
+            if (version != VERSION) {
+                throw new IOException("Not a snapshot of known version " + path);
+            }
+            long lsn = in.readLong();
+            for (int kind = in.readByte(); kind != 0; kind = in.readByte()) {
+                if (kind < 0 || kind > KINDS.length) {
+                    throw new IOException("Unknown transaction kind " + kind + " in " + path);
+                }
+                Transaction transaction = Transaction.create(in.readLong(), in.readLong(), in.readLong(),
+                        readString(in), in.readLong());
+                visitor.restoreTransaction(transaction, KINDS[kind - 1]);
+            }
+            for (long count = in.readLong(); count > 0; count--) {
+                visitor.restoreAccount(in.readLong(), in.readLong());
+            }
+            for (long count = in.readLong(); count > 0; count--) {
+                visitor.restoreUnsettledTransfer(JournalRecord.transferDebit(in.readLong(), in.readLong(),
+                        in.readLong(), in.readLong(), readString(in), in.readLong()));
+            }
+            Trailer trailer = new Trailer(lsn, in.readLong(), in.readLong());
+            long crc = checked.getChecksum().getValue();
+            if (crc != new DataInputStream(file).readLong()) {
+                throw new IOException("Snapshot checksum mismatch " + path);
+            }
+            return trailer;
+        }
+    }
+
+    // a rename is durable only once the directory holding it is synced
+    private static void syncDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // @NotThreadSafe
+    static class Writer implements Closeable {
+        private final Path temporary;
+        private final Path target;
+        private final FileOutputStream file;
+        private final OutputStream buffered;
+        private final CheckedOutputStream checked;
+        private final DataOutputStream out;
+        private boolean committed;
+
+        private Writer(Path directory, long lsn) throws IOException {
+            String name = String.format("%020d%s", lsn, SUFFIX);
+            this.target = directory.resolve(name);
+            this.temporary = directory.resolve(name + ".tmp");
+            this.file = new FileOutputStream(temporary.toFile());
+            this.buffered = new BufferedOutputStream(file, BUFFER_SIZE);
+            this.checked = new CheckedOutputStream(buffered, new CRC32());
+            this.out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(lsn);
+        }
+
+        static Writer create(Path directory, long lsn) throws IOException {
+            return new Writer(directory, lsn);
+        }
+
+        void transaction(Transaction transaction, TransactionKind kind) throws IOException {
+            out.writeByte(kind.ordinal() + 1);
+            out.writeLong(transaction.from());
+            out.writeLong(transaction.to());
+            out.writeLong(transaction.amountUnits());
+            writeString(transaction.description());
+            out.writeLong(transaction.timestamp());
+        }
+
+        void endTransactions() throws IOException {
+            out.writeByte(0);
+        }
+
+        void accounts(int count, Iterable<Account> accounts) throws IOException {
+            out.writeLong(count);
+            for (Account account : accounts) {
+                out.writeLong(account.id());
+                out.writeLong(account.balanceUnits());
+            }
+        }
+
+        void unsettledTransfers(Collection<JournalRecord> debits) throws IOException {
+            out.writeLong(debits.size());
+            for (JournalRecord debit : debits) {
+                out.writeLong(debit.transferId());
+                out.writeLong(debit.from());
+                out.writeLong(debit.to());
+                out.writeLong(debit.amount());
+                writeString(debit.description());
+                out.writeLong(debit.timestamp());
+            }
+        }
+
+        // makes the snapshot visible, it either appears complete and synced to disk or doesn't appear at all
+        void commit(long lastAccountId, long lastTransferId) throws IOException {
+            out.writeLong(lastAccountId);
+            out.writeLong(lastTransferId);
+            out.flush();
+            new DataOutputStream(buffered).writeLong(checked.getChecksum().getValue());
+            buffered.flush();
+            file.getFD().sync();
+            file.close();
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+            syncDirectory(target.getParent());
+        }
+
+        Path path() {
+            return target;
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.close();
+            if (!committed) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+}
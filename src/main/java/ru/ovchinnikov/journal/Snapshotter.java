@@ -0,0 +1,169 @@
+package ru.ovchinnikov.journal;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ru.ovchinnikov.model.Account;
+import ru.ovchinnikov.model.Transaction;
+import ru.ovchinnikov.model.TransactionKind;
+import ru.ovchinnikov.storage.LongObjectHashMap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically folds the part of the journal forced to disk into a new snapshot. The reactor is never involved:
+ * the snapshot is built on a background thread by replaying journal records written since the previous
+ * snapshot on top of it, so it represents exactly the state after the record preceding its LSN.
+ * <p>
+ * One snapshot generation back is kept together with the journal needed to replay it, everything older
+ * is removed.
+ * <p>
+ * Snapshots are not incremental: each one copies the whole transaction history of the previous one before
+ * the records added since, so its I/O, and the replay on start-up, grow with the total history rather than
+ * with what changed. The interval should grow with the history accordingly.
+ */
+// @ThreadSafe
+public class Snapshotter implements AutoCloseable {
+    private static final Logger log = LogManager.getLogger(Snapshotter.class);
+    private final MappedJournal journal;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "snapshotter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public Snapshotter(MappedJournal journal) {
+        this.journal = journal;
+    }
+
+    public void start(long intervalSec) {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                takeSnapshot();
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to take snapshot", e);
+            }
+        }, intervalSec, intervalSec, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return false if nothing was journaled since the latest snapshot
+     */
+    public synchronized boolean takeSnapshot() throws IOException {
+        Path directory = journal.directory();
+        long toLsn = journal.forcedLsn();
+        Optional<Path> previous = SnapshotFile.latest(directory);
+        long fromLsn = previous.map(SnapshotFile::lsnOf).orElse(0L);
+        if (toLsn <= fromLsn) {
+            return false;
+        }
+        long started = System.nanoTime();
+        try (SnapshotFile.Writer writer = SnapshotFile.Writer.create(directory, toLsn)) {
+            ShadowLedger shadow = new ShadowLedger(writer);
+            JournalReplayer replayer = new JournalReplayer(shadow);
+            if (previous.isPresent()) {
+                SnapshotFile.Trailer trailer = SnapshotFile.read(previous.get(), new SnapshotFile.Visitor() {
+                    @Override
+                    public void restoreTransaction(Transaction transaction, TransactionKind kind) {
+                        shadow.storeTransaction(transaction, kind);
+                    }
+
+                    @Override
+                    public void restoreAccount(long id, long balance) {
+                        replayer.restoreAccount(id, balance);
+                    }
+
+                    @Override
+                    public void restoreUnsettledTransfer(JournalRecord debit) {
+                        replayer.restoreUnsettledTransfer(debit);
+                    }
+                });
+                replayer.restoreSequences(trailer.lastAccountId, trailer.lastTransferId);
+            }
+            JournalReader.read(directory, fromLsn, toLsn, replayer);
+            writer.endTransactions();
+            writer.accounts(shadow.accounts.size(), shadow.accounts());
+            writer.unsettledTransfers(replayer.unsettledTransfers());
+            writer.commit(replayer.lastAccountId(), replayer.lastTransferId());
+            log.info("Snapshot {} with {} accounts written in {} ms", writer.path(), shadow.accounts.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        removeObsolete(directory, fromLsn);
+        return true;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // drops snapshots before the previous one and journal segments holding only records below it
+    private static void removeObsolete(Path directory, long previousLsn) throws IOException {
+        for (Path snapshot : SnapshotFile.list(directory)) {
+            if (SnapshotFile.lsnOf(snapshot) < previousLsn) {
+                Files.deleteIfExists(snapshot);
+            }
+        }
+        List<Path> segments = JournalSegment.list(directory);
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (JournalSegment.baseLsnOf(segments.get(i + 1)) <= previousLsn) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    // accounts kept in memory, transactions streamed straight into the snapshot being written
+    private static class ShadowLedger implements LedgerState {
+        private final LongObjectHashMap<Account> accounts = new LongObjectHashMap<>();
+        private final SnapshotFile.Writer writer;
+
+        private ShadowLedger(SnapshotFile.Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public Optional<Account> findAccount(long id) {
+            return Optional.ofNullable(accounts.get(id));
+        }
+
+        @Override
+        public void storeAccount(Account account) {
+            accounts.put(account.id(), account);
+        }
+
+        @Override
+        public void removeAccount(long id) {
+            accounts.remove(id);
+        }
+
+        @Override
+        public void storeTransaction(Transaction transaction, TransactionKind kind) {
+            try {
+                writer.transaction(transaction, kind);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private List<Account> accounts() {
+            List<Account> values = new ArrayList<>(accounts.size());
+            accounts.forEachValue(values::add);
+            return values;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package ru.ovchinnikov.json;
+
+import com.fasterxml.jackson.core.SerializableString;
+import ru.ovchinnikov.model.DescriptionDictionary;
+import ru.ovchinnikov.model.Money;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered writer of JSON tokens straight into bytes: numbers are written digit by digit and amounts
+ * from their minor units, so neither goes through a {@code String} or a {@code BigDecimal}.
+ */
+// @NotThreadSafe
+final class JsonOutput {
+    private static final int BUFFER_SIZE = 8 * 1024;
+    // room for any number, amount or escaped char
+    private static final int MAX_TOKEN_SIZE = 32;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private final OutputStream output;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+
+    JsonOutput(OutputStream output) {
+        this.output = output;
+    }
+
+    JsonOutput raw(char ascii) throws IOException {
+        reserve(1);
+        buffer[position++] = (byte) ascii;
+        return this;
+    }
+
+    // for pre-encoded field names and the like
+    JsonOutput raw(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length - position) {
+            flushBuffer();
+            if (bytes.length > buffer.length) {
+                output.write(bytes);
+                return this;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+        return this;
+    }
+
+    JsonOutput number(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            return raw(MIN_LONG);
+        }
+        reserve(MAX_TOKEN_SIZE);
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        position += digits(value, 0);
+        return this;
+    }
+
+    // the same digits Money.toDecimal gives: no trailing zeros after the point, no point for whole amounts
+    JsonOutput amount(long units) throws IOException {
+        if (Money.UNITS_PER_WHOLE == 1) {
+            return number(units);
+        }
+        reserve(MAX_TOKEN_SIZE);
+        long whole = units / Money.UNITS_PER_WHOLE;
+        long fraction = Math.abs(units % Money.UNITS_PER_WHOLE);
+        if (units < 0) {
+            buffer[position++] = '-';
+        }
+        position += digits(Math.abs(whole), 0);
+        if (fraction != 0) {
+            int width = Money.SCALE;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                width--;
+            }
+            buffer[position++] = '.';
+            position += digits(fraction, width);
+        }
+        return this;
+    }
+
+    /**
+     * Writes the string quoted, taking descriptions known to the {@link DescriptionDictionary} in their
+     * pre-encoded form, or {@code null} for no string.
+     */
+    JsonOutput string(String value) throws IOException {
+        if (value == null) {
+            return raw(NULL);
+        }
+        SerializableString encoded = DescriptionDictionary.shared().json(value);
+        raw('"');
+        if (encoded != null) {
+            raw(encoded.asQuotedUTF8());
+        } else {
+            escape(value);
+        }
+        return raw('"');
+    }
+
+    void flush() throws IOException {
+        flushBuffer();
+        output.flush();
+    }
+
+    private void escape(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            reserve(MAX_TOKEN_SIZE);
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                buffer[position++] = '\\';
+                buffer[position++] = (byte) c;
+            } else if (c < 0x20) {
+                buffer[position++] = '\\';
+                buffer[position++] = 'u';
+                buffer[position++] = '0';
+                buffer[position++] = '0';
+                buffer[position++] = HEX[c >> 4];
+                buffer[position++] = HEX[c & 0xF];
+            } else if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | c >> 6);
+                buffer[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                // unpaired, as String.getBytes would
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | c >> 12);
+                buffer[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+    }
+
+    // writes the non-negative value at the position, zero padded to width, returns the number of digits
+    private int digits(long value, int width) {
+        int count = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            count++;
+        }
+        count = Math.max(count, width);
+        for (int i = position + count - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return count;
+    }
+
+    private void reserve(int size) throws IOException {
+        if (buffer.length - position < size) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        output.write(buffer, 0, position);
+        position = 0;
+    }
+}
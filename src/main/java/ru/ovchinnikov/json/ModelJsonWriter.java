@@ -0,0 +1,111 @@
+package ru.ovchinnikov.json;
+
+import ru.ovchinnikov.model.Account;
+import ru.ovchinnikov.model.Transaction;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Writes accounts and transactions, one or a collection of them, field by field as Jackson would write them
+ * from their JAXB mapping, without looking anything up per object. A collection is only recognised by its
+ * generic type, so it has to be returned wrapped by {@link #accounts} or {@link #transactions}; anything else
+ * is left to Jackson.
+ */
+// @ThreadSafe
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class ModelJsonWriter implements MessageBodyWriter<Object> {
+    private static final Type ACCOUNTS = new GenericType<List<Account>>() {
+    }.getType();
+    private static final Type TRANSACTIONS = new GenericType<List<Transaction>>() {
+    }.getType();
+    private static final byte[] ID = field("{", "id");
+    private static final byte[] BALANCE = field(",", "balance");
+    private static final byte[] FROM = field("{", "from");
+    private static final byte[] TO = field(",", "to");
+    private static final byte[] AMOUNT = field(",", "amount");
+    private static final byte[] DESCRIPTION = field(",", "description");
+    private static final byte[] TIMESTAMP = field(",", "timestamp");
+
+    public static GenericEntity<List<Account>> accounts(List<Account> accounts) {
+        return new GenericEntity<>(accounts, ACCOUNTS);
+    }
+
+    public static GenericEntity<List<Transaction>> transactions(List<Transaction> transactions) {
+        return new GenericEntity<>(transactions, TRANSACTIONS);
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        if (type == Account.class || type == Transaction.class) {
+            return true;
+        }
+        if (!Collection.class.isAssignableFrom(type) || !(genericType instanceof ParameterizedType)) {
+            return false;
+        }
+        Type[] elementTypes = ((ParameterizedType) genericType).getActualTypeArguments();
+        return elementTypes.length == 1 && (elementTypes[0] == Account.class || elementTypes[0] == Transaction.class);
+    }
+
+    @Override
+    public long getSize(Object value, Class<?> type, Type genericType, Annotation[] annotations,
+                        MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(Object value, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        JsonOutput output = new JsonOutput(entityStream);
+        if (value instanceof Collection) {
+            output.raw('[');
+            boolean first = true;
+            for (Object element : (Collection<?>) value) {
+                if (!first) {
+                    output.raw(',');
+                }
+                first = false;
+                write(element, output);
+            }
+            output.raw(']');
+        } else {
+            write(value, output);
+        }
+        output.flush();
+    }
+
+    private static void write(Object value, JsonOutput output) throws IOException {
+        if (value instanceof Account) {
+            Account account = (Account) value;
+            output.raw(ID).number(account.id())
+                    .raw(BALANCE).amount(account.balanceUnits())
+                    .raw('}');
+        } else {
+            Transaction transaction = (Transaction) value;
+            output.raw(FROM).number(transaction.from())
+                    .raw(TO).number(transaction.to())
+                    .raw(AMOUNT).amount(transaction.amountUnits())
+                    .raw(DESCRIPTION).string(transaction.description())
+                    .raw(TIMESTAMP).number(transaction.timestamp())
+                    .raw('}');
+        }
+    }
+
+    private static byte[] field(String before, String name) {
+        return (before + '"' + name + "\":").getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,127 @@
+package ru.ovchinnikov.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import ru.ovchinnikov.model.Money;
+import ru.ovchinnikov.model.Transfer;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a transfer batch token by token with Jackson's streaming parser instead of binding beans. Whole
+ * amounts are taken as {@code long}s, only fractional ones go through {@link BigDecimal}. As with data
+ * binding, a malformed body, an unknown field or an amount not representable in the ledger currency is
+ * answered with 400.
+ */
+// @ThreadSafe
+@Provider
+@Consumes(MediaType.APPLICATION_JSON)
+public class TransferListReader implements MessageBodyReader<List<Transfer>> {
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        if (type != List.class || !(genericType instanceof ParameterizedType)) {
+            return false;
+        }
+        Type[] elementTypes = ((ParameterizedType) genericType).getActualTypeArguments();
+        return elementTypes.length == 1 && elementTypes[0] == Transfer.class;
+    }
+
+    @Override
+    public List<Transfer> readFrom(Class<List<Transfer>> type, Type genericType, Annotation[] annotations,
+                                   MediaType mediaType, MultivaluedMap<String, String> httpHeaders,
+                                   InputStream entityStream) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(entityStream)) {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            expect(parser, token, JsonToken.START_ARRAY);
+            List<Transfer> transfers = new ArrayList<>();
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                expect(parser, token, JsonToken.START_OBJECT);
+                transfers.add(readTransfer(parser));
+            }
+            return transfers;
+        } catch (JsonProcessingException | IllegalArgumentException | ArithmeticException e) {
+            throw new BadRequestException("Malformed transfers: " + e.getMessage(), e);
+        }
+    }
+
+    // the defaults are those of the Transfer bound by Jackson
+    private static Transfer readTransfer(JsonParser parser) throws IOException {
+        long from = -1;
+        long to = -1;
+        long amount = 0;
+        String description = "";
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_OBJECT) {
+            expect(parser, token, JsonToken.FIELD_NAME);
+            String field = parser.getCurrentName();
+            token = parser.nextToken();
+            switch (field) {
+                case "from":
+                    from = id(parser, token);
+                    break;
+                case "to":
+                    to = id(parser, token);
+                    break;
+                case "amount":
+                    amount = amount(parser, token);
+                    break;
+                case "description":
+                    description = parser.getValueAsString();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown field " + field);
+            }
+        }
+        return Transfer.create(from, to, amount, description);
+    }
+
+    private static long id(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            return Long.parseLong(parser.getText().trim());
+        }
+        throw new IllegalArgumentException("Expected account id, got " + token);
+    }
+
+    private static long amount(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() != JsonParser.NumberType.BIG_INTEGER) {
+            return Math.multiplyExact(parser.getLongValue(), Money.UNITS_PER_WHOLE);
+        }
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return Money.toUnits(parser.getDecimalValue());
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            return Money.toUnits(new BigDecimal(parser.getText().trim()));
+        }
+        throw new IllegalArgumentException("Expected amount, got " + token);
+    }
+
+    private static void expect(JsonParser parser, JsonToken token, JsonToken expected) {
+        if (token != expected) {
+            throw new IllegalArgumentException("Expected " + expected + ", got " + token + " at "
+                    + parser.getCurrentLocation());
+        }
+    }
+}
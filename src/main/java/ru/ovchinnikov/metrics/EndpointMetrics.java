@@ -0,0 +1,37 @@
+package ru.ovchinnikov.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// @ThreadSafe
+public final class EndpointMetrics {
+    private static final int MAX_STATUS = 599;
+    private final String endpoint;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    // indexed by status code
+    private final AtomicLongArray responses = new AtomicLongArray(MAX_STATUS + 1);
+
+    EndpointMetrics(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public void record(int status, long nanos) {
+        responses.incrementAndGet(Math.min(Math.max(status, 0), MAX_STATUS));
+        latency.record(nanos);
+    }
+
+    String endpoint() {
+        return endpoint;
+    }
+
+    LatencyHistogram latency() {
+        return latency;
+    }
+
+    long responses(int status) {
+        return responses.get(status);
+    }
+
+    int maxStatus() {
+        return MAX_STATUS;
+    }
+}
@@ -0,0 +1,59 @@
+package ru.ovchinnikov.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of durations in the manner of HdrHistogram: every power of two is split into
+ * {@link #SUB_BUCKETS} equal buckets, so any value is counted within about 3% of its magnitude. Counted in
+ * units of 1024 ns, from about a microsecond up to about 30 seconds; longer durations go to the last
+ * bucket, which is unbounded. Recording is two atomic increments and never allocates.
+ */
+// @ThreadSafe
+public final class LatencyHistogram {
+    private static final int UNIT_SHIFT = 10;
+    private static final int SUB_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 24;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS + SUB_BUCKETS;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong sumNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        long duration = Math.max(nanos, 0);
+        counts.incrementAndGet(index(duration));
+        sumNanos.addAndGet(duration);
+    }
+
+    static int index(long nanos) {
+        long units = nanos >>> UNIT_SHIFT;
+        if (units < SUB_BUCKETS) {
+            return (int) units;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(units);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (units >>> exponent - SUB_BITS) & SUB_BUCKETS - 1;
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    // exclusive upper bound of the bucket, in nanos
+    static long upperBoundNanos(int index) {
+        if (index < SUB_BUCKETS) {
+            return (long) (index + 1) << UNIT_SHIFT;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        long lowerUnits = (SUB_BUCKETS + subBucket) << exponent - SUB_BITS;
+        return lowerUnits + (1L << exponent - SUB_BITS) << UNIT_SHIFT;
+    }
+
+    long count(int index) {
+        return counts.get(index);
+    }
+
+    long sumNanos() {
+        return sumNanos.get();
+    }
+}
@@ -0,0 +1,157 @@
+package ru.ovchinnikov.metrics;
+
+import ru.ovchinnikov.reactor.CommandType;
+import ru.ovchinnikov.reactor.Reactor;
+import ru.ovchinnikov.reactor.Shard;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process wide registry of the service metrics, written out in the Prometheus text format by
+ * {@link #scrape()}. Latency of a command is split into the time it waited in the shard's queue and
+ * the time the shard spent executing it; latency of a request is measured end to end, timeouts included.
+ * Shard utilisation is exposed as a busy time counter, to be taken {@code rate()} of.
+ */
+// @ThreadSafe
+public final class Metrics {
+    private static final double NANOS_PER_SECOND = 1e9;
+    // buckets merged into one for the scrape: four per power of two are enough for dashboards, and each
+    // histogram takes a hundred lines rather than several hundred
+    private static final int EXPORTED_BUCKET_WIDTH = LatencyHistogram.SUB_BUCKETS / 4;
+    private static final String[] BUCKET_BOUNDS = bucketBounds();
+    private static final LatencyHistogram[] COMMAND_QUEUE_WAIT = histograms(CommandType.values().length);
+    private static final LatencyHistogram[] COMMAND_EXECUTION = histograms(CommandType.values().length);
+    private static final AtomicLongArray COMMAND_REJECTED = new AtomicLongArray(CommandType.values().length);
+    private static final AtomicLongArray COMMAND_EXPIRED = new AtomicLongArray(CommandType.values().length);
+    private static final ConcurrentMap<String, EndpointMetrics> ENDPOINTS = new ConcurrentSkipListMap<>();
+    private static volatile Reactor reactor;
+
+    private Metrics() {
+    }
+
+    public static void commandExecuted(CommandType type, long queueWaitNanos, long executionNanos) {
+        COMMAND_QUEUE_WAIT[type.ordinal()].record(queueWaitNanos);
+        COMMAND_EXECUTION[type.ordinal()].record(executionNanos);
+    }
+
+    public static void commandRejected(CommandType type) {
+        COMMAND_REJECTED.incrementAndGet(type.ordinal());
+    }
+
+    public static void commandExpired(CommandType type) {
+        COMMAND_EXPIRED.incrementAndGet(type.ordinal());
+    }
+
+    // kept across restarts of the server, so counters never go back
+    public static EndpointMetrics endpoint(String endpoint) {
+        return ENDPOINTS.computeIfAbsent(endpoint, EndpointMetrics::new);
+    }
+
+    public static void watch(Reactor reactor) {
+        Metrics.reactor = reactor;
+    }
+
+    public static String scrape() {
+        StringBuilder out = new StringBuilder(64 * 1024);
+        header(out, "rvlt_http_requests_total", "counter", "Responses by endpoint and status code.");
+        for (EndpointMetrics endpoint : ENDPOINTS.values()) {
+            for (int status = 0; status <= endpoint.maxStatus(); status++) {
+                long responses = endpoint.responses(status);
+                if (responses != 0) {
+                    sample(out, "rvlt_http_requests_total",
+                            "endpoint=\"" + endpoint.endpoint() + "\",status=\"" + status + "\"", responses);
+                }
+            }
+        }
+        header(out, "rvlt_http_request_duration_seconds", "histogram", "Request latency, end to end.");
+        for (EndpointMetrics endpoint : ENDPOINTS.values()) {
+            histogram(out, "rvlt_http_request_duration_seconds",
+                    "endpoint=\"" + endpoint.endpoint() + "\"", endpoint.latency());
+        }
+        header(out, "rvlt_command_queue_wait_seconds", "histogram",
+                "Time from submission of a command until its shard started it.");
+        for (CommandType type : CommandType.values()) {
+            histogram(out, "rvlt_command_queue_wait_seconds", commandLabel(type), COMMAND_QUEUE_WAIT[type.ordinal()]);
+        }
+        header(out, "rvlt_command_execution_seconds", "histogram", "Time a shard spent executing a command.");
+        for (CommandType type : CommandType.values()) {
+            histogram(out, "rvlt_command_execution_seconds", commandLabel(type), COMMAND_EXECUTION[type.ordinal()]);
+        }
+        header(out, "rvlt_command_rejected_total", "counter",
+                "Commands turned away because their shard's queue was full.");
+        for (CommandType type : CommandType.values()) {
+            sample(out, "rvlt_command_rejected_total", commandLabel(type), COMMAND_REJECTED.get(type.ordinal()));
+        }
+        header(out, "rvlt_command_expired_total", "counter",
+                "Commands dropped unrun because their deadline had passed when their shard got to them.");
+        for (CommandType type : CommandType.values()) {
+            sample(out, "rvlt_command_expired_total", commandLabel(type), COMMAND_EXPIRED.get(type.ordinal()));
+        }
+        Reactor watched = reactor;
+        if (watched != null) {
+            header(out, "rvlt_reactor_queue_depth", "gauge", "Commands submitted to a shard and not yet executed.");
+            for (int i = 0; i < watched.shardCount(); i++) {
+                sample(out, "rvlt_reactor_queue_depth", shardLabel(i), watched.shard(i).queueDepth());
+            }
+            header(out, "rvlt_reactor_busy_seconds_total", "counter", "Time a shard spent executing commands.");
+            for (int i = 0; i < watched.shardCount(); i++) {
+                Shard shard = watched.shard(i);
+                sample(out, "rvlt_reactor_busy_seconds_total", shardLabel(i), shard.busyNanos() / NANOS_PER_SECOND);
+            }
+        }
+        return out.toString();
+    }
+
+    private static void histogram(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        long cumulative = 0;
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            cumulative += histogram.count(i);
+            if (i < BUCKET_BOUNDS.length && BUCKET_BOUNDS[i] != null) {
+                sample(out, name + "_bucket", labels + ",le=\"" + BUCKET_BOUNDS[i] + "\"", cumulative);
+            }
+        }
+        sample(out, name + "_bucket", labels + ",le=\"+Inf\"", cumulative);
+        sample(out, name + "_sum", labels, histogram.sumNanos() / NANOS_PER_SECOND);
+        sample(out, name + "_count", labels, cumulative);
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static String commandLabel(CommandType type) {
+        return "command=\"" + type.name().toLowerCase() + "\"";
+    }
+
+    private static String shardLabel(int index) {
+        return "shard=\"" + index + "\"";
+    }
+
+    // by bucket, null for the buckets merged into the next one; the last bucket is unbounded and goes out as +Inf
+    private static String[] bucketBounds() {
+        String[] bounds = new String[LatencyHistogram.BUCKETS - 1];
+        for (int i = EXPORTED_BUCKET_WIDTH - 1; i < bounds.length; i += EXPORTED_BUCKET_WIDTH) {
+            bounds[i] = Double.toString(LatencyHistogram.upperBoundNanos(i) / NANOS_PER_SECOND);
+        }
+        return bounds;
+    }
+
+    private static LatencyHistogram[] histograms(int count) {
+        LatencyHistogram[] histograms = new LatencyHistogram[count];
+        for (int i = 0; i < count; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+}
@@ -4,68 +4,101 @@ import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 import java.math.BigDecimal;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
+// Mutated in place by the shard owning it, balance is published with release semantics for other readers
 @XmlRootElement
 public class Account {
     private static final AtomicLong ID_SEQUENCE = new AtomicLong();
+    private static final AtomicLongFieldUpdater<Account> BALANCE =
+            AtomicLongFieldUpdater.newUpdater(Account.class, "balance");
     @XmlElement
     private final long id;
-    @XmlElement
-    private final BigDecimal balance;
+    private volatile long balance;
 
     public Account() {
         this.id = -1;
-        this.balance = BigDecimal.ZERO;
     }
 
-    private Account(long id, BigDecimal balance) {
+    private Account(long id, long balance) {
         this.id = id;
         this.balance = balance;
     }
 
-    private Account(long id) {
-        this(id, BigDecimal.ZERO);
+    public static Account create(long id) {
+        return new Account(id, 0);
     }
 
-    public static Account create(long id) {
-        return new Account(id);
+    public static Account create(long id, long balance) {
+        return new Account(id, balance);
     }
 
     public static Account create(long id, BigDecimal balance) {
-        return new Account(id, balance);
+        return new Account(id, Money.toUnits(balance));
     }
 
     public static Account create() {
-        return new Account(ID_SEQUENCE.incrementAndGet());
+        return create(nextId());
+    }
+
+    public static long nextId() {
+        return ID_SEQUENCE.incrementAndGet();
+    }
+
+    /**
+     * Reserves {@code count} consecutive ids.
+     *
+     * @return the first of them
+     */
+    public static long reserveIds(int count) {
+        return ID_SEQUENCE.getAndAdd(count) + 1;
+    }
+
+    // makes sure ids handed out by create() don't collide with ids restored from disk
+    public static void advanceIdSequence(long restoredId) {
+        ID_SEQUENCE.accumulateAndGet(restoredId, Math::max);
     }
 
     public long id() {
         return id;
     }
 
-    public BigDecimal balance() {
+    public long balanceUnits() {
         return balance;
     }
 
-    public Account recharge(BigDecimal amount) {
-        if (amount.compareTo(BigDecimal.ZERO) < 0) {
+    public BigDecimal balance() {
+        return Money.toDecimal(balance);
+    }
+
+    public void recharge(long amount) {
+        if (amount < 0) {
             throw new IllegalArgumentException("Recharging with negative amount! " + amount);
         }
-        return Account.create(this.id, this.balance.add(amount));
+        BALANCE.lazySet(this, Money.add(balance, amount));
     }
 
-    public Account withdraw(BigDecimal amount) {
-        if (amount.compareTo(BigDecimal.ZERO) < 0) {
+    public void withdraw(long amount) {
+        if (amount < 0) {
             throw new IllegalArgumentException("Withdrawing with negative amount! " + amount);
         }
-        return Account.create(this.id, this.balance.subtract(amount));
+        BALANCE.lazySet(this, Money.subtract(balance, amount));
+    }
+
+    @XmlElement(name = "balance")
+    private BigDecimal getBalance() {
+        return balance();
+    }
+
+    private void setBalance(BigDecimal balance) {
+        this.balance = Money.toUnits(balance);
     }
 
     @Override
     public String toString() {
         return "Account{" +
                 "id=" + id +
-                ", balance=" + balance +
+                ", balance=" + balance() +
                 '}';
     }
 
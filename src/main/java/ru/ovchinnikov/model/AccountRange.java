@@ -0,0 +1,47 @@
+package ru.ovchinnikov.model;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+// ids of accounts created at once, both ends inclusive
+@XmlRootElement
+public class AccountRange {
+    @XmlElement
+    private final long first;
+    @XmlElement
+    private final long last;
+
+    public AccountRange() {
+        this.first = -1;
+        this.last = -1;
+    }
+
+    private AccountRange(long first, long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+    public static AccountRange of(long first, long last) {
+        return new AccountRange(first, last);
+    }
+
+    public long first() {
+        return first;
+    }
+
+    public long last() {
+        return last;
+    }
+
+    public long count() {
+        return last - first + 1;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountRange{" +
+                "first=" + first +
+                ", last=" + last +
+                '}';
+    }
+}
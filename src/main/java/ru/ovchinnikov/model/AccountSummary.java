@@ -0,0 +1,174 @@
+package ru.ovchinnikov.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.math.BigDecimal;
+import java.util.List;
+
+// totals of the transactions of an account, the last timestamp and the buckets only when there are any
+@XmlRootElement
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AccountSummary {
+    @XmlElement
+    private final long id;
+    // not final only to be filled in on deserialization
+    private long inflow;
+    private long outflow;
+    @XmlElement
+    private final long count;
+    @XmlElement
+    private final Long lastTimestamp;
+    @XmlElement
+    private final List<Bucket> buckets;
+
+    public AccountSummary() {
+        this.id = -1;
+        this.count = 0;
+        this.lastTimestamp = null;
+        this.buckets = null;
+    }
+
+    private AccountSummary(long id, long inflow, long outflow, long count, Long lastTimestamp, List<Bucket> buckets) {
+        this.id = id;
+        this.inflow = inflow;
+        this.outflow = outflow;
+        this.count = count;
+        this.lastTimestamp = lastTimestamp;
+        this.buckets = buckets;
+    }
+
+    /**
+     * @param lastTimestamp null if the account has no transactions
+     * @param buckets       null unless a rollup was asked for
+     */
+    public static AccountSummary create(long id, long inflow, long outflow, long count, Long lastTimestamp,
+                                        List<Bucket> buckets) {
+        return new AccountSummary(id, inflow, outflow, count, lastTimestamp, buckets);
+    }
+
+    public long id() {
+        return id;
+    }
+
+    public long inflowUnits() {
+        return inflow;
+    }
+
+    public long outflowUnits() {
+        return outflow;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public Long lastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public List<Bucket> buckets() {
+        return buckets;
+    }
+
+    @XmlElement(name = "inflow")
+    private BigDecimal getInflow() {
+        return Money.toDecimal(inflow);
+    }
+
+    private void setInflow(BigDecimal inflow) {
+        this.inflow = Money.toUnits(inflow);
+    }
+
+    @XmlElement(name = "outflow")
+    private BigDecimal getOutflow() {
+        return Money.toDecimal(outflow);
+    }
+
+    private void setOutflow(BigDecimal outflow) {
+        this.outflow = Money.toUnits(outflow);
+    }
+
+    @Override
+    public String toString() {
+        return "AccountSummary{" +
+                "id=" + id +
+                ", inflow=" + Money.toDecimal(inflow) +
+                ", outflow=" + Money.toDecimal(outflow) +
+                ", count=" + count +
+                ", lastTimestamp=" + lastTimestamp +
+                ", buckets=" + buckets +
+                '}';
+    }
+
+    // totals of the transactions of one day or month, starting at midnight UTC
+    public static class Bucket {
+        @XmlElement
+        private final long start;
+        private long inflow;
+        private long outflow;
+        @XmlElement
+        private final long count;
+
+        public Bucket() {
+            this.start = -1;
+            this.count = 0;
+        }
+
+        private Bucket(long start, long inflow, long outflow, long count) {
+            this.start = start;
+            this.inflow = inflow;
+            this.outflow = outflow;
+            this.count = count;
+        }
+
+        public static Bucket create(long start, long inflow, long outflow, long count) {
+            return new Bucket(start, inflow, outflow, count);
+        }
+
+        public long start() {
+            return start;
+        }
+
+        public long inflowUnits() {
+            return inflow;
+        }
+
+        public long outflowUnits() {
+            return outflow;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        @XmlElement(name = "inflow")
+        private BigDecimal getInflow() {
+            return Money.toDecimal(inflow);
+        }
+
+        private void setInflow(BigDecimal inflow) {
+            this.inflow = Money.toUnits(inflow);
+        }
+
+        @XmlElement(name = "outflow")
+        private BigDecimal getOutflow() {
+            return Money.toDecimal(outflow);
+        }
+
+        private void setOutflow(BigDecimal outflow) {
+            this.outflow = Money.toUnits(outflow);
+        }
+
+        @Override
+        public String toString() {
+            return "Bucket{" +
+                    "start=" + start +
+                    ", inflow=" + Money.toDecimal(inflow) +
+                    ", outflow=" + Money.toDecimal(outflow) +
+                    ", count=" + count +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package ru.ovchinnikov.model;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static ru.ovchinnikov.ConfigConstant.DESCRIPTION_DICTIONARY_SIZE;
+import static ru.ovchinnikov.ConfigConstant.DESCRIPTION_MAX_ENCODED_LENGTH;
+
+/**
+ * Bounded, process wide dictionary of transaction descriptions, interning the few values repeated over
+ * and over into small integer codes. Every code keeps one canonical {@code String} and its quoted JSON
+ * form, so the ledger stores a code instead of the text and serializing a history doesn't escape the same
+ * value again and again.
+ * <p>
+ * Codes are never reused. A value is admitted on its second sighting, so one-off values don't take
+ * codes; values seen once are forgotten wholesale when there are too many of them. Long values and all
+ * values beyond the capacity stay unencoded and are stored as they are.
+ */
+// @ThreadSafe
+public final class DescriptionDictionary {
+    public static final int NOT_ENCODED = -1;
+    private static final DescriptionDictionary SHARED =
+            new DescriptionDictionary(DESCRIPTION_DICTIONARY_SIZE, DESCRIPTION_MAX_ENCODED_LENGTH);
+
+    private final int capacity;
+    private final int maxLength;
+    private final int maxCandidates;
+    private final ConcurrentMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<String> values;
+    private final AtomicReferenceArray<SerializableString> json;
+    private final AtomicInteger size = new AtomicInteger();
+    // seen once
+    private final Set<String> candidates = ConcurrentHashMap.newKeySet();
+
+    public DescriptionDictionary(int capacity, int maxLength) {
+        this.capacity = capacity;
+        this.maxLength = maxLength;
+        this.maxCandidates = 4 * capacity;
+        this.values = new AtomicReferenceArray<>(capacity);
+        this.json = new AtomicReferenceArray<>(capacity);
+        for (String description : new String[]{"", Transaction.WITHDRAW_DESC, Transaction.RECHARGE_DESC}) {
+            admit(description);
+        }
+    }
+
+    public static DescriptionDictionary shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return code of the description, {@link #NOT_ENCODED} if it has to be stored as it is
+     */
+    public int encode(String description) {
+        Integer code = codes.get(description);
+        if (code != null) {
+            return code;
+        }
+        if (description.length() > maxLength || size.get() >= capacity) {
+            return NOT_ENCODED;
+        }
+        if (candidates.add(description)) {
+            if (candidates.size() > maxCandidates) {
+                candidates.clear();
+            }
+            return NOT_ENCODED;
+        }
+        candidates.remove(description);
+        return admit(description);
+    }
+
+    public String decode(int code) {
+        return values.get(code);
+    }
+
+    /**
+     * @return quoted JSON string of the description if it's encoded, null otherwise
+     */
+    public SerializableString json(String description) {
+        Integer code = codes.get(description);
+        return code == null ? null : json.get(code);
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    private int admit(String description) {
+        Integer code = codes.computeIfAbsent(description, value -> {
+            int next = size.getAndUpdate(current -> current < capacity ? current + 1 : current);
+            if (next == capacity) {
+                return null;
+            }
+            values.set(next, value);
+            json.set(next, new SerializedString(value));
+            return next;
+        });
+        return code == null ? NOT_ENCODED : code;
+    }
+}
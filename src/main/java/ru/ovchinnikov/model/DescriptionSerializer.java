@@ -0,0 +1,29 @@
+package ru.ovchinnikov.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes descriptions known to the {@link DescriptionDictionary} in their pre-quoted form.
+ */
+public class DescriptionSerializer extends StdSerializer<String> {
+    private static final long serialVersionUID = 1L;
+
+    public DescriptionSerializer() {
+        super(String.class);
+    }
+
+    @Override
+    public void serialize(String description, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        SerializableString encoded = DescriptionDictionary.shared().json(description);
+        if (encoded != null) {
+            generator.writeString(encoded);
+        } else {
+            generator.writeString(description);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ru.ovchinnikov.model;
+
+import ru.ovchinnikov.ConfigConstant;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+/**
+ * Amounts are kept as {@code long} counts of minor units of the ledger currency, e.g. cents for EUR.
+ * Decimal values exist only at the edges: parsing requests and rendering responses.
+ */
+public final class Money {
+    public static final Currency CURRENCY = Currency.getInstance(ConfigConstant.LEDGER_CURRENCY);
+    public static final int SCALE = CURRENCY.getDefaultFractionDigits();
+    // minor units in one major unit, e.g. 100 cents in a euro
+    public static final long UNITS_PER_WHOLE = BigDecimal.ONE.movePointRight(SCALE).longValueExact();
+
+    private Money() {
+    }
+
+    public static long toUnits(BigDecimal amount) {
+        if (amount == null) {
+            throw new IllegalArgumentException("Amount is required");
+        }
+        try {
+            return amount.setScale(SCALE).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount " + amount + " is not representable in " + CURRENCY, e);
+        }
+    }
+
+    public static BigDecimal toDecimal(long units) {
+        BigDecimal amount = BigDecimal.valueOf(units, SCALE).stripTrailingZeros();
+        return amount.scale() < 0 ? amount.setScale(0) : amount;
+    }
+
+    public static long add(long augend, long addend) {
+        long result = augend + addend;
+        if (((augend ^ result) & (addend ^ result)) < 0) {
+            throw new IllegalArgumentException("Amount overflow adding " + addend + " to " + augend);
+        }
+        return result;
+    }
+
+    public static long subtract(long minuend, long subtrahend) {
+        long result = minuend - subtrahend;
+        if (((minuend ^ subtrahend) & (minuend ^ result)) < 0) {
+            throw new IllegalArgumentException("Amount overflow subtracting " + subtrahend + " from " + minuend);
+        }
+        return result;
+    }
+}
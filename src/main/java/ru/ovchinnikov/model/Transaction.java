@@ -1,18 +1,23 @@
 package ru.ovchinnikov.model;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 import java.math.BigDecimal;
 
 @XmlRootElement
 public class Transaction {
+    public static final String WITHDRAW_DESC = "Withdraw";
+    public static final String RECHARGE_DESC = "Recharge";
     @XmlElement
     private final long from;
     @XmlElement
     private final long to;
+    // not final only to be filled in on deserialization
+    private long amount;
     @XmlElement
-    private final BigDecimal amount;
-    @XmlElement
+    @JsonSerialize(using = DescriptionSerializer.class)
     private final String description;
     @XmlElement
     private final long timestamp;
@@ -20,12 +25,12 @@ public class Transaction {
     public Transaction() {
         this.from = -1;
         this.to = -1;
-        this.amount = null;
+        this.amount = 0;
         this.description = "";
         this.timestamp = -1;
     }
 
-    private Transaction(long from, long to, BigDecimal amount, String description, long timestamp) {
+    private Transaction(long from, long to, long amount, String description, long timestamp) {
         this.from = from;
         this.to = to;
         this.amount = amount;
@@ -33,10 +38,14 @@ public class Transaction {
         this.timestamp = timestamp;
     }
 
-    public static Transaction create(long from, long to, BigDecimal amount, String description, long timestamp) {
+    public static Transaction create(long from, long to, long amount, String description, long timestamp) {
         return new Transaction(from, to, amount, description, timestamp);
     }
 
+    public static Transaction create(long from, long to, BigDecimal amount, String description, long timestamp) {
+        return new Transaction(from, to, Money.toUnits(amount), description, timestamp);
+    }
+
     public long from() {
         return from;
     }
@@ -45,10 +54,14 @@ public class Transaction {
         return to;
     }
 
-    public BigDecimal amount() {
+    public long amountUnits() {
         return amount;
     }
 
+    public BigDecimal amount() {
+        return Money.toDecimal(amount);
+    }
+
     public String description() {
         return description;
     }
@@ -57,6 +70,15 @@ public class Transaction {
         return timestamp;
     }
 
+    @XmlElement(name = "amount")
+    private BigDecimal getAmount() {
+        return amount();
+    }
+
+    private void setAmount(BigDecimal amount) {
+        this.amount = Money.toUnits(amount);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -66,7 +88,7 @@ public class Transaction {
 
         if (from != that.from) return false;
         if (to != that.to) return false;
-        if (amount != null ? !amount.equals(that.amount) : that.amount != null) return false;
+        if (amount != that.amount) return false;
         return description != null ? description.equals(that.description) : that.description == null;
     }
 
@@ -74,7 +96,7 @@ public class Transaction {
     public int hashCode() {
         int result = (int) (from ^ (from >>> 32));
         result = 31 * result + (int) (to ^ (to >>> 32));
-        result = 31 * result + (amount != null ? amount.hashCode() : 0);
+        result = 31 * result + (int) (amount ^ (amount >>> 32));
         result = 31 * result + (description != null ? description.hashCode() : 0);
         return result;
     }
@@ -84,7 +106,7 @@ public class Transaction {
         return "Transaction{" +
                 "from=" + from +
                 ", to=" + to +
-                ", amount=" + amount +
+                ", amount=" + amount() +
                 ", description='" + description + '\'' +
                 ", timestamp=" + timestamp +
                 '}';
@@ -0,0 +1,14 @@
+package ru.ovchinnikov.model;
+
+/**
+ * What a transaction does to the money of its account or accounts. Told by whoever makes the transaction,
+ * never by its description, which a transfer may set to anything.
+ */
+public enum TransactionKind {
+    // from one account to another, or to itself
+    TRANSFER,
+    // money into the account from outside, a positive amount
+    RECHARGE,
+    // money out of the account, a negative amount
+    WITHDRAWAL
+}
@@ -0,0 +1,75 @@
+package ru.ovchinnikov.model;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.math.BigDecimal;
+
+// one item of a transfer batch
+@XmlRootElement
+public class Transfer {
+    @XmlElement
+    private final long from;
+    @XmlElement
+    private final long to;
+    // not final only to be filled in on deserialization
+    private long amount;
+    @XmlElement
+    private final String description;
+
+    public Transfer() {
+        this.from = -1;
+        this.to = -1;
+        this.amount = 0;
+        this.description = "";
+    }
+
+    private Transfer(long from, long to, long amount, String description) {
+        this.from = from;
+        this.to = to;
+        this.amount = amount;
+        this.description = description;
+    }
+
+    public static Transfer create(long from, long to, long amount, String description) {
+        return new Transfer(from, to, amount, description);
+    }
+
+    public static Transfer create(long from, long to, BigDecimal amount, String description) {
+        return new Transfer(from, to, Money.toUnits(amount), description);
+    }
+
+    public long from() {
+        return from;
+    }
+
+    public long to() {
+        return to;
+    }
+
+    public long amountUnits() {
+        return amount;
+    }
+
+    public String description() {
+        return description == null ? "" : description;
+    }
+
+    @XmlElement(name = "amount")
+    private BigDecimal getAmount() {
+        return Money.toDecimal(amount);
+    }
+
+    private void setAmount(BigDecimal amount) {
+        this.amount = Money.toUnits(amount);
+    }
+
+    @Override
+    public String toString() {
+        return "Transfer{" +
+                "from=" + from +
+                ", to=" + to +
+                ", amount=" + Money.toDecimal(amount) +
+                ", description='" + description + '\'' +
+                '}';
+    }
+}
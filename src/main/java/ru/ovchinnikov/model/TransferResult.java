@@ -0,0 +1,56 @@
+package ru.ovchinnikov.model;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+// outcome of one item of a transfer batch
+@XmlRootElement
+public class TransferResult {
+    public enum Status {
+        DONE,
+        // not enough money or invalid amount
+        REJECTED,
+        // one of the accounts doesn't exist
+        NOT_FOUND,
+        // valid, but not applied because another item of an atomic batch failed
+        ABORTED
+    }
+
+    public static final TransferResult DONE = new TransferResult(Status.DONE, null);
+    public static final TransferResult ABORTED = new TransferResult(Status.ABORTED, null);
+
+    @XmlElement
+    private final Status status;
+    @XmlElement
+    private final String error;
+
+    public TransferResult() {
+        this.status = null;
+        this.error = null;
+    }
+
+    private TransferResult(Status status, String error) {
+        this.status = status;
+        this.error = error;
+    }
+
+    public static TransferResult failed(Status status, String error) {
+        return new TransferResult(status, error);
+    }
+
+    public Status status() {
+        return status;
+    }
+
+    public String error() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "TransferResult{" +
+                "status=" + status +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,106 @@
+package ru.ovchinnikov.reactor;
+
+import ru.ovchinnikov.metrics.Metrics;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Slot of a {@link CommandRing}. Allocated once with the ring and refilled for every command, so a typed
+ * command carries its arguments in primitive fields instead of a capturing lambda.
+ */
+// @NotThreadSafe, handed over from producer to consumer by CommandRing
+public final class Command {
+    CommandType type;
+    CommandHandler<?> handler;
+    long account;
+    long counterpart;
+    long amount;
+    String description;
+    Object argument;
+    CompletableFuture<Object> result;
+    long submittedAt;
+    // null for commands run however late
+    Deadline deadline;
+    // outcome, kept until the whole batch is executed
+    Object value;
+    Throwable error;
+
+    public CommandType type() {
+        return type;
+    }
+
+    public long account() {
+        return account;
+    }
+
+    public long counterpart() {
+        return counterpart;
+    }
+
+    public long amount() {
+        return amount;
+    }
+
+    public String description() {
+        return description;
+    }
+
+    public Object argument() {
+        return argument;
+    }
+
+    void fill(CommandType type, CommandHandler<?> handler, long account, long counterpart, long amount,
+              String description, Object argument, CompletableFuture<Object> result, Deadline deadline) {
+        this.type = type;
+        this.handler = handler;
+        this.account = account;
+        this.counterpart = counterpart;
+        this.amount = amount;
+        this.description = description;
+        this.argument = argument;
+        this.result = result;
+        this.deadline = deadline;
+        this.submittedAt = System.nanoTime();
+    }
+
+    // returns time spent executing
+    long execute(Shard shard) {
+        long start = System.nanoTime();
+        if (deadline != null && deadline.hasPassed(start)) {
+            error = new DeadlineExceededException(type);
+            Metrics.commandExpired(type);
+            return 0;
+        }
+        try {
+            value = handler.handle(shard, this);
+        } catch (Throwable e) {
+            error = e;
+        }
+        long executed = System.nanoTime() - start;
+        Metrics.commandExecuted(type, start - submittedAt, executed);
+        return executed;
+    }
+
+    void complete() {
+        CompletableFuture<Object> result = this.result;
+        Object value = this.value;
+        Throwable error = this.error;
+        // dropped before completing, dependent stages may run right here and must not see a stale slot
+        clear();
+        if (error == null) {
+            result.complete(value);
+        } else {
+            result.completeExceptionally(error);
+        }
+    }
+
+    private void clear() {
+        handler = null;
+        description = null;
+        argument = null;
+        result = null;
+        deadline = null;
+        value = null;
+        error = null;
+    }
+}
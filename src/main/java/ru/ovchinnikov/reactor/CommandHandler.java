@@ -0,0 +1,10 @@
+package ru.ovchinnikov.reactor;
+
+/**
+ * Executes a command on the thread of the shard it was submitted to. Handlers are meant to be created
+ * once and reused, all the arguments of a particular call travel in the {@link Command}.
+ */
+@FunctionalInterface
+public interface CommandHandler<T> {
+    T handle(Shard shard, Command command);
+}
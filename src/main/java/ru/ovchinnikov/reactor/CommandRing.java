@@ -0,0 +1,210 @@
+package ru.ovchinnikov.reactor;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ToLongFunction;
+
+/**
+ * Preallocated multi producer, single consumer ring of {@link Command}s in front of a shard thread.
+ * <p>
+ * A producer claims a sequence with one atomic increment, fills the slot and publishes it by writing the
+ * lap of the sequence into {@code published}. The shard thread takes every published slot at once, runs
+ * the whole batch and only then completes its futures and hands the slots back, so a burst of commands
+ * costs one wake-up and the journal appends they make go into one group commit.
+ * <p>
+ * A command {@link #offer offered} is turned away at once when the ring already holds as many commands as
+ * its {@link Priority} admits, bulk ones being turned away first, so under overload the queue, and the wait
+ * of the commands in it, stay bounded. A command {@link #publish published} is admitted in any case and its
+ * producer waits for a free slot when the ring is full. Shard threads never do: a shard waiting for
+ * another shard to drain, while that one waits for it, would stop both. Commands submitted from any shard
+ * thread, which are continuations of commands already admitted, go to an unbounded queue drained before
+ * the ring.
+ */
+// @ThreadSafe
+public final class CommandRing {
+    private static final ThreadLocal<CommandRing> CURRENT = new ThreadLocal<>();
+    private final Command[] slots;
+    private final AtomicIntegerArray published;
+    private final int mask;
+    private final int shift;
+    private final WaitStrategy waitStrategy;
+    private final ToLongFunction<Priority> queueLimits;
+    private final AtomicLong claimed = new AtomicLong();
+    private final Queue<Command> continuations = new ConcurrentLinkedQueue<>();
+    // everything below was executed and handed back
+    private volatile long consumed;
+    // written by the consumer only
+    private volatile long busyNanos;
+    private volatile Thread consumer;
+    private volatile boolean parked;
+
+    public CommandRing(int capacity, WaitStrategy waitStrategy) {
+        this(capacity, waitStrategy, Priority::queueLimit);
+    }
+
+    CommandRing(int capacity, WaitStrategy waitStrategy, ToLongFunction<Priority> queueLimits) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two, got " + capacity);
+        }
+        this.slots = new Command[capacity];
+        this.published = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Command();
+            published.set(i, -1);
+        }
+        this.mask = capacity - 1;
+        this.shift = Integer.numberOfTrailingZeros(capacity);
+        this.waitStrategy = waitStrategy;
+        this.queueLimits = queueLimits;
+    }
+
+    /**
+     * Publishes the command unless the ring holds as many commands as its priority admits already. From any
+     * but a shard thread the command carries the {@link Deadline} of the caller.
+     *
+     * @return future of the command, failed with {@link RejectedExecutionException} if it was turned away
+     */
+    @SuppressWarnings("unchecked")
+    <T> CompletableFuture<T> offer(CommandType type, CommandHandler<T> handler, long account, long counterpart,
+                                   long amount, String description, Object argument) {
+        if (CURRENT.get() != null) {
+            return publish(type, handler, account, counterpart, amount, description, argument);
+        }
+        long limit = queueLimit(type);
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= limit) {
+                return ShardOverloadedException.rejection(type);
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        fill(sequence, type, handler, account, counterpart, amount, description, argument, result,
+                Deadline.current());
+        return (CompletableFuture<T>) result;
+    }
+
+    // approximate, a command offered right after may still be turned away
+    boolean admits(CommandType type) {
+        return CURRENT.get() != null || claimed.get() - consumed < queueLimit(type);
+    }
+
+    private long queueLimit(CommandType type) {
+        return Math.min(slots.length, queueLimits.applyAsLong(type.priority()));
+    }
+
+    // the caller owns the sequence and its slot is free
+    private void fill(long sequence, CommandType type, CommandHandler<?> handler, long account, long counterpart,
+                      long amount, String description, Object argument, CompletableFuture<Object> result,
+                      Deadline deadline) {
+        int index = (int) sequence & mask;
+        slots[index].fill(type, handler, account, counterpart, amount, description, argument, result, deadline);
+        published.set(index, lap(sequence));
+        if (parked) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    // always admitted and run however late
+    @SuppressWarnings("unchecked")
+    <T> CompletableFuture<T> publish(CommandType type, CommandHandler<T> handler, long account, long counterpart,
+                                     long amount, String description, Object argument) {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        if (CURRENT.get() == null) {
+            long sequence = claimed.getAndIncrement();
+            while (sequence - slots.length >= consumed) {
+                WaitStrategy.backOff();
+            }
+            fill(sequence, type, handler, account, counterpart, amount, description, argument, result, null);
+            return (CompletableFuture<T>) result;
+        }
+        Command command = new Command();
+        command.fill(type, handler, account, counterpart, amount, description, argument, result, null);
+        continuations.add(command);
+        if (parked) {
+            LockSupport.unpark(consumer);
+        }
+        return (CompletableFuture<T>) result;
+    }
+
+    /**
+     * Runs commands on the calling thread until it is interrupted.
+     */
+    void run(Shard shard) {
+        consumer = Thread.currentThread();
+        CURRENT.set(this);
+        try {
+            long next = consumed;
+            while (!Thread.currentThread().isInterrupted()) {
+                boolean drained = drainContinuations(shard);
+                long end = next;
+                while (end - next < slots.length && isPublished(end)) {
+                    end++;
+                }
+                if (end == next) {
+                    if (!drained) {
+                        waitStrategy.idle(this);
+                    }
+                    continue;
+                }
+                long busy = 0;
+                for (long sequence = next; sequence < end; sequence++) {
+                    busy += slots[(int) sequence & mask].execute(shard);
+                }
+                for (long sequence = next; sequence < end; sequence++) {
+                    slots[(int) sequence & mask].complete();
+                }
+                next = end;
+                consumed = end;
+                busyNanos += busy;
+            }
+        } finally {
+            CURRENT.remove();
+        }
+    }
+
+    void park() {
+        parked = true;
+        if (continuations.isEmpty() && !isPublished(consumed)) {
+            LockSupport.park(this);
+        }
+        parked = false;
+    }
+
+    // approximate, producers may be filling claimed slots
+    int depth() {
+        return (int) (claimed.get() - consumed) + continuations.size();
+    }
+
+    long busyNanos() {
+        return busyNanos;
+    }
+
+    private boolean drainContinuations(Shard shard) {
+        Command command = continuations.poll();
+        if (command == null) {
+            return false;
+        }
+        long busy = 0;
+        do {
+            busy += command.execute(shard);
+            command.complete();
+            command = continuations.poll();
+        } while (command != null);
+        busyNanos += busy;
+        return true;
+    }
+
+    private boolean isPublished(long sequence) {
+        return published.get((int) sequence & mask) == lap(sequence);
+    }
+
+    private int lap(long sequence) {
+        return (int) (sequence >>> shift);
+    }
+}
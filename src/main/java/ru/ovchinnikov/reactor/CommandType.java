@@ -0,0 +1,28 @@
+package ru.ovchinnikov.reactor;
+
+public enum CommandType {
+    CREATE(Priority.NORMAL),
+    DELETE(Priority.NORMAL),
+    TRANSFER(Priority.NORMAL),
+    WITHDRAW(Priority.NORMAL),
+    RECHARGE(Priority.NORMAL),
+    HISTORY(Priority.BULK),
+    // running totals of an account, as cheap as a point read
+    SUMMARY(Priority.NORMAL),
+    // pages of account listings
+    SCAN(Priority.BULK),
+    // transfer batches and blocks of accounts
+    BATCH(Priority.BULK),
+    // anything else, carried as a Supplier
+    TASK(Priority.NORMAL);
+
+    private final Priority priority;
+
+    CommandType(Priority priority) {
+        this.priority = priority;
+    }
+
+    public Priority priority() {
+        return priority;
+    }
+}
@@ -0,0 +1,54 @@
+package ru.ovchinnikov.reactor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Time by which whoever submitted a command stops waiting for it. Commands submitted within
+ * {@link #within} carry the deadline into the shard, which drops any of them it reaches too late:
+ * such a command never runs and fails with {@link DeadlineExceededException}.
+ * <p>
+ * The deadline is checked once, when the shard takes the command. A command that has started runs to
+ * completion, journaling included, however late it finishes. Continuations submitted from shard threads
+ * carry no deadline, so a transfer whose debit has run always gets its credit. Work split over shards
+ * ({@link Shard#submitAdmitted}, {@link Reactor#submitExclusive}) runs whole or not at all, so its parts
+ * carry no deadline either; an exclusive task checks it once every shard has stopped for it.
+ */
+// @Immutable
+public final class Deadline {
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+    // System.nanoTime() at which the deadline passes
+    private final long at;
+
+    private Deadline(long at) {
+        this.at = at;
+    }
+
+    /**
+     * Runs the submission with a deadline {@code timeout} from now for the commands it submits from the
+     * calling thread. Nested within another submission, the earlier deadline applies.
+     */
+    public static <T> T within(long timeout, TimeUnit unit, Supplier<T> submission) {
+        Deadline previous = CURRENT.get();
+        Deadline deadline = new Deadline(System.nanoTime() + unit.toNanos(timeout));
+        CURRENT.set(previous != null && previous.at - deadline.at < 0 ? previous : deadline);
+        try {
+            return submission.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    // null outside of within()
+    static Deadline current() {
+        return CURRENT.get();
+    }
+
+    boolean hasPassed(long now) {
+        return now - at > 0;
+    }
+}
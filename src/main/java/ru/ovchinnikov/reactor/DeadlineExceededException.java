@@ -0,0 +1,20 @@
+package ru.ovchinnikov.reactor;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A command dropped by its shard because nobody waited for it any longer, see {@link Deadline}. The command
+ * hasn't run. Thrown in numbers exactly when the service is short of time, so it has no stack trace.
+ */
+public final class DeadlineExceededException extends TimeoutException {
+    private static final long serialVersionUID = 1L;
+
+    DeadlineExceededException(CommandType type) {
+        super("Deadline passed before " + type + " started");
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
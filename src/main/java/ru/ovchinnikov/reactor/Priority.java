@@ -0,0 +1,27 @@
+package ru.ovchinnikov.reactor;
+
+import ru.ovchinnikov.config.LiveSetting;
+
+import static ru.ovchinnikov.ConfigConstant.ADMISSION_BULK_QUEUE_LIMIT;
+import static ru.ovchinnikov.ConfigConstant.ADMISSION_QUEUE_LIMIT;
+
+/**
+ * Admission class of a {@link CommandType}: how many commands a shard's queue may hold for one more of
+ * the class to be admitted. Bulk commands get a lower limit, so under overload they are shed while
+ * single account operations still get through.
+ */
+public enum Priority {
+    // listings, history pages and batches, each one heavy and rarely urgent
+    BULK(ADMISSION_BULK_QUEUE_LIMIT),
+    NORMAL(ADMISSION_QUEUE_LIMIT);
+
+    private final LiveSetting queueLimit;
+
+    Priority(LiveSetting queueLimit) {
+        this.queueLimit = queueLimit;
+    }
+
+    long queueLimit() {
+        return queueLimit.get();
+    }
+}
@@ -0,0 +1,168 @@
+package ru.ovchinnikov.reactor;
+
+import ru.ovchinnikov.metrics.Metrics;
+import ru.ovchinnikov.storage.AccountStorage;
+import ru.ovchinnikov.storage.TransactionStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static ru.ovchinnikov.ConfigConstant.REQUEST_TIMEOUT_MS;
+
+/**
+ * Set of single threaded shards, each one owning the accounts with {@code id % shardCount == index}
+ * together with their transaction history. Work on one account never leaves its shard, so storages
+ * are accessed without any locking.
+ */
+// @ThreadSafe
+public class Reactor {
+    // phases of an exclusive task
+    private static final int GATHERING = 0;
+    private static final int RUNNING = 1;
+    private static final int ABANDONED = 2;
+
+    private final Shard[] shards;
+    private final Object exclusiveSubmission = new Object();
+
+    public Reactor(Shard... shards) {
+        if (shards.length == 0) {
+            throw new IllegalArgumentException("Reactor needs at least one shard");
+        }
+        this.shards = shards;
+    }
+
+    public static Reactor singleShard(ExecutorService executor,
+                                      AccountStorage accountStorage,
+                                      TransactionStorage transactionStorage) {
+        return new Reactor(new Shard(0, executor, accountStorage, transactionStorage));
+    }
+
+    public static Reactor withEmptyStorages(ExecutorService[] executors) {
+        Shard[] shards = new Shard[executors.length];
+        for (int i = 0; i < executors.length; i++) {
+            shards[i] = new Shard(i, executors[i], new AccountStorage(), new TransactionStorage());
+        }
+        return new Reactor(shards);
+    }
+
+    public static ExecutorService[] newExecutors(int count) {
+        ExecutorService[] executors = new ExecutorService[count];
+        for (int i = 0; i < count; i++) {
+            String name = "reactor-" + i;
+            executors[i] = Executors.newSingleThreadExecutor(task -> new Thread(task, name));
+        }
+        return executors;
+    }
+
+    /**
+     * Runs the task once all the given shards are stopped at it, so it may use storages of every one of
+     * them. The first shard runs the task while the others wait, blocked, until it finishes.
+     * <p>
+     * Stopping tasks are enqueued to all the shards under one lock, so any two exclusive tasks are queued
+     * in the same order on every shard they share and can't wait for each other. The task is turned away
+     * with {@link ShardOverloadedException} unless every shard admits a command of the type, and dropped
+     * with {@link DeadlineExceededException} if the caller's {@link Deadline} passes before the shards stop.
+     * <p>
+     * No shard waits longer than the request timeout for the others to stop: the first one fails the task
+     * with {@link TimeoutException}, and any other gives up unless the task has started meanwhile, as the
+     * task then uses its storage and must not overlap with its next commands.
+     */
+    public <T> CompletableFuture<T> submitExclusive(CommandType type, Collection<Shard> involved, Supplier<T> task) {
+        List<Shard> distinct = involved.stream().distinct().collect(Collectors.toList());
+        if (distinct.size() == 1) {
+            return distinct.get(0).submit(type, task);
+        }
+        CountDownLatch arrived = new CountDownLatch(distinct.size());
+        CountDownLatch released = new CountDownLatch(1);
+        AtomicInteger phase = new AtomicInteger(GATHERING);
+        long timeoutMillis = REQUEST_TIMEOUT_MS.get();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Deadline deadline = Deadline.current();
+        synchronized (exclusiveSubmission) {
+            for (Shard shard : distinct) {
+                if (!shard.admits(type)) {
+                    return ShardOverloadedException.rejection(type);
+                }
+            }
+            try {
+                for (Shard shard : distinct.subList(1, distinct.size())) {
+                    shard.submitAdmitted(type, () -> {
+                        arrived.countDown();
+                        awaitRelease(released, phase, timeoutMillis);
+                        return null;
+                    });
+                }
+                distinct.get(0).submitAdmitted(type, () -> {
+                    arrived.countDown();
+                    try {
+                        boolean stopped = arrived.await(timeoutMillis, TimeUnit.MILLISECONDS);
+                        if (!stopped || !phase.compareAndSet(GATHERING, RUNNING)) {
+                            result.completeExceptionally(
+                                    new TimeoutException("Shards didn't stop in time for " + task));
+                        } else if (deadline != null && deadline.hasPassed(System.nanoTime())) {
+                            Metrics.commandExpired(type);
+                            result.completeExceptionally(new DeadlineExceededException(type));
+                        } else {
+                            result.complete(task.get());
+                        }
+                    } catch (Throwable e) {
+                        result.completeExceptionally(e);
+                    } finally {
+                        released.countDown();
+                    }
+                    return null;
+                });
+            } catch (Throwable e) {
+                // the task will never run, so the shards already stopped can go on
+                phase.compareAndSet(GATHERING, ABANDONED);
+                released.countDown();
+                result.completeExceptionally(e);
+            }
+        }
+        return result;
+    }
+
+    // gives up after the timeout unless the task has started, which the shard then has to wait out
+    private static void awaitRelease(CountDownLatch released, AtomicInteger phase, long timeoutMillis) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    if (released.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+                if (phase.compareAndSet(GATHERING, ABANDONED)) {
+                    return;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public Shard shardFor(long accountId) {
+        return shards[(int) Math.floorMod(accountId, (long) shards.length)];
+    }
+
+    public Shard shard(int index) {
+        return shards[index];
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+}
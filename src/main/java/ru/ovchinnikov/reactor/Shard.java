@@ -0,0 +1,100 @@
+package ru.ovchinnikov.reactor;
+
+import ru.ovchinnikov.storage.AccountStorage;
+import ru.ovchinnikov.storage.TransactionStorage;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+import static ru.ovchinnikov.ConfigConstant.REACTOR_RING_SIZE;
+import static ru.ovchinnikov.ConfigConstant.REACTOR_WAIT_STRATEGY;
+
+// @ThreadSafe
+public class Shard {
+    private static final CommandHandler<Object> SUPPLIER = (shard, command) -> ((Supplier<?>) command.argument()).get();
+    private final int index;
+    private final CommandRing ring;
+    // @ThreadConfined
+    private final AccountStorage accountStorage;
+    // @ThreadConfined
+    private final TransactionStorage transactionStorage;
+
+    // the executor gives its thread to the shard for good, it is released by shutdownNow()
+    public Shard(int index, ExecutorService executor,
+                 AccountStorage accountStorage, TransactionStorage transactionStorage) {
+        this.index = index;
+        this.ring = new CommandRing(REACTOR_RING_SIZE, WaitStrategy.valueOf(REACTOR_WAIT_STRATEGY));
+        this.accountStorage = accountStorage;
+        this.transactionStorage = transactionStorage;
+        executor.execute(() -> ring.run(this));
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return submit(CommandType.TASK, task);
+    }
+
+    public <T> CompletableFuture<T> submit(CommandType type, Supplier<T> task) {
+        @SuppressWarnings("unchecked")
+        CommandHandler<T> handler = (CommandHandler<T>) SUPPLIER;
+        return ring.offer(type, handler, 0, 0, 0, null, task);
+    }
+
+    // typed command, for hot paths: the handler is reused and arguments go to the preallocated slot
+    public <T> CompletableFuture<T> submit(CommandType type, CommandHandler<T> handler,
+                                           long account, long counterpart, long amount, String description) {
+        return ring.offer(type, handler, account, counterpart, amount, description, null);
+    }
+
+    /**
+     * @return whether a command of the type would be admitted now; a command checked this way goes in with
+     * {@link #submitAdmitted}, which waits rather than sheds, so work split over shards is turned away
+     * before any part of it is queued
+     */
+    public boolean admits(CommandType type) {
+        return ring.admits(type);
+    }
+
+    public <T> CompletableFuture<T> submitAdmitted(CommandType type, Supplier<T> task) {
+        @SuppressWarnings("unchecked")
+        CommandHandler<T> handler = (CommandHandler<T>) SUPPLIER;
+        return ring.publish(type, handler, 0, 0, 0, null, task);
+    }
+
+    // for tasks that complete later than they run, e.g. when the mutation still has to reach the journal
+    public <T> CompletableFuture<T> submitAsync(Supplier<? extends CompletionStage<T>> task) {
+        return submitAsync(CommandType.TASK, task);
+    }
+
+    public <T> CompletableFuture<T> submitAsync(CommandType type, Supplier<? extends CompletionStage<T>> task) {
+        return submit(type, task).thenCompose(stage -> stage);
+    }
+
+    public <T> CompletableFuture<T> submitAsync(CommandType type, CommandHandler<? extends CompletionStage<T>> handler,
+                                                long account, long counterpart, long amount, String description) {
+        return submit(type, handler, account, counterpart, amount, description).thenCompose(stage -> stage);
+    }
+
+    public int queueDepth() {
+        return ring.depth();
+    }
+
+    public long busyNanos() {
+        return ring.busyNanos();
+    }
+
+    public int index() {
+        return index;
+    }
+
+    // must be changed only from commands submitted to this shard, lookups are safe from any thread
+    public AccountStorage accountStorage() {
+        return accountStorage;
+    }
+
+    // must be accessed only from commands submitted to this shard
+    public TransactionStorage transactionStorage() {
+        return transactionStorage;
+    }
+}
@@ -0,0 +1,45 @@
+package ru.ovchinnikov.reactor;
+
+import ru.ovchinnikov.metrics.Metrics;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A command turned away by a shard whose queue holds as many commands as the command's {@link Priority}
+ * admits, or a mutation turned away while the journal is backed up. Thrown in numbers exactly when the service
+ * is short of time, so it has no stack trace.
+ */
+public final class ShardOverloadedException extends RejectedExecutionException {
+    private static final long serialVersionUID = 1L;
+
+    private ShardOverloadedException(String reason, CommandType type) {
+        super(reason + ", " + type + " rejected");
+    }
+
+    /**
+     * @return future of a command of the type turned away, counted as such
+     */
+    public static <T> CompletableFuture<T> rejection(CommandType type) {
+        return rejection("Shard queue is full", type);
+    }
+
+    /**
+     * @return future of a mutation of the type turned away for the journal being backed up, counted as such
+     */
+    public static <T> CompletableFuture<T> journalRejection(CommandType type) {
+        return rejection("Journal is backed up", type);
+    }
+
+    private static <T> CompletableFuture<T> rejection(String reason, CommandType type) {
+        Metrics.commandRejected(type);
+        CompletableFuture<T> rejected = new CompletableFuture<>();
+        rejected.completeExceptionally(new ShardOverloadedException(reason, type));
+        return rejected;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
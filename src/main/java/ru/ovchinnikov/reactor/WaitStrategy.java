@@ -0,0 +1,37 @@
+package ru.ovchinnikov.reactor;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * What a shard thread does when there are no commands: trades CPU burnt while idle for the latency
+ * of picking up the next command.
+ */
+public enum WaitStrategy {
+    // parks until a producer wakes it up, costs a wake-up per idle period
+    BLOCKING {
+        @Override
+        void idle(CommandRing ring) {
+            ring.park();
+        }
+    },
+    // gives the core away but stays runnable
+    YIELDING {
+        @Override
+        void idle(CommandRing ring) {
+            Thread.yield();
+        }
+    },
+    // for a dedicated core only
+    BUSY_SPIN {
+        @Override
+        void idle(CommandRing ring) {
+        }
+    };
+
+    abstract void idle(CommandRing ring);
+
+    // producer side, waiting for the shard to free a slot
+    static void backOff() {
+        LockSupport.parkNanos(1_000);
+    }
+}
@@ -4,15 +4,26 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import ru.ovchinnikov.Injector;
 import ru.ovchinnikov.controllers.AccountController;
+import ru.ovchinnikov.controllers.AccountCursor;
+import ru.ovchinnikov.json.ModelJsonWriter;
 import ru.ovchinnikov.model.Account;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Providers;
+import java.lang.annotation.Annotation;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.List;
-import java.util.concurrent.TimeoutException;
+
+import static ru.ovchinnikov.ConfigConstant.ACCOUNTS_STREAM_CHUNK;
+import static ru.ovchinnikov.ConfigConstant.MAX_ACCOUNT_BLOCK;
+import static ru.ovchinnikov.ConfigConstant.PAGE_LIMIT;
 
 
 // todo: document API
@@ -21,38 +32,89 @@ public class AccountService {
     public static final String ACCOUNTS = "/accounts";
     private static final Logger log = LogManager.getLogger(AccountService.class);
     private final AccountController accountController = Injector.accountController();
+    private final IdempotencyCache idempotencyCache = Injector.idempotencyCache();
 
+    /**
+     * Without parameters streams all accounts as one chunked JSON array. With {@code limit} or {@code cursor}
+     * returns a single page; when more accounts follow, the response carries a {@code Link} header with
+     * {@code rel="next"}. Accounts created or deleted while a listing is in progress may be missed.
+     */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public List<Account> getAccounts() {
+    public void getAccounts(@QueryParam("limit") Integer limit,
+                            @QueryParam("cursor") String cursor,
+                            @Context UriInfo uriInfo,
+                            @Context Providers providers,
+                            @Suspended AsyncResponse response) {
+        AsyncResponses.suspend(response, Timeout.GET_ACCOUNTS, Response.Status.SERVICE_UNAVAILABLE);
+        if (limit == null && cursor == null) {
+            MessageBodyWriter<Account> writer = providers.getMessageBodyWriter(Account.class, Account.class,
+                    new Annotation[0], MediaType.APPLICATION_JSON_TYPE);
+            response.resume(new AccountStream(accountController, writer, ACCOUNTS_STREAM_CHUNK));
+            return;
+        }
+        int pageLimit = limit == null ? PAGE_LIMIT : limit;
+        if (!Paging.isValidLimit(pageLimit)) {
+            response.resume(Paging.invalidLimit());
+            return;
+        }
+        AccountCursor from;
         try {
-            return accountController.getAccounts();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new WebApplicationException("Interrupted exception");
-        } catch (TimeoutException e) {
-            throw new ServiceUnavailableException("Timeout processing request");
-        } catch (Throwable throwable) {
-            log.error("Unexpected error", throwable);
-            throw new InternalServerErrorException();
+            from = cursor == null ? AccountCursor.START : AccountCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            response.resume(Paging.malformedCursor(cursor));
+            return;
         }
+        AsyncResponses.submit(Timeout.GET_ACCOUNTS, () -> accountController.getAccountsAsync(from, pageLimit))
+                .whenCompleteAsync((page, error) -> {
+                    if (error != null) {
+                        AsyncResponses.resumeQueryFailure(response, error);
+                    } else {
+                        Response.ResponseBuilder ok = Response.ok(ModelJsonWriter.accounts(page.accounts()));
+                        page.next().ifPresent(next -> ok.links(Paging.nextLink(uriInfo, next.encode())));
+                        response.resume(ok.build());
+                    }
+                }, AsyncResponses.resumer());
     }
 
+    /**
+     * Creates one account and points to it with {@code Location}. With {@code count} creates that many
+     * accounts with consecutive ids and answers with the range of them as {@code {"first", "last"}}.
+     */
     @POST
-    public Response createAccount() {
-        try {
-            Account account = accountController.createAccount();
-            URI location = buildNewAccountLocation(account.id());
-            return Response.created(location).build();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new WebApplicationException("Interrupted exception");
-        } catch (TimeoutException e) {
-            return Response.status(Response.Status.GATEWAY_TIMEOUT).build();
-        } catch (Throwable e) {
-            log.error("Unexpected error", e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+    @Produces(MediaType.APPLICATION_JSON)
+    public void createAccount(@QueryParam("count") Integer count,
+                              @HeaderParam(IdempotencyCache.HEADER) String idempotencyKey,
+                              @Context UriInfo uriInfo,
+                              @Suspended AsyncResponse response) {
+        AsyncResponses.suspend(response, Timeout.CREATE_ACCOUNT, Response.Status.GATEWAY_TIMEOUT);
+        if (count != null) {
+            createAccounts(count, idempotencyKey, uriInfo, response);
+            return;
+        }
+        idempotencyCache.execute(idempotencyKey, IdempotencyCache.request(HttpMethod.POST, uriInfo), response,
+                () -> AsyncResponses.submit(Timeout.CREATE_ACCOUNT, accountController::createAccountAsync)
+                        .handle((account, error) -> {
+                            if (error != null) {
+                                return AsyncResponses.unexpectedFailure(error);
+                            }
+                            return Response.created(buildNewAccountLocation(account.id())).build();
+                        }));
+    }
+
+    private void createAccounts(int count, String idempotencyKey, UriInfo uriInfo, AsyncResponse response) {
+        if (count <= 0 || count > MAX_ACCOUNT_BLOCK) {
+            response.resume(new BadRequestException("Expected count between 1 and " + MAX_ACCOUNT_BLOCK));
+            return;
         }
+        idempotencyCache.execute(idempotencyKey, IdempotencyCache.request(HttpMethod.POST, uriInfo), response,
+                () -> AsyncResponses.submit(Timeout.CREATE_ACCOUNT, () -> accountController.createAccountsAsync(count))
+                        .handle((range, error) -> {
+                            if (error != null) {
+                                return AsyncResponses.unexpectedFailure(error);
+                            }
+                            return Response.status(Response.Status.CREATED).entity(range).build();
+                        }));
     }
 
     private URI buildNewAccountLocation(long id) {
@@ -0,0 +1,64 @@
+package ru.ovchinnikov.rest;
+
+import ru.ovchinnikov.controllers.AccountController;
+import ru.ovchinnikov.controllers.AccountCursor;
+import ru.ovchinnikov.controllers.AccountPage;
+import ru.ovchinnikov.model.Account;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.MessageBodyWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+
+/**
+ * Writes all accounts as a JSON array fetching them from the reactor {@code chunk} at a time, so neither
+ * the reactor nor the response holds more than a chunk. Every account goes through the same writer Jersey
+ * would use for it. Runs on the container thread, which blocks waiting for each chunk.
+ */
+final class AccountStream implements StreamingOutput {
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+    private final AccountController accountController;
+    private final MessageBodyWriter<Account> writer;
+    private final int chunk;
+
+    AccountStream(AccountController accountController, MessageBodyWriter<Account> writer, int chunk) {
+        this.accountController = accountController;
+        this.writer = writer;
+        this.chunk = chunk;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        output.write('[');
+        boolean first = true;
+        AccountCursor cursor = AccountCursor.START;
+        while (cursor != null) {
+            AccountPage page = nextChunk(cursor);
+            for (Account account : page.accounts()) {
+                if (!first) {
+                    output.write(',');
+                }
+                first = false;
+                writer.writeTo(account, Account.class, Account.class, NO_ANNOTATIONS,
+                        MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<>(), output);
+            }
+            output.flush();
+            cursor = page.next().orElse(null);
+        }
+        output.write(']');
+    }
+
+    private AccountPage nextChunk(AccountCursor cursor) throws IOException {
+        try {
+            return accountController.getAccounts(cursor, chunk);
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            // the response is already committed, all that can be done is to break it off
+            throw new IOException("Couldn't fetch accounts after " + cursor, e);
+        }
+    }
+}
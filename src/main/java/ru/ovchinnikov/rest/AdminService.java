@@ -0,0 +1,41 @@
+package ru.ovchinnikov.rest;
+
+import ru.ovchinnikov.config.Settings;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Effective configuration in the format of {@code conf/rvlt.properties}, each value preceded by where it
+ * came from, see {@link Settings#describe()}.
+ */
+@Path(AdminService.CONFIG)
+public class AdminService {
+    public static final String CONFIG = "/admin/config";
+    public static final String RELOAD = "/reload";
+
+    static {
+        // endpoint timeouts are registered once first used, list them from the start
+        Timeout.values();
+    }
+
+    @GET
+    @Produces(MediaType.TEXT_PLAIN)
+    public String config() {
+        return Settings.shared().describe();
+    }
+
+    /**
+     * Applies changes of the file to live settings right away instead of at the next check.
+     */
+    @POST
+    @Path(RELOAD)
+    @Produces(MediaType.TEXT_PLAIN)
+    public String reload() {
+        Settings.shared().reload();
+        return Settings.shared().describe();
+    }
+}
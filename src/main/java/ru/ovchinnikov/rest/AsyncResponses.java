@@ -0,0 +1,101 @@
+package ru.ovchinnikov.rest;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ru.ovchinnikov.reactor.Deadline;
+import ru.ovchinnikov.reactor.DeadlineExceededException;
+
+import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static ru.ovchinnikov.ConfigConstant.ADMISSION_RETRY_AFTER_SEC;
+import static ru.ovchinnikov.ConfigConstant.SERVER_RESPONSE_THREADS;
+import static ru.ovchinnikov.controllers.Futures.unwrap;
+
+final class AsyncResponses {
+    private static final Logger log = LogManager.getLogger(AsyncResponses.class);
+    // Jersey writes a resumed response, body and all, on the thread resuming it, which must not be the shard
+    // or journal thread that completed the future
+    private static final Executor RESUMER = newResumer();
+
+    private AsyncResponses() {
+    }
+
+    static void suspend(AsyncResponse response, Timeout timeout, Response.Status timeoutStatus) {
+        response.setTimeoutHandler(timedOut -> timedOut.resume(Response.status(timeoutStatus).build()));
+        response.setTimeout(timeout.millis(), TimeUnit.MILLISECONDS);
+    }
+
+    // the commands submitted carry the deadline of the response, so shards drop them once it has timed out
+    static <T> T submit(Timeout timeout, Supplier<T> submission) {
+        return Deadline.within(timeout.millis(), TimeUnit.MILLISECONDS, submission);
+    }
+
+    static Executor resumer() {
+        return RESUMER;
+    }
+
+    static void resumeQueryFailure(AsyncResponse response, Throwable error) {
+        if (unwrap(error) instanceof RejectedExecutionException) {
+            response.resume(overloaded());
+            return;
+        }
+        if (unwrap(error) instanceof DeadlineExceededException) {
+            response.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE).build());
+            return;
+        }
+        log.error("Unexpected error", unwrap(error));
+        response.resume(new InternalServerErrorException());
+    }
+
+    static void resumeMutationFailure(AsyncResponse response, Throwable error) {
+        response.resume(mutationFailure(error));
+    }
+
+    static Response mutationFailure(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof IllegalArgumentException) {
+            return Response.status(Response.Status.NOT_MODIFIED).build();
+        } else if (cause instanceof IllegalStateException) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        } else {
+            return unexpectedFailure(cause);
+        }
+    }
+
+    // 503 for work turned away by a full shard and 504 for work dropped past its deadline, neither of which
+    // has run, 500 for anything else
+    static Response unexpectedFailure(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof RejectedExecutionException) {
+            return overloaded();
+        }
+        if (cause instanceof DeadlineExceededException) {
+            return Response.status(Response.Status.GATEWAY_TIMEOUT).build();
+        }
+        log.error("Unexpected error", cause);
+        return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+    }
+
+    static Response overloaded() {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, ADMISSION_RETRY_AFTER_SEC.get()).build();
+    }
+
+    private static Executor newResumer() {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(SERVER_RESPONSE_THREADS, task -> {
+            Thread thread = new Thread(task, "response-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
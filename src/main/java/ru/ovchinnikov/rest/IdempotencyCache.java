@@ -0,0 +1,161 @@
+package ru.ovchinnikov.rest;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.net.URI;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Outcomes of mutations by the {@value #HEADER} they were sent with, so a retried request is answered with
+ * the outcome of the first one instead of being executed again. The outcome is recorded when the mutation
+ * completes, even if the first request has timed out by then, and a retry arriving while the first one is
+ * still running waits for it. A key reused for a different request is answered with 422. A request turned
+ * away with 503 or dropped past its deadline with 504 has not run, so its key is forgotten and a retry runs
+ * the mutation.
+ * <p>
+ * Keys expire {@code ttl} after their first use; beyond {@code capacity} outcomes the oldest ones are
+ * evicted. A key is queued for eviction once its mutation has an outcome to keep, so forgotten keys never
+ * take a place in the queue and a storm of turned away requests doesn't evict the outcomes of completed
+ * ones. Keys of mutations still running are bounded by the requests in flight instead.
+ */
+// @ThreadSafe
+public class IdempotencyCache {
+    public static final String HEADER = "Idempotency-Key";
+    private static final int UNPROCESSABLE_ENTITY = 422;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // entries with outcomes, oldest first, may still hold entries already removed from the map
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    // entries in the map
+    private final AtomicInteger size = new AtomicInteger();
+    // entries in the queue, ConcurrentLinkedQueue.size() being a walk
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int capacity;
+    private final long ttlNanos;
+    private final Executor resumer;
+
+    public IdempotencyCache(int capacity, long ttl, TimeUnit unit) {
+        this(capacity, ttl, unit, AsyncResponses.resumer());
+    }
+
+    IdempotencyCache(int capacity, long ttl, TimeUnit unit, Executor resumer) {
+        this.capacity = capacity;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.resumer = resumer;
+    }
+
+    /**
+     * Resumes the response with the outcome of the first request with the key, runs the mutation only
+     * if there was none. Without a key always runs the mutation.
+     *
+     * @param request what the key is used for, e.g. method and URI of the request
+     */
+    void execute(String key, String request, AsyncResponse response, Supplier<CompletionStage<Response>> mutation) {
+        if (key == null) {
+            run(mutation).thenAcceptAsync(response::resume, resumer);
+            return;
+        }
+        long now = System.nanoTime();
+        Entry entry = new Entry(key, request, now);
+        Entry previous = entries.putIfAbsent(key, entry);
+        while (previous != null && previous.isExpiredAt(now)) {
+            if (entries.remove(key, previous)) {
+                size.decrementAndGet();
+            }
+            previous = entries.putIfAbsent(key, entry);
+        }
+        if (previous != null) {
+            if (!previous.request.equals(request)) {
+                response.resume(Response.status(UNPROCESSABLE_ENTITY)
+                        .entity(HEADER + " " + key + " was used for another request").build());
+                return;
+            }
+            previous.outcome.thenAcceptAsync(outcome -> response.resume(copyOf(outcome)), resumer);
+            return;
+        }
+        size.incrementAndGet();
+        evict(now);
+        run(mutation).thenAccept(outcome -> {
+            if (!hasNotRun(outcome)) {
+                insertionOrder.add(entry);
+                queued.incrementAndGet();
+                evict(System.nanoTime());
+            } else if (entries.remove(key, entry)) {
+                size.decrementAndGet();
+            }
+            entry.outcome.complete(outcome);
+        });
+        entry.outcome.thenAcceptAsync(outcome -> response.resume(copyOf(outcome)), resumer);
+    }
+
+    static String request(String method, UriInfo uriInfo) {
+        URI uri = uriInfo.getRequestUri();
+        return method + " " + uri.getRawPath() + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    int queued() {
+        return queued.get();
+    }
+
+    private void evict(long now) {
+        Entry oldest;
+        while ((oldest = insertionOrder.peek()) != null && (queued.get() > capacity || oldest.isExpiredAt(now))) {
+            Entry evicted = insertionOrder.poll();
+            if (evicted == null) {
+                continue;
+            }
+            queued.decrementAndGet();
+            if (entries.remove(evicted.key, evicted)) {
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    private static CompletionStage<Response> run(Supplier<CompletionStage<Response>> mutation) {
+        try {
+            return mutation.get().exceptionally(AsyncResponses::mutationFailure);
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(AsyncResponses.mutationFailure(e));
+        }
+    }
+
+    private static boolean hasNotRun(Response outcome) {
+        return outcome.getStatus() == Response.Status.SERVICE_UNAVAILABLE.getStatusCode()
+                || outcome.getStatus() == Response.Status.GATEWAY_TIMEOUT.getStatusCode();
+    }
+
+    // a response is processed by the request it resumes, so every request gets its own
+    private static Response copyOf(Response outcome) {
+        return Response.fromResponse(outcome).build();
+    }
+
+    private final class Entry {
+        private final String key;
+        private final String request;
+        private final long createdAt;
+        private final CompletableFuture<Response> outcome = new CompletableFuture<>();
+
+        private Entry(String key, String request, long createdAt) {
+            this.key = key;
+            this.request = request;
+            this.createdAt = createdAt;
+        }
+
+        private boolean isExpiredAt(long now) {
+            return now - createdAt > ttlNanos;
+        }
+    }
+}
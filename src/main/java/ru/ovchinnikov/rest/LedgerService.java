@@ -0,0 +1,45 @@
+package ru.ovchinnikov.rest;
+
+import ru.ovchinnikov.Injector;
+import ru.ovchinnikov.controllers.TransactionController;
+import ru.ovchinnikov.model.Transaction;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Providers;
+import java.lang.annotation.Annotation;
+
+import static ru.ovchinnikov.ConfigConstant.TRANSACTIONS_STREAM_CHUNK;
+
+@Path(TransactionService.TRANSACTIONS)
+public class LedgerService {
+    private static final String MIN_TIMESTAMP = "" + Long.MIN_VALUE;
+    private static final String MAX_TIMESTAMP = "" + Long.MAX_VALUE;
+    private final TransactionController transactionController = Injector.transactionController();
+
+    /**
+     * Streams the transactions of all accounts with timestamps in epoch millis within [{@code from},
+     * {@code to}) as one chunked JSON array, oldest first. A transfer is listed once. Transactions stored
+     * while the stream is in progress may be missed.
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public void streamTransactions(@DefaultValue(MIN_TIMESTAMP) @QueryParam("from") long from,
+                                   @DefaultValue(MAX_TIMESTAMP) @QueryParam("to") long to,
+                                   @Context Providers providers,
+                                   @Suspended AsyncResponse response) {
+        AsyncResponses.suspend(response, Timeout.STREAM_TRANSACTIONS, Response.Status.SERVICE_UNAVAILABLE);
+        MessageBodyWriter<Transaction> writer = providers.getMessageBodyWriter(Transaction.class, Transaction.class,
+                new Annotation[0], MediaType.APPLICATION_JSON_TYPE);
+        response.resume(new TransactionStream(transactionController, writer, from, to, TRANSACTIONS_STREAM_CHUNK));
+    }
+}
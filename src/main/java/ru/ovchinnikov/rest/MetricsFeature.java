@@ -0,0 +1,132 @@
+package ru.ovchinnikov.rest;
+
+import ru.ovchinnikov.metrics.EndpointMetrics;
+import ru.ovchinnikov.metrics.Metrics;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Path;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.FeatureContext;
+import javax.ws.rs.ext.Provider;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Times every resource method but the metrics one. Each method gets its own filter bound to its
+ * {@link EndpointMetrics}, so nothing is looked up per request. Suspended requests are recorded when
+ * resumed, timeouts included.
+ * <p>
+ * The start of a request is kept in a mutable holder taken from a preallocated pool and given back once the
+ * request is recorded, so the time isn't boxed. A holder is made afresh only when the pool runs dry, e.g.
+ * with more requests in flight than it holds.
+ */
+@Provider
+public class MetricsFeature implements DynamicFeature {
+    private static final String STARTED_AT = MetricsFeature.class.getName() + ".startedAt";
+    // power of two
+    private static final int POOLED_START_TIMES = 4096;
+    private static final StartTimePool START_TIMES = new StartTimePool(POOLED_START_TIMES);
+
+    @Override
+    public void configure(ResourceInfo resourceInfo, FeatureContext context) {
+        if (resourceInfo.getResourceClass() == MetricsService.class) {
+            return;
+        }
+        context.register(new EndpointFilter(Metrics.endpoint(endpointOf(resourceInfo))));
+    }
+
+    // e.g. "POST /accounts/{id}/transfer"
+    private static String endpointOf(ResourceInfo resourceInfo) {
+        Method method = resourceInfo.getResourceMethod();
+        String httpMethod = "ANY";
+        for (Annotation annotation : method.getAnnotations()) {
+            HttpMethod designator = annotation.annotationType().getAnnotation(HttpMethod.class);
+            if (designator != null) {
+                httpMethod = designator.value();
+            }
+        }
+        return httpMethod + " " + pathOf(resourceInfo.getResourceClass().getAnnotation(Path.class))
+                + pathOf(method.getAnnotation(Path.class));
+    }
+
+    private static String pathOf(Path path) {
+        return path == null ? "" : path.value();
+    }
+
+    private static final class EndpointFilter implements ContainerRequestFilter, ContainerResponseFilter {
+        private final EndpointMetrics metrics;
+
+        private EndpointFilter(EndpointMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void filter(ContainerRequestContext request) {
+            StartTime startedAt = START_TIMES.take();
+            startedAt.nanos = System.nanoTime();
+            request.setProperty(STARTED_AT, startedAt);
+        }
+
+        @Override
+        public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+            Object startedAt = request.getProperty(STARTED_AT);
+            if (startedAt != null) {
+                request.removeProperty(STARTED_AT);
+                metrics.record(response.getStatus(), System.nanoTime() - ((StartTime) startedAt).nanos);
+                START_TIMES.give((StartTime) startedAt);
+            }
+        }
+    }
+
+    private static final class StartTime {
+        long nanos;
+    }
+
+    /**
+     * Free holders in slots taken and given back round robin. Either side looks at a few slots from its own
+     * cursor and, finding none usable, makes a new holder or drops the one given back.
+     */
+    // @ThreadSafe
+    private static final class StartTimePool {
+        private static final int PROBES = 8;
+        private final AtomicReferenceArray<StartTime> free;
+        private final AtomicInteger takeCursor = new AtomicInteger();
+        private final AtomicInteger giveCursor = new AtomicInteger();
+        private final int mask;
+
+        StartTimePool(int capacity) {
+            free = new AtomicReferenceArray<>(capacity);
+            for (int i = 0; i < capacity; i++) {
+                free.lazySet(i, new StartTime());
+            }
+            mask = capacity - 1;
+        }
+
+        StartTime take() {
+            for (int i = 0; i < PROBES; i++) {
+                int index = takeCursor.getAndIncrement() & mask;
+                StartTime startTime = free.get(index);
+                if (startTime != null && free.compareAndSet(index, startTime, null)) {
+                    return startTime;
+                }
+            }
+            return new StartTime();
+        }
+
+        void give(StartTime startTime) {
+            for (int i = 0; i < PROBES; i++) {
+                int index = giveCursor.getAndIncrement() & mask;
+                if (free.get(index) == null && free.compareAndSet(index, null, startTime)) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package ru.ovchinnikov.rest;
+
+import ru.ovchinnikov.metrics.Metrics;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+
+/**
+ * Metrics in the Prometheus text exposition format, see {@link Metrics}.
+ */
+@Path(MetricsService.METRICS)
+public class MetricsService {
+    public static final String METRICS = "/metrics";
+    static final String TEXT_FORMAT = "text/plain; version=0.0.4";
+
+    @GET
+    @Produces(TEXT_FORMAT)
+    public String metrics() {
+        return Metrics.scrape();
+    }
+}
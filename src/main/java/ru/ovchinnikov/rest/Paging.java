@@ -0,0 +1,34 @@
+package ru.ovchinnikov.rest;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.Link;
+import javax.ws.rs.core.UriInfo;
+
+import static ru.ovchinnikov.ConfigConstant.MAX_PAGE_LIMIT;
+import static ru.ovchinnikov.ConfigConstant.PAGE_LIMIT;
+
+final class Paging {
+    static final String DEFAULT_LIMIT = "" + PAGE_LIMIT;
+
+    private Paging() {
+    }
+
+    static boolean isValidLimit(int limit) {
+        return limit >= 1 && limit <= MAX_PAGE_LIMIT;
+    }
+
+    static BadRequestException invalidLimit() {
+        return new BadRequestException("limit must be within [1, " + MAX_PAGE_LIMIT + "]");
+    }
+
+    static BadRequestException malformedCursor(String cursor) {
+        return new BadRequestException("Malformed cursor " + cursor);
+    }
+
+    // same request with the cursor replaced, to be sent as Link: <...>; rel="next"
+    static Link nextLink(UriInfo uriInfo, String cursor) {
+        return Link.fromUriBuilder(uriInfo.getRequestUriBuilder().replaceQueryParam("cursor", cursor))
+                .rel("next")
+                .build();
+    }
+}
@@ -0,0 +1,34 @@
+package ru.ovchinnikov.rest;
+
+import ru.ovchinnikov.config.LiveSetting;
+import ru.ovchinnikov.config.Settings;
+
+import static ru.ovchinnikov.ConfigConstant.REQUEST_TIMEOUT_MS;
+
+/**
+ * How long each endpoint waits for the reactor before answering with its timeout status, set as
+ * {@code timeout.<name>.ms} and otherwise {@code request.timeout.ms}. Changes to the file apply live.
+ */
+enum Timeout {
+    GET_ACCOUNTS("get.accounts"),
+    CREATE_ACCOUNT("create.account"),
+    GET_ACCOUNT("get.account"),
+    DELETE_ACCOUNT("delete.account"),
+    TRANSFER("transfer"),
+    RECHARGE("recharge"),
+    WITHDRAW("withdraw"),
+    GET_TRANSACTIONS("get.transactions"),
+    GET_SUMMARY("get.summary"),
+    STREAM_TRANSACTIONS("stream.transactions"),
+    TRANSFER_BATCH("transfer.batch");
+
+    private final LiveSetting setting;
+
+    Timeout(String name) {
+        this.setting = Settings.shared().live("timeout." + name + ".ms", REQUEST_TIMEOUT_MS);
+    }
+
+    long millis() {
+        return setting.get();
+    }
+}
@@ -5,16 +5,24 @@ import org.apache.logging.log4j.Logger;
 import ru.ovchinnikov.Injector;
 import ru.ovchinnikov.controllers.AccountController;
 import ru.ovchinnikov.controllers.TransactionController;
-import ru.ovchinnikov.model.Account;
-import ru.ovchinnikov.model.Transaction;
+import ru.ovchinnikov.json.ModelJsonWriter;
+import ru.ovchinnikov.model.Money;
+import ru.ovchinnikov.storage.HistoryCursor;
+import ru.ovchinnikov.storage.Rollup;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 import java.math.BigDecimal;
-import java.util.List;
-import java.util.Optional;
-import java.util.concurrent.TimeoutException;
+import java.util.Locale;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+import static ru.ovchinnikov.controllers.Futures.unwrap;
 
 // todo: document API
 @Path(AccountService.ACCOUNTS + "/{id}")
@@ -23,135 +31,161 @@ public class TransactionService {
     public static final String RECHARGE = "/recharge";
     public static final String WITHDRAW = "/withdraw";
     public static final String TRANSACTIONS = "/transactions";
+    public static final String SUMMARY = "/summary";
+    private static final String MIN_TIMESTAMP = "" + Long.MIN_VALUE;
+    private static final String MAX_TIMESTAMP = "" + Long.MAX_VALUE;
     private static final Logger log = LogManager.getLogger(TransactionService.class);
     private final AccountController accountController = Injector.accountController();
     private final TransactionController transactionController = Injector.transactionController();
+    private final IdempotencyCache idempotencyCache = Injector.idempotencyCache();
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Account getAccount(@PathParam("id") long id) {
-        try {
-            Optional<Account> account = accountController.findAccount(id);
-            if (account.isPresent()) {
-                return account.get();
+    public void getAccount(@PathParam("id") long id, @Suspended AsyncResponse response) {
+        AsyncResponses.suspend(response, Timeout.GET_ACCOUNT, Response.Status.SERVICE_UNAVAILABLE);
+        // completed at once, so this resumes on the request thread
+        accountController.findAccountAsync(id).whenComplete((account, error) -> {
+            if (error != null) {
+                AsyncResponses.resumeQueryFailure(response, error);
+            } else if (account.isPresent()) {
+                response.resume(account.get());
+            } else {
+                log.debug("Requested non-existent account for id {}", id);
+                response.resume(new NotFoundException("Account for id " + id + " not found"));
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new WebApplicationException("Interrupted exception");
-        } catch (TimeoutException e) {
-            throw new ServiceUnavailableException("Timeout processing request");
-        } catch (Throwable throwable) {
-            log.error("Unexpected error", throwable);
-            throw new InternalServerErrorException();
-        }
-        log.debug("Requested non-existent account for id {}", id);
-        throw new NotFoundException("Account for id " + id + " not found");
+        });
     }
 
     @DELETE
-    public Response deleteAccount(@PathParam("id") long id) {
-        try {
-            if (!accountController.deleteAccount(id)) {
-                log.debug("Requested deletion of non-existent account for id {}", id);
-                return Response.status(Response.Status.NOT_FOUND).build();
-            }
-            return Response.noContent().build();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new WebApplicationException("Interrupted exception");
-        } catch (TimeoutException e) {
-            return Response.status(Response.Status.GATEWAY_TIMEOUT).build();
-        } catch (Throwable throwable) {
-            log.error("Unexpected error", throwable);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
-        }
+    public void deleteAccount(@PathParam("id") long id, @Suspended AsyncResponse response) {
+        AsyncResponses.suspend(response, Timeout.DELETE_ACCOUNT, Response.Status.GATEWAY_TIMEOUT);
+        AsyncResponses.submit(Timeout.DELETE_ACCOUNT, () -> accountController.deleteAccountAsync(id))
+                .whenCompleteAsync((deleted, error) -> {
+                    if (error != null) {
+                        response.resume(AsyncResponses.unexpectedFailure(error));
+                    } else if (!deleted) {
+                        log.debug("Requested deletion of non-existent account for id {}", id);
+                        response.resume(Response.status(Response.Status.NOT_FOUND).build());
+                    } else {
+                        response.resume(Response.noContent().build());
+                    }
+                }, AsyncResponses.resumer());
     }
 
     @POST
     @Path(TRANSFER)
-    public Response transfer(@PathParam("id") long from,
-                             @QueryParam("to") long to,
-                             @QueryParam("amount") BigDecimal amount,
-                             @DefaultValue("") @QueryParam("desc") String description) {
-        try {
-            transactionController.transfer(from, to, amount, description);
-            return Response.ok().build();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new WebApplicationException("Interrupted exception");
-        } catch (IllegalArgumentException e) {
-            return Response.status(Response.Status.NOT_MODIFIED).build();
-        } catch (IllegalStateException e) {
-            return Response.status(Response.Status.NOT_FOUND).build();
-        } catch (TimeoutException e) {
-            return Response.status(Response.Status.GATEWAY_TIMEOUT).build();
-        } catch (Throwable throwable) {
-            log.error("Unexpected error", throwable);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
-        }
+    public void transfer(@PathParam("id") long from,
+                         @QueryParam("to") long to,
+                         @QueryParam("amount") BigDecimal amount,
+                         @DefaultValue("") @QueryParam("desc") String description,
+                         @HeaderParam(IdempotencyCache.HEADER) String idempotencyKey,
+                         @Context UriInfo uriInfo,
+                         @Suspended AsyncResponse response) {
+        resumeMutation(response, Timeout.TRANSFER, idempotencyKey, uriInfo,
+                () -> transactionController.transferAsync(from, to, Money.toUnits(amount), description));
     }
 
     @POST
     @Path(RECHARGE)
-    public Response recharge(@PathParam("id") long id,
-                             @QueryParam("amount") BigDecimal amount) {
-        try {
-            transactionController.recharge(id, amount);
-            return Response.ok().build();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new WebApplicationException("Interrupted exception");
-        } catch (IllegalArgumentException e) {
-            return Response.status(Response.Status.NOT_MODIFIED).build();
-        } catch (IllegalStateException e) {
-            return Response.status(Response.Status.NOT_FOUND).build();
-        } catch (TimeoutException e) {
-            return Response.status(Response.Status.GATEWAY_TIMEOUT).build();
-        } catch (Throwable throwable) {
-            log.error("Unexpected error", throwable);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
-        }
+    public void recharge(@PathParam("id") long id,
+                         @QueryParam("amount") BigDecimal amount,
+                         @HeaderParam(IdempotencyCache.HEADER) String idempotencyKey,
+                         @Context UriInfo uriInfo,
+                         @Suspended AsyncResponse response) {
+        resumeMutation(response, Timeout.RECHARGE, idempotencyKey, uriInfo,
+                () -> transactionController.rechargeAsync(id, Money.toUnits(amount)));
     }
 
     @POST
     @Path(WITHDRAW)
-    public Response withdraw(@PathParam("id") long id,
-                             @QueryParam("amount") BigDecimal amount) {
+    public void withdraw(@PathParam("id") long id,
+                         @QueryParam("amount") BigDecimal amount,
+                         @HeaderParam(IdempotencyCache.HEADER) String idempotencyKey,
+                         @Context UriInfo uriInfo,
+                         @Suspended AsyncResponse response) {
+        resumeMutation(response, Timeout.WITHDRAW, idempotencyKey, uriInfo,
+                () -> transactionController.withdrawAsync(id, Money.toUnits(amount)));
+    }
+
+    private void resumeMutation(AsyncResponse response, Timeout timeout, String idempotencyKey, UriInfo uriInfo,
+                                Supplier<CompletionStage<Void>> mutationSubmitter) {
+        AsyncResponses.suspend(response, timeout, Response.Status.GATEWAY_TIMEOUT);
+        idempotencyCache.execute(idempotencyKey, IdempotencyCache.request(HttpMethod.POST, uriInfo), response,
+                () -> AsyncResponses.submit(timeout, mutationSubmitter).thenApply(ignored -> Response.ok().build()));
+    }
+
+    /**
+     * Pages through the account history oldest first. {@code from} (inclusive) and {@code to} (exclusive)
+     * bound transaction timestamps in epoch millis. When more transactions match, the response carries
+     * a {@code Link} header with {@code rel="next"} pointing to the following page.
+     */
+    @GET
+    @Path(TRANSACTIONS)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void listTransactions(@PathParam("id") long id,
+                                 @DefaultValue(Paging.DEFAULT_LIMIT) @QueryParam("limit") int limit,
+                                 @QueryParam("cursor") String cursor,
+                                 @DefaultValue(MIN_TIMESTAMP) @QueryParam("from") long from,
+                                 @DefaultValue(MAX_TIMESTAMP) @QueryParam("to") long to,
+                                 @Context UriInfo uriInfo,
+                                 @Suspended AsyncResponse response) {
+        AsyncResponses.suspend(response, Timeout.GET_TRANSACTIONS, Response.Status.SERVICE_UNAVAILABLE);
+        if (!Paging.isValidLimit(limit)) {
+            response.resume(Paging.invalidLimit());
+            return;
+        }
+        HistoryCursor after;
         try {
-            transactionController.withdraw(id, amount);
-            return Response.ok().build();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new WebApplicationException("Interrupted exception");
+            after = cursor == null ? null : HistoryCursor.decode(cursor);
         } catch (IllegalArgumentException e) {
-            return Response.status(Response.Status.NOT_MODIFIED).build();
-        } catch (IllegalStateException e) {
-            return Response.status(Response.Status.NOT_FOUND).build();
-        } catch (TimeoutException e) {
-            return Response.status(Response.Status.GATEWAY_TIMEOUT).build();
-        } catch (Throwable throwable) {
-            log.error("Unexpected error", throwable);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+            response.resume(Paging.malformedCursor(cursor));
+            return;
         }
+        AsyncResponses.submit(Timeout.GET_TRANSACTIONS,
+                () -> transactionController.getTransactionsAsync(id, from, to, after, limit))
+                .whenCompleteAsync((page, error) -> {
+                    if (error == null) {
+                        Response.ResponseBuilder ok = Response.ok(ModelJsonWriter.transactions(page.transactions()));
+                        page.next().ifPresent(next -> ok.links(Paging.nextLink(uriInfo, next.encode())));
+                        response.resume(ok.build());
+                    } else if (unwrap(error) instanceof IllegalStateException) {
+                        log.debug("Requested list of transactions for non-existent account with id {}", id);
+                        response.resume(new NotFoundException("Account for id " + id + " not found"));
+                    } else {
+                        AsyncResponses.resumeQueryFailure(response, error);
+                    }
+                }, AsyncResponses.resumer());
     }
 
+    // totals of the account, with rollup=day or rollup=month also per bucket starting within [from, to) among
+    // the days summary.retention.days keeps
     @GET
-    @Path(TRANSACTIONS)
+    @Path(SUMMARY)
     @Produces(MediaType.APPLICATION_JSON)
-    public List<Transaction> listTransactions(@PathParam("id") long id) {
+    public void getSummary(@PathParam("id") long id,
+                           @QueryParam("rollup") String rollup,
+                           @DefaultValue(MIN_TIMESTAMP) @QueryParam("from") long from,
+                           @DefaultValue(MAX_TIMESTAMP) @QueryParam("to") long to,
+                           @Suspended AsyncResponse response) {
+        AsyncResponses.suspend(response, Timeout.GET_SUMMARY, Response.Status.SERVICE_UNAVAILABLE);
+        Rollup buckets;
         try {
-            return transactionController.getAllTransactions(id);
-        } catch (IllegalStateException e) {
-            log.debug("Requested list of transactions for non-existent account with id {}", id);
-            throw new NotFoundException("Account for id " + id + " not found");
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new WebApplicationException("Interrupted exception");
-        } catch (TimeoutException e) {
-            throw new ServiceUnavailableException("Timeout processing request");
-        } catch (Throwable throwable) {
-            log.error("Unexpected error", throwable);
-            throw new InternalServerErrorException();
+            buckets = rollup == null ? null : Rollup.valueOf(rollup.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            response.resume(new BadRequestException("rollup must be day or month, got " + rollup));
+            return;
         }
+        AsyncResponses.submit(Timeout.GET_SUMMARY,
+                () -> transactionController.getSummaryAsync(id, buckets, from, to))
+                .whenCompleteAsync((summary, error) -> {
+                    if (error == null) {
+                        response.resume(summary);
+                    } else if (unwrap(error) instanceof IllegalStateException) {
+                        log.debug("Requested summary of non-existent account with id {}", id);
+                        response.resume(new NotFoundException("Account for id " + id + " not found"));
+                    } else {
+                        AsyncResponses.resumeQueryFailure(response, error);
+                    }
+                }, AsyncResponses.resumer());
     }
 }
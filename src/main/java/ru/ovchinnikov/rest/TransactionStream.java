@@ -0,0 +1,141 @@
+package ru.ovchinnikov.rest;
+
+import ru.ovchinnikov.controllers.TransactionController;
+import ru.ovchinnikov.model.Transaction;
+import ru.ovchinnikov.reactor.Deadline;
+import ru.ovchinnikov.storage.HistoryCursor;
+import ru.ovchinnikov.storage.TransactionPage;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.MessageBodyWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static ru.ovchinnikov.ConfigConstant.REQUEST_TIMEOUT_MS;
+
+/**
+ * Writes the transactions with timestamps in [{@code from}, {@code to}) of all shards as one JSON array,
+ * oldest first. Every shard is read {@code chunk} transactions at a time from its time index and the chunks
+ * are merged, so the response holds at most a chunk per shard and the reactor is never held for longer
+ * than it takes to read one. Runs on the container thread, which blocks waiting for each chunk.
+ */
+final class TransactionStream implements StreamingOutput {
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+    private final TransactionController transactionController;
+    private final MessageBodyWriter<Transaction> writer;
+    private final long from;
+    private final long to;
+    private final int chunk;
+
+    TransactionStream(TransactionController transactionController, MessageBodyWriter<Transaction> writer,
+                      long from, long to, int chunk) {
+        this.transactionController = transactionController;
+        this.writer = writer;
+        this.from = from;
+        this.to = to;
+        this.chunk = chunk;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        int shards = transactionController.shardCount();
+        PriorityQueue<ShardChunk> heads = new PriorityQueue<>(shards,
+                Comparator.comparingLong(ShardChunk::headTimestamp));
+        ShardChunk[] firstChunks = new ShardChunk[shards];
+        for (int i = 0; i < shards; i++) {
+            firstChunks[i] = new ShardChunk(i, fetch(i, null));
+        }
+        for (ShardChunk shardChunk : firstChunks) {
+            if (shardChunk.await()) {
+                heads.add(shardChunk);
+            }
+        }
+        output.write('[');
+        boolean first = true;
+        while (!heads.isEmpty()) {
+            ShardChunk head = heads.poll();
+            if (!first) {
+                output.write(',');
+            }
+            first = false;
+            writer.writeTo(head.next(), Transaction.class, Transaction.class, NO_ANNOTATIONS,
+                    MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<>(), output);
+            if (head.hasNext()) {
+                heads.add(head);
+            } else {
+                output.flush();
+                if (head.refill()) {
+                    heads.add(head);
+                }
+            }
+        }
+        output.write(']');
+    }
+
+    private CompletionStage<TransactionPage> fetch(int shard, HistoryCursor after) {
+        return Deadline.within(REQUEST_TIMEOUT_MS.get(), TimeUnit.MILLISECONDS,
+                () -> transactionController.getShardTransactionsAsync(shard, from, to, after, chunk));
+    }
+
+    // the part of one shard's transactions fetched but not written yet
+    private final class ShardChunk {
+        private final int shard;
+        private CompletionStage<TransactionPage> pending;
+        private List<Transaction> transactions;
+        private HistoryCursor next;
+        private int position;
+
+        private ShardChunk(int shard, CompletionStage<TransactionPage> pending) {
+            this.shard = shard;
+            this.pending = pending;
+        }
+
+        // waits for the pending chunk, returns false if it is empty
+        private boolean await() throws IOException {
+            TransactionPage page;
+            try {
+                page = pending.toCompletableFuture().get(REQUEST_TIMEOUT_MS.get(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted fetching transactions of shard " + shard, e);
+            } catch (ExecutionException | TimeoutException e) {
+                // the response is already committed, all that can be done is to break it off
+                throw new IOException("Couldn't fetch transactions of shard " + shard + " after " + next, e);
+            }
+            transactions = page.transactions();
+            next = page.next().orElse(null);
+            position = 0;
+            return !transactions.isEmpty();
+        }
+
+        private boolean refill() throws IOException {
+            if (next == null) {
+                return false;
+            }
+            pending = fetch(shard, next);
+            return await();
+        }
+
+        private boolean hasNext() {
+            return position < transactions.size();
+        }
+
+        private Transaction next() {
+            return transactions.get(position++);
+        }
+
+        private long headTimestamp() {
+            return transactions.get(position).timestamp();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package ru.ovchinnikov.rest;
+
+import ru.ovchinnikov.Injector;
+import ru.ovchinnikov.controllers.TransactionController;
+import ru.ovchinnikov.model.Transfer;
+import ru.ovchinnikov.model.TransferResult;
+
+import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.List;
+
+import static ru.ovchinnikov.ConfigConstant.MAX_ATOMIC_BATCH_SHARDS;
+import static ru.ovchinnikov.ConfigConstant.MAX_TRANSFER_BATCH;
+
+/**
+ * Batch of transfers posted as a JSON array of {@code {"from", "to", "amount", "description"}} and answered
+ * with an array of per item results in the same order. With {@code atomic=true} either every transfer is
+ * applied or none is and the response is 409 Conflict if any failed; such a batch may involve the accounts of
+ * up to {@code transfer.batch.atomic.max.shards} shards, as it stops all of them while it runs.
+ */
+@Path(TransferService.TRANSFERS)
+public class TransferService {
+    public static final String TRANSFERS = "/transfers";
+    private final TransactionController transactionController = Injector.transactionController();
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void transferBatch(@DefaultValue("false") @QueryParam("atomic") boolean atomic,
+                              List<Transfer> transfers,
+                              @Suspended AsyncResponse response) {
+        AsyncResponses.suspend(response, Timeout.TRANSFER_BATCH, Response.Status.GATEWAY_TIMEOUT);
+        if (transfers == null || transfers.size() > MAX_TRANSFER_BATCH) {
+            response.resume(new BadRequestException("Expected up to " + MAX_TRANSFER_BATCH + " transfers"));
+            return;
+        }
+        if (atomic && transactionController.shardsInvolved(transfers) > MAX_ATOMIC_BATCH_SHARDS) {
+            response.resume(new BadRequestException(
+                    "An atomic batch may involve accounts of up to " + MAX_ATOMIC_BATCH_SHARDS + " shards"));
+            return;
+        }
+        AsyncResponses.submit(Timeout.TRANSFER_BATCH, () -> transactionController.transferBatchAsync(transfers, atomic))
+                .whenCompleteAsync((results, error) -> {
+                    if (error != null) {
+                        AsyncResponses.resumeMutationFailure(response, error);
+                    } else if (atomic && results.stream().anyMatch(result -> result.status() != TransferResult.Status.DONE)) {
+                        response.resume(Response.status(Response.Status.CONFLICT).entity(results).build());
+                    } else {
+                        response.resume(Response.ok(results).build());
+                    }
+                }, AsyncResponses.resumer());
+    }
+}
@@ -0,0 +1,152 @@
+package ru.ovchinnikov.storage;
+
+import ru.ovchinnikov.model.AccountSummary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Running totals of the transactions of a single account, added to as each transaction is stored, so that
+ * a summary costs the same however long the history is.
+ * <p>
+ * The same totals are kept per UTC day, one bucket per day with any transactions, ordered by day. As with
+ * {@link TransactionHistory}, a transaction almost always lands in the last bucket or starts a new one after
+ * it; a late one is put into place from the tail. Months are summed from their days when asked for.
+ * <p>
+ * Only the days within {@code retentionDays} of the latest one are kept, the older ones leaving the rollups
+ * but staying in the totals; with no retention there are no buckets at all. The totals stop at
+ * {@link Long#MAX_VALUE} rather than wrap around.
+ */
+// @NotThreadSafe
+public class AccountActivity {
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final int INITIAL_CAPACITY = 4;
+    private static final long[] NO_DAYS = new long[0];
+
+    private final int retentionDays;
+    private long inflow;
+    private long outflow;
+    private long count;
+    private long lastTimestamp = Long.MIN_VALUE;
+    // buckets by day counted from the epoch, ascending
+    private long[] days = NO_DAYS;
+    private long[] dayInflows = NO_DAYS;
+    private long[] dayOutflows = NO_DAYS;
+    private long[] dayCounts = NO_DAYS;
+    private int size;
+
+    public AccountActivity(int retentionDays) {
+        this.retentionDays = retentionDays;
+    }
+
+    /**
+     * Counts one transaction moving {@code inflow} into and {@code outflow} out of the account, both in
+     * minor units and not negative.
+     */
+    public void add(long timestamp, long inflow, long outflow) {
+        this.inflow = saturatedAdd(this.inflow, inflow);
+        this.outflow = saturatedAdd(this.outflow, outflow);
+        count++;
+        lastTimestamp = Math.max(lastTimestamp, timestamp);
+        long day = Math.floorDiv(timestamp, DAY_MILLIS);
+        if (retentionDays <= 0 || size > 0 && day <= days[size - 1] - retentionDays) {
+            return;
+        }
+        int index = bucketOf(day);
+        dayInflows[index] = saturatedAdd(dayInflows[index], inflow);
+        dayOutflows[index] = saturatedAdd(dayOutflows[index], outflow);
+        dayCounts[index]++;
+        if (index == size - 1) {
+            forgetDaysBefore(day - retentionDays + 1);
+        }
+    }
+
+    /**
+     * @param rollup buckets to sum the days into, null for the totals only
+     * @param from   inclusive lower bound of the starts of the buckets
+     * @param to     exclusive upper bound of the starts of the buckets
+     */
+    public AccountSummary summarize(long id, Rollup rollup, long from, long to) {
+        return AccountSummary.create(id, inflow, outflow, count, count == 0 ? null : lastTimestamp,
+                rollup == null ? null : buckets(rollup, from, to));
+    }
+
+    private List<AccountSummary.Bucket> buckets(Rollup rollup, long from, long to) {
+        List<AccountSummary.Bucket> buckets = new ArrayList<>();
+        // a bucket starts no later than its days, so the days before from can't start one within the range
+        long firstDay = Math.floorDiv(from, DAY_MILLIS) + (Math.floorMod(from, DAY_MILLIS) == 0 ? 0 : 1);
+        int index = Arrays.binarySearch(days, 0, size, firstDay);
+        index = index >= 0 ? index : -index - 1;
+        while (index < size) {
+            long start = rollup.firstDay(days[index]) * DAY_MILLIS;
+            if (start >= to) {
+                break;
+            }
+            long bucketInflow = 0;
+            long bucketOutflow = 0;
+            long bucketCount = 0;
+            do {
+                bucketInflow = saturatedAdd(bucketInflow, dayInflows[index]);
+                bucketOutflow = saturatedAdd(bucketOutflow, dayOutflows[index]);
+                bucketCount += dayCounts[index];
+                index++;
+            } while (index < size && rollup.firstDay(days[index]) * DAY_MILLIS == start);
+            if (start >= from) {
+                buckets.add(AccountSummary.Bucket.create(start, bucketInflow, bucketOutflow, bucketCount));
+            }
+        }
+        return buckets;
+    }
+
+    // both not negative
+    private static long saturatedAdd(long augend, long addend) {
+        long sum = augend + addend;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    private void forgetDaysBefore(long firstDay) {
+        int forgotten = 0;
+        while (forgotten < size && days[forgotten] < firstDay) {
+            forgotten++;
+        }
+        if (forgotten == 0) {
+            return;
+        }
+        size -= forgotten;
+        System.arraycopy(days, forgotten, days, 0, size);
+        System.arraycopy(dayInflows, forgotten, dayInflows, 0, size);
+        System.arraycopy(dayOutflows, forgotten, dayOutflows, 0, size);
+        System.arraycopy(dayCounts, forgotten, dayCounts, 0, size);
+    }
+
+    // index of the bucket of the day, added if missing
+    private int bucketOf(long day) {
+        int index = size;
+        while (index > 0 && days[index - 1] > day) {
+            index--;
+        }
+        if (index > 0 && days[index - 1] == day) {
+            return index - 1;
+        }
+        if (size == days.length) {
+            // a new latest day is added before the one falling out of retention is forgotten
+            int capacity = Math.min(Math.max(INITIAL_CAPACITY, size * 2), retentionDays + 1);
+            days = Arrays.copyOf(days, capacity);
+            dayInflows = Arrays.copyOf(dayInflows, capacity);
+            dayOutflows = Arrays.copyOf(dayOutflows, capacity);
+            dayCounts = Arrays.copyOf(dayCounts, capacity);
+        }
+        System.arraycopy(days, index, days, index + 1, size - index);
+        System.arraycopy(dayInflows, index, dayInflows, index + 1, size - index);
+        System.arraycopy(dayOutflows, index, dayOutflows, index + 1, size - index);
+        System.arraycopy(dayCounts, index, dayCounts, index + 1, size - index);
+        days[index] = day;
+        dayInflows[index] = 0;
+        dayOutflows[index] = 0;
+        dayCounts[index] = 0;
+        size++;
+        return index;
+    }
+}
@@ -0,0 +1,89 @@
+package ru.ovchinnikov.storage;
+
+import ru.ovchinnikov.model.Account;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Ids of the accounts of a table in ascending order, so a walk can resume after the last id it returned
+ * however the table has been rehashed in between.
+ * <p>
+ * Ids come from an increasing sequence and are almost always appended. Ones added out of order, as when
+ * a snapshot is loaded, are sorted on the next walk. Removed ids are dropped lazily: a walk skips the ids
+ * missing from the table, and the ids are compacted once the removed ones may make up half of them.
+ */
+// @NotThreadSafe, used by the writer of the table only
+final class AccountIds {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final AccountTable table;
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int size;
+    private int removed;
+    private boolean sorted = true;
+
+    AccountIds(AccountTable table) {
+        this.table = table;
+    }
+
+    void add(long id) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        // an id equal to the last one is a removed id added again, left for compact to drop
+        if (size > 0 && ids[size - 1] >= id) {
+            sorted = false;
+        }
+        ids[size++] = id;
+    }
+
+    void remove() {
+        if (++removed > size / 2) {
+            compact();
+        }
+    }
+
+    /**
+     * Visits up to {@code limit} accounts of the table with ids greater than {@code afterId}, in id order.
+     *
+     * @return whether accounts may be left after the visited ones
+     */
+    boolean forEachAfter(long afterId, int limit, Consumer<Account> consumer) {
+        if (!sorted) {
+            compact();
+        }
+        int index = Arrays.binarySearch(ids, 0, size, afterId);
+        index = index >= 0 ? index + 1 : -index - 1;
+        int visited = 0;
+        for (; index < size; index++) {
+            Account account = table.get(ids[index]);
+            if (account != null) {
+                if (visited == limit) {
+                    return true;
+                }
+                consumer.accept(account);
+                visited++;
+            }
+        }
+        return false;
+    }
+
+    // keeps the ids still in the table, sorted and once each
+    private void compact() {
+        Arrays.sort(ids, 0, size);
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            long id = ids[i];
+            if ((kept == 0 || ids[kept - 1] != id) && table.get(id) != null) {
+                ids[kept++] = id;
+            }
+        }
+        size = kept;
+        removed = 0;
+        sorted = true;
+        if (ids.length > INITIAL_CAPACITY && size < ids.length / 4) {
+            ids = Arrays.copyOf(ids, Math.max(INITIAL_CAPACITY, size * 2));
+        }
+    }
+}
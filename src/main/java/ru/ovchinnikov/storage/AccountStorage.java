@@ -4,23 +4,49 @@ import ru.ovchinnikov.model.Account;
 
 import java.util.*;
 
+/**
+ * Accounts of a shard. Changed by the shard thread only; {@link #findAccountFor(long)} may be called from
+ * any thread and sees the latest balance the shard has applied to that account. Such reads are per account:
+ * lookups of two accounts from outside the shard may fall on either side of a transfer between them.
+ */
 public class AccountStorage {
-    private final Map<Long, Account> store = new HashMap<>();
+    private final AccountTable store = new AccountTable();
+    private final AccountIds ids = new AccountIds(store);
 
     public void store(Account account) {
-        store.put(account.id(), account);
+        if (store.get(account.id()) == null) {
+            ids.add(account.id());
+        }
+        store.put(account);
     }
 
+    // @ThreadSafe
     public Optional<Account> findAccountFor(long id) {
         Account account = store.get(id);
         return Optional.ofNullable(account);
     }
 
     public List<Account> getAllAccounts() {
-        return new ArrayList<>(store.values());
+        List<Account> accounts = new ArrayList<>(store.size());
+        store.forEach(accounts::add);
+        return accounts;
+    }
+
+    /**
+     * Adds up to {@code limit} accounts with ids greater than {@code afterId} to {@code into}, in id order, so
+     * the walk goes on after the id of the last one added whatever has been stored or removed meanwhile.
+     *
+     * @return whether accounts may be left after the added ones
+     */
+    public boolean scanAccounts(long afterId, int limit, List<Account> into) {
+        return ids.forEachAfter(afterId, limit, into::add);
     }
 
     public boolean remove(long id) {
-        return store.remove(id) != null;
+        if (!store.remove(id)) {
+            return false;
+        }
+        ids.remove();
+        return true;
     }
 }
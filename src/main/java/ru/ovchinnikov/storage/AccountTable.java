@@ -0,0 +1,152 @@
+package ru.ovchinnikov.storage;
+
+import ru.ovchinnikov.model.Account;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Accounts by id, changed by a single writer and read by any thread without locking.
+ * <p>
+ * Open addressing with linear probing like {@link LongObjectHashMap}, but slots are read and written with
+ * volatile semantics and there is no separate key array: a reader compares the id of the account it finds,
+ * so it can't pair an id with the account of a slot reused meanwhile. A grown table is filled in before it
+ * is published and the old one is never written again, so a reader walking it sees a consistent, if stale,
+ * set of accounts.
+ */
+// @ThreadSafe for reads, writes are confined to one thread
+public class AccountTable {
+    private static final int MIN_CAPACITY = 16;
+    private static final Object TOMBSTONE = new Object();
+
+    private volatile AtomicReferenceArray<Object> slots;
+    private int size;
+    private int tombstones;
+    private int threshold;
+
+    public AccountTable() {
+        allocate(MIN_CAPACITY);
+    }
+
+    // from any thread
+    public Account get(long id) {
+        AtomicReferenceArray<Object> slots = this.slots;
+        int mask = slots.length() - 1;
+        for (int i = hash(id) & mask; ; i = (i + 1) & mask) {
+            Object current = slots.get(i);
+            if (current == null) {
+                return null;
+            }
+            if (current != TOMBSTONE && ((Account) current).id() == id) {
+                return (Account) current;
+            }
+        }
+    }
+
+    public void put(Account account) {
+        AtomicReferenceArray<Object> slots = this.slots;
+        int mask = slots.length() - 1;
+        int firstTombstone = -1;
+        for (int i = hash(account.id()) & mask; ; i = (i + 1) & mask) {
+            Object current = slots.get(i);
+            if (current == null) {
+                if (firstTombstone >= 0) {
+                    i = firstTombstone;
+                    tombstones--;
+                }
+                slots.set(i, account);
+                if (++size + tombstones > threshold) {
+                    rehash();
+                }
+                return;
+            }
+            if (current == TOMBSTONE) {
+                if (firstTombstone < 0) {
+                    firstTombstone = i;
+                }
+            } else if (((Account) current).id() == account.id()) {
+                slots.set(i, account);
+                return;
+            }
+        }
+    }
+
+    public boolean remove(long id) {
+        AtomicReferenceArray<Object> slots = this.slots;
+        int mask = slots.length() - 1;
+        for (int i = hash(id) & mask; ; i = (i + 1) & mask) {
+            Object current = slots.get(i);
+            if (current == null) {
+                return false;
+            }
+            if (current != TOMBSTONE && ((Account) current).id() == id) {
+                if (slots.get((i + 1) & mask) == null) {
+                    slots.set(i, null);
+                } else {
+                    slots.set(i, TOMBSTONE);
+                    tombstones++;
+                }
+                size--;
+                return true;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Visits the accounts in table order, which a rehash changes, so a walk that has to be resumed later goes
+     * in id order instead.
+     *
+     * @see AccountStorage#scanAccounts(long, int, java.util.List)
+     */
+    public void forEach(Consumer<Account> consumer) {
+        AtomicReferenceArray<Object> slots = this.slots;
+        for (int i = 0; i < slots.length(); i++) {
+            Object current = slots.get(i);
+            if (current != null && current != TOMBSTONE) {
+                consumer.accept((Account) current);
+            }
+        }
+    }
+
+    private void rehash() {
+        AtomicReferenceArray<Object> old = slots;
+        AtomicReferenceArray<Object> fresh = new AtomicReferenceArray<>(capacityFor(size));
+        int mask = fresh.length() - 1;
+        for (int i = 0; i < old.length(); i++) {
+            Object current = old.get(i);
+            if (current != null && current != TOMBSTONE) {
+                int j = hash(((Account) current).id()) & mask;
+                while (fresh.get(j) != null) {
+                    j = (j + 1) & mask;
+                }
+                fresh.lazySet(j, current);
+            }
+        }
+        tombstones = 0;
+        threshold = fresh.length() / 4 * 3;
+        // publishes the filled in table
+        slots = fresh;
+    }
+
+    private void allocate(int capacity) {
+        slots = new AtomicReferenceArray<>(capacity);
+        threshold = capacity / 4 * 3;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long needed = Math.max(MIN_CAPACITY, (long) expectedSize * 2);
+        if (needed > 1 << 30) {
+            throw new IllegalStateException("Table is too large: " + expectedSize);
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,69 @@
+package ru.ovchinnikov.storage;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Opaque position in a {@link TransactionHistory}: the key of the last transaction a client has seen.
+ */
+public final class HistoryCursor {
+    private static final int ENCODED_BYTES = 2 * Long.BYTES;
+
+    private final long timestamp;
+    private final long sequence;
+
+    HistoryCursor(long timestamp, long sequence) {
+        this.timestamp = timestamp;
+        this.sequence = sequence;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value wasn't produced by {@link #encode()}
+     */
+    public static HistoryCursor decode(String value) {
+        byte[] bytes = Base64.getUrlDecoder().decode(value);
+        if (bytes.length != ENCODED_BYTES) {
+            throw new IllegalArgumentException("Malformed cursor " + value);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new HistoryCursor(buffer.getLong(), buffer.getLong());
+    }
+
+    public String encode() {
+        byte[] bytes = ByteBuffer.allocate(ENCODED_BYTES).putLong(timestamp).putLong(sequence).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    long timestamp() {
+        return timestamp;
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        HistoryCursor that = (HistoryCursor) o;
+
+        return timestamp == that.timestamp && sequence == that.sequence;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (timestamp ^ (timestamp >>> 32));
+        result = 31 * result + (int) (sequence ^ (sequence >>> 32));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "HistoryCursor{" +
+                "timestamp=" + timestamp +
+                ", sequence=" + sequence +
+                '}';
+    }
+}
@@ -0,0 +1,205 @@
+package ru.ovchinnikov.storage;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Open addressing hash map with primitive {@code long} keys and linear probing.
+ * <p>
+ * Keys live in a {@code long[]} and values in a parallel {@code Object[]}, so a lookup never boxes the key
+ * and an entry costs one array slot instead of a {@code Long} and a {@code HashMap.Node}. With compressed
+ * oops and the load kept between 0.375 and 0.75 an entry takes 16-32 bytes (~22 on average) on top of the
+ * value, against ~53-59 bytes for {@code HashMap<Long, V>} (32 byte node + 16 byte {@code Long} + 5-11 bytes
+ * of table).
+ * <p>
+ * Removed entries leave a tombstone behind, so probe chains stay intact; tombstones are reused by later
+ * inserts and dropped on rehash.
+ */
+// @NotThreadSafe
+public class LongObjectHashMap<V> {
+    private static final int MIN_CAPACITY = 16;
+    private static final Object TOMBSTONE = new Object();
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int tombstones;
+    private int threshold;
+
+    public LongObjectHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public V get(long key) {
+        int index = indexOf(key);
+        return index < 0 ? null : valueAt(index);
+    }
+
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported, key " + key);
+        }
+        int firstTombstone = -1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            Object current = values[i];
+            if (current == null) {
+                if (firstTombstone >= 0) {
+                    i = firstTombstone;
+                    tombstones--;
+                }
+                keys[i] = key;
+                values[i] = value;
+                if (++size + tombstones > threshold) {
+                    rehash();
+                }
+                return null;
+            }
+            if (current == TOMBSTONE) {
+                if (firstTombstone < 0) {
+                    firstTombstone = i;
+                }
+            } else if (keys[i] == key) {
+                V previous = valueAt(i);
+                values[i] = value;
+                return previous;
+            }
+        }
+    }
+
+    public V remove(long key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        V previous = valueAt(index);
+        if (values[(index + 1) & mask] == null) {
+            values[index] = null;
+        } else {
+            values[index] = TOMBSTONE;
+            tombstones++;
+        }
+        size--;
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEachValue(Consumer<? super V> consumer) {
+        Object[] values = this.values;
+        for (Object value : values) {
+            if (value != null && value != TOMBSTONE) {
+                consumer.accept(cast(value));
+            }
+        }
+    }
+
+    /**
+     * Visits up to {@code limit} values in table order starting from {@code fromSlot}, so a large map can be
+     * walked in bounded steps. Entries put or removed between steps, or moved by a rehash, may be missed or
+     * visited twice.
+     *
+     * @return slot to continue the walk from, or -1 if no values are left
+     */
+    public int forEachValue(int fromSlot, int limit, Consumer<? super V> consumer) {
+        Object[] values = this.values;
+        int visited = 0;
+        for (int i = fromSlot; i < values.length; i++) {
+            Object value = values[i];
+            if (value != null && value != TOMBSTONE) {
+                if (visited == limit) {
+                    return i;
+                }
+                consumer.accept(cast(value));
+                visited++;
+            }
+        }
+        return -1;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+        tombstones = 0;
+    }
+
+    private int indexOf(long key) {
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            Object current = values[i];
+            if (current == null) {
+                return -1;
+            }
+            if (current != TOMBSTONE && keys[i] == key) {
+                return i;
+            }
+        }
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        // sized for live entries only, so tombstones are dropped and a mostly removed table shrinks
+        allocate(capacityFor(size));
+        size = 0;
+        tombstones = 0;
+        for (int i = 0; i < oldValues.length; i++) {
+            Object value = oldValues[i];
+            if (value != null && value != TOMBSTONE) {
+                insertFresh(oldKeys[i], value);
+            }
+        }
+    }
+
+    private void insertFresh(long key, Object value) {
+        int i = hash(key) & mask;
+        while (values[i] != null) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        threshold = capacity / 4 * 3;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long needed = Math.max(MIN_CAPACITY, (long) expectedSize * 2);
+        if (needed > 1 << 30) {
+            throw new IllegalStateException("Map is too large: " + expectedSize);
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private V valueAt(int index) {
+        return cast(values[index]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V cast(Object value) {
+        return (V) value;
+    }
+}
@@ -0,0 +1,14 @@
+package ru.ovchinnikov.storage;
+
+import java.time.LocalDate;
+
+// calendar buckets of an account summary, in UTC
+public enum Rollup {
+    DAY,
+    MONTH;
+
+    // first day of the bucket holding the given one, both counted from the epoch
+    long firstDay(long epochDay) {
+        return this == DAY ? epochDay : LocalDate.ofEpochDay(epochDay).withDayOfMonth(1).toEpochDay();
+    }
+}
@@ -0,0 +1,111 @@
+package ru.ovchinnikov.storage;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Index of the transactions of a single account, rows of the shard's {@link TransactionLedger} ordered by
+ * timestamp, ties broken by row.
+ * <p>
+ * Rows are numbered in append order, so {@code (timestamp, row)} is a unique and stable key that a
+ * {@link HistoryCursor} can point at no matter how the history grows. Timestamps are taken right before
+ * storing, so inserts are almost always appends; a late one (a cross-shard credit, a replayed record) is
+ * shifted into place from the tail. A page is found by binary search and costs O(log n + limit). The heap
+ * holds four bytes per transaction, the rest stays in the ledger.
+ */
+// @NotThreadSafe
+public class TransactionHistory {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private final TransactionLedger ledger;
+    private int[] rows = new int[INITIAL_CAPACITY];
+    private int size;
+
+    public TransactionHistory(TransactionLedger ledger) {
+        this.ledger = ledger;
+    }
+
+    public void add(int row) {
+        if (size == rows.length) {
+            rows = Arrays.copyOf(rows, size * 2);
+        }
+        long timestamp = ledger.timestamp(row);
+        int index = size;
+        while (index > 0 && ledger.timestamp(rows[index - 1]) > timestamp) {
+            index--;
+        }
+        System.arraycopy(rows, index, rows, index + 1, size - index);
+        rows[index] = row;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Shows the flyweight every row of the page in turn.
+     *
+     * @param from  inclusive lower bound of transaction timestamps
+     * @param to    exclusive upper bound of transaction timestamps
+     * @param after position of the last transaction of the previous page, null for the first page
+     * @return position of the last transaction of this page if more follow, null otherwise
+     */
+    public HistoryCursor page(long from, long to, HistoryCursor after, int limit,
+                              TransactionRow flyweight, Consumer<TransactionRow> visitor) {
+        int start = lowerBound(from, Integer.MIN_VALUE);
+        if (after != null) {
+            start = Math.max(start, upperBound(after.timestamp(), after.sequence()));
+        }
+        int end = start;
+        while (end < size && end - start < limit && ledger.timestamp(rows[end]) < to) {
+            visitor.accept(flyweight.moveTo(rows[end]));
+            end++;
+        }
+        if (end > start && end < size && ledger.timestamp(rows[end]) < to) {
+            return new HistoryCursor(ledger.timestamp(rows[end - 1]), rows[end - 1]);
+        }
+        return null;
+    }
+
+    public void forEach(TransactionRow flyweight, Consumer<TransactionRow> visitor) {
+        for (int i = 0; i < size; i++) {
+            visitor.accept(flyweight.moveTo(rows[i]));
+        }
+    }
+
+    // index of the first entry not less than (timestamp, row)
+    private int lowerBound(long timestamp, long row) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareAt(middle, timestamp, row) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // index of the first entry greater than (timestamp, row)
+    private int upperBound(long timestamp, long row) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareAt(middle, timestamp, row) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int compareAt(int index, long timestamp, long row) {
+        int byTime = Long.compare(ledger.timestamp(rows[index]), timestamp);
+        return byTime != 0 ? byTime : Long.compare(rows[index], row);
+    }
+}
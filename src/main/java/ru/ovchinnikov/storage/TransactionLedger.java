@@ -0,0 +1,152 @@
+package ru.ovchinnikov.storage;
+
+import ru.ovchinnikov.model.DescriptionDictionary;
+import ru.ovchinnikov.model.Transaction;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Append-only, off-heap store of the transactions of a shard, numbered by row in append order.
+ * <p>
+ * Rows are kept in direct buffers allocated a segment at a time, each segment laid out in fixed width
+ * columns: from, to, amount, timestamp and a reference to the description. A description known to the
+ * {@link DescriptionDictionary} is referenced by its code, any other goes off-heap too, UTF-8 encoded and
+ * length prefixed, into segments of its own. The heap holds only the segment tables, so a history of
+ * millions of transactions costs the collector next to nothing.
+ */
+// @NotThreadSafe
+public final class TransactionLedger {
+    private static final int SEGMENT_SHIFT = 14;
+    private static final int SEGMENT_ROWS = 1 << SEGMENT_SHIFT;
+    private static final int ROW_MASK = SEGMENT_ROWS - 1;
+    private static final int FROM = 0;
+    private static final int TO = FROM + SEGMENT_ROWS * Long.BYTES;
+    private static final int AMOUNT = TO + SEGMENT_ROWS * Long.BYTES;
+    private static final int TIMESTAMP = AMOUNT + SEGMENT_ROWS * Long.BYTES;
+    private static final int DESCRIPTION = TIMESTAMP + SEGMENT_ROWS * Long.BYTES;
+    private static final int SEGMENT_BYTES = DESCRIPTION + SEGMENT_ROWS * Long.BYTES;
+    private static final int TEXT_SEGMENT_BYTES = 256 * 1024;
+    private static final long NULL_REFERENCE = Long.MIN_VALUE;
+
+    private final DescriptionDictionary dictionary;
+
+    private ByteBuffer[] segments = new ByteBuffer[1];
+    private int size;
+    private ByteBuffer[] text = new ByteBuffer[1];
+    private int textSegments;
+
+    public TransactionLedger() {
+        this(DescriptionDictionary.shared());
+    }
+
+    TransactionLedger(DescriptionDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public int append(Transaction transaction) {
+        return append(transaction.from(), transaction.to(), transaction.amountUnits(), transaction.description(),
+                transaction.timestamp());
+    }
+
+    public int append(long from, long to, long amount, String description, long timestamp) {
+        if (size == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Transaction ledger is full");
+        }
+        int row = size;
+        int segment = row >>> SEGMENT_SHIFT;
+        if (segment == segments.length) {
+            segments = Arrays.copyOf(segments, segment * 2);
+        }
+        if (segments[segment] == null) {
+            segments[segment] = allocate(SEGMENT_BYTES);
+        }
+        ByteBuffer columns = segments[segment];
+        int offset = (row & ROW_MASK) * Long.BYTES;
+        columns.putLong(FROM + offset, from);
+        columns.putLong(TO + offset, to);
+        columns.putLong(AMOUNT + offset, amount);
+        columns.putLong(TIMESTAMP + offset, timestamp);
+        columns.putLong(DESCRIPTION + offset, reference(description));
+        size++;
+        return row;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long from(int row) {
+        return column(row, FROM);
+    }
+
+    public long to(int row) {
+        return column(row, TO);
+    }
+
+    public long amount(int row) {
+        return column(row, AMOUNT);
+    }
+
+    public long timestamp(int row) {
+        return column(row, TIMESTAMP);
+    }
+
+    public String description(int row) {
+        long reference = column(row, DESCRIPTION);
+        if (reference == NULL_REFERENCE) {
+            return null;
+        }
+        if (reference < 0) {
+            return dictionary.decode((int) ~reference);
+        }
+        ByteBuffer segment = text[(int) (reference >>> 32)];
+        int position = (int) reference;
+        byte[] bytes = new byte[segment.getInt(position)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = segment.get(position + Integer.BYTES + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public Transaction read(int row) {
+        return Transaction.create(from(row), to(row), amount(row), description(row), timestamp(row));
+    }
+
+    private long column(int row, int column) {
+        return segments[row >>> SEGMENT_SHIFT].getLong(column + (row & ROW_MASK) * Long.BYTES);
+    }
+
+    // negative for a dictionary code, otherwise the index of the text segment in the high half and
+    // the position in it in the low one
+    private long reference(String description) {
+        if (description == null) {
+            return NULL_REFERENCE;
+        }
+        int code = dictionary.encode(description);
+        return code == DescriptionDictionary.NOT_ENCODED ? appendText(description) : ~code;
+    }
+
+    private long appendText(String description) {
+        byte[] bytes = description.getBytes(StandardCharsets.UTF_8);
+        int length = Integer.BYTES + bytes.length;
+        ByteBuffer segment = textSegments == 0 ? null : text[textSegments - 1];
+        if (segment == null || segment.remaining() < length) {
+            if (textSegments == text.length) {
+                text = Arrays.copyOf(text, textSegments * 2);
+            }
+            // a description longer than a segment gets one of its own
+            segment = allocate(Math.max(TEXT_SEGMENT_BYTES, length));
+            text[textSegments++] = segment;
+        }
+        long reference = (long) (textSegments - 1) << 32 | segment.position();
+        segment.putInt(bytes.length).put(bytes);
+        return reference;
+    }
+
+    private static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+}
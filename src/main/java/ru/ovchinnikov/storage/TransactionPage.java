@@ -0,0 +1,27 @@
+package ru.ovchinnikov.storage;
+
+import ru.ovchinnikov.model.Transaction;
+
+import java.util.List;
+import java.util.Optional;
+
+public final class TransactionPage {
+    private final List<Transaction> transactions;
+    private final HistoryCursor next;
+
+    TransactionPage(List<Transaction> transactions, HistoryCursor next) {
+        this.transactions = transactions;
+        this.next = next;
+    }
+
+    public List<Transaction> transactions() {
+        return transactions;
+    }
+
+    /**
+     * @return cursor to request the following page with, empty if this page is the last one
+     */
+    public Optional<HistoryCursor> next() {
+        return Optional.ofNullable(next);
+    }
+}
@@ -0,0 +1,50 @@
+package ru.ovchinnikov.storage;
+
+import ru.ovchinnikov.model.Transaction;
+
+/**
+ * Reusable view of a row of a {@link TransactionLedger}, reads columns in place without materialising
+ * a {@link Transaction}. Valid only until moved to another row.
+ */
+// @NotThreadSafe
+public final class TransactionRow {
+    private final TransactionLedger ledger;
+    private int row = -1;
+
+    TransactionRow(TransactionLedger ledger) {
+        this.ledger = ledger;
+    }
+
+    TransactionRow moveTo(int row) {
+        this.row = row;
+        return this;
+    }
+
+    public int row() {
+        return row;
+    }
+
+    public long from() {
+        return ledger.from(row);
+    }
+
+    public long to() {
+        return ledger.to(row);
+    }
+
+    public long amountUnits() {
+        return ledger.amount(row);
+    }
+
+    public long timestamp() {
+        return ledger.timestamp(row);
+    }
+
+    public String description() {
+        return ledger.description(row);
+    }
+
+    public Transaction toTransaction() {
+        return ledger.read(row);
+    }
+}
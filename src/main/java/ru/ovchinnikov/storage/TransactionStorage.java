@@ -1,26 +1,143 @@
 package ru.ovchinnikov.storage;
 
+import ru.ovchinnikov.model.AccountSummary;
 import ru.ovchinnikov.model.Transaction;
+import ru.ovchinnikov.model.TransactionKind;
 
-import javax.ws.rs.core.MultivaluedHashMap;
-import javax.ws.rs.core.MultivaluedMap;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import static ru.ovchinnikov.ConfigConstant.SUMMARY_RETENTION_DAYS;
+import static ru.ovchinnikov.ConfigConstant.TIMELINE_BUCKET_MILLIS;
+
+/**
+ * Transactions of a shard: every transaction is appended once to the off-heap {@link TransactionLedger}
+ * and its row indexed under each account of the shard it involves.
+ * <p>
+ * The {@link TransactionTimeline} indexes the rows of all accounts by time. A transfer between shards is
+ * stored by both of them, so only the shard of the source account puts it on its timeline, and the
+ * timelines of all shards together hold every transaction exactly once.
+ * <p>
+ * Alongside its history every account has its {@link AccountActivity}, the totals of money in and out.
+ * A transfer counts as money out of its source and into its target, so a transfer of an account to itself
+ * counts as both; what kind a transaction is comes from the caller.
+ */
+// @NotThreadSafe
 public class TransactionStorage {
-    private final MultivaluedMap<Long, Transaction> store = new MultivaluedHashMap<>();
+    private static final TransactionPage EMPTY_PAGE = new TransactionPage(Collections.emptyList(), null);
+    private static final AccountActivity EMPTY_ACTIVITY = new AccountActivity(0);
+    private final TransactionLedger ledger = new TransactionLedger();
+    private final TransactionRow flyweight = new TransactionRow(ledger);
+    private final LongObjectHashMap<TransactionHistory> store = new LongObjectHashMap<>();
+    private final LongObjectHashMap<AccountActivity> activities = new LongObjectHashMap<>();
+    private final TransactionTimeline timeline = new TransactionTimeline(ledger, TIMELINE_BUCKET_MILLIS);
 
-    public void store(Transaction transaction) {
+    public void store(Transaction transaction, TransactionKind kind) {
+        int row = ledger.append(transaction);
+        timeline.add(row);
         long from = transaction.from();
-        store.add(from, transaction);
+        index(from, row);
         long to = transaction.to();
         if (from != to) {
-            store.add(to, transaction);
+            index(to, row);
+        }
+        long timestamp = transaction.timestamp();
+        long amount = transaction.amountUnits();
+        switch (kind) {
+            case RECHARGE:
+                activity(from).add(timestamp, amount, 0);
+                break;
+            case WITHDRAWAL:
+                activity(from).add(timestamp, 0, -amount);
+                break;
+            default:
+                if (from == to) {
+                    activity(from).add(timestamp, amount, amount);
+                } else {
+                    activity(from).add(timestamp, 0, amount);
+                    activity(to).add(timestamp, amount, 0);
+                }
+        }
+    }
+
+    /**
+     * Stores a transfer under one of its accounts only, the other one living on another shard.
+     */
+    public void store(long id, Transaction transaction) {
+        int row = ledger.append(transaction);
+        if (id == transaction.from()) {
+            timeline.add(row);
+        }
+        index(id, row);
+        if (id == transaction.from()) {
+            activity(id).add(transaction.timestamp(), 0, transaction.amountUnits());
+        } else {
+            activity(id).add(transaction.timestamp(), transaction.amountUnits(), 0);
+        }
+    }
+
+    private AccountActivity activity(long id) {
+        AccountActivity activity = activities.get(id);
+        if (activity == null) {
+            activity = new AccountActivity(SUMMARY_RETENTION_DAYS);
+            activities.put(id, activity);
+        }
+        return activity;
+    }
+
+    private void index(long id, int row) {
+        TransactionHistory history = store.get(id);
+        if (history == null) {
+            history = new TransactionHistory(ledger);
+            store.put(id, history);
         }
+        history.add(row);
+    }
+
+    /**
+     * Returns the totals of the account, and with a {@code rollup} those of each of its days or months with
+     * transactions that starts within [{@code from}, {@code to}).
+     */
+    public AccountSummary summarize(long id, Rollup rollup, long from, long to) {
+        AccountActivity activity = activities.get(id);
+        return (activity == null ? EMPTY_ACTIVITY : activity).summarize(id, rollup, from, to);
     }
 
     public List<Transaction> findTransactionsFor(long id) {
-        List<Transaction> transactions = store.get(id);
-        return transactions == null ? Collections.emptyList() : transactions;
+        TransactionHistory history = store.get(id);
+        if (history == null) {
+            return Collections.emptyList();
+        }
+        List<Transaction> transactions = new ArrayList<>(history.size());
+        history.forEach(flyweight, row -> transactions.add(row.toTransaction()));
+        return transactions;
+    }
+
+    /**
+     * Returns up to {@code limit} transactions of the account with timestamps in [{@code from}, {@code to})
+     * following the {@code after} cursor, oldest first.
+     */
+    public TransactionPage findTransactionsFor(long id, long from, long to, HistoryCursor after, int limit) {
+        TransactionHistory history = store.get(id);
+        if (history == null) {
+            return EMPTY_PAGE;
+        }
+        List<Transaction> transactions = new ArrayList<>(Math.min(limit, history.size()));
+        HistoryCursor next = history.page(from, to, after, limit, flyweight,
+                row -> transactions.add(row.toTransaction()));
+        return new TransactionPage(transactions, next);
+    }
+
+    /**
+     * Returns up to {@code limit} transactions of all the accounts of the shard with timestamps in
+     * [{@code from}, {@code to}) following the {@code after} cursor, oldest first. A transfer from another
+     * shard is left to that shard.
+     */
+    public TransactionPage findTransactions(long from, long to, HistoryCursor after, int limit) {
+        List<Transaction> transactions = new ArrayList<>(Math.min(limit, timeline.size()));
+        HistoryCursor next = timeline.page(from, to, after, limit, flyweight,
+                row -> transactions.add(row.toTransaction()));
+        return new TransactionPage(transactions, next);
     }
 }
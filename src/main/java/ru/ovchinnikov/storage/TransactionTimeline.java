@@ -0,0 +1,170 @@
+package ru.ovchinnikov.storage;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Index of all the transactions of a shard by time: rows of the {@link TransactionLedger} ordered by
+ * {@code (timestamp, row)} like in a {@link TransactionHistory}, but split into buckets of fixed width in
+ * time instead of one array. Only buckets that got a row exist, kept ordered by their start.
+ * <p>
+ * Rows mostly arrive in time order, so an insert lands at the tail of the last bucket; a late one is shifted
+ * into place within its own bucket only, and a growing bucket copies just itself. A range scan finds its
+ * first row by binary search over bucket starts and then within a bucket, and costs
+ * O(log n + rows returned) however long the timeline is.
+ */
+// @NotThreadSafe
+public class TransactionTimeline {
+    private static final int INITIAL_BUCKETS = 16;
+    private static final int INITIAL_BUCKET_CAPACITY = 16;
+
+    private final TransactionLedger ledger;
+    private final long bucketMillis;
+    private long[] starts = new long[INITIAL_BUCKETS];
+    private int[][] buckets = new int[INITIAL_BUCKETS][];
+    private int[] sizes = new int[INITIAL_BUCKETS];
+    private int bucketCount;
+    private int size;
+
+    public TransactionTimeline(TransactionLedger ledger, long bucketMillis) {
+        if (bucketMillis <= 0) {
+            throw new IllegalArgumentException("Bucket width must be positive: " + bucketMillis);
+        }
+        this.ledger = ledger;
+        this.bucketMillis = bucketMillis;
+    }
+
+    public void add(int row) {
+        long timestamp = ledger.timestamp(row);
+        int bucket = bucketFor(timestamp);
+        int[] rows = buckets[bucket];
+        int bucketSize = sizes[bucket];
+        if (bucketSize == rows.length) {
+            rows = Arrays.copyOf(rows, bucketSize * 2);
+            buckets[bucket] = rows;
+        }
+        int index = bucketSize;
+        while (index > 0 && ledger.timestamp(rows[index - 1]) > timestamp) {
+            index--;
+        }
+        System.arraycopy(rows, index, rows, index + 1, bucketSize - index);
+        rows[index] = row;
+        sizes[bucket]++;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Shows the flyweight every row of the page in turn, same contract as
+     * {@link TransactionHistory#page(long, long, HistoryCursor, int, TransactionRow, Consumer)}.
+     */
+    public HistoryCursor page(long from, long to, HistoryCursor after, int limit,
+                              TransactionRow flyweight, Consumer<TransactionRow> visitor) {
+        int bucket;
+        int index;
+        if (after != null && after.timestamp() >= from) {
+            bucket = lastBucketStartingAtOrBefore(after.timestamp());
+            index = bucket < 0 ? 0 : upperBound(bucket, after.timestamp(), after.sequence());
+        } else {
+            bucket = lastBucketStartingAtOrBefore(from);
+            index = bucket < 0 ? 0 : lowerBound(bucket, from);
+        }
+        bucket = Math.max(bucket, 0);
+        int visited = 0;
+        int last = -1;
+        for (; bucket < bucketCount; bucket++, index = 0) {
+            int[] rows = buckets[bucket];
+            for (; index < sizes[bucket]; index++) {
+                int row = rows[index];
+                long timestamp = ledger.timestamp(row);
+                if (timestamp >= to) {
+                    return null;
+                }
+                if (visited == limit) {
+                    return new HistoryCursor(ledger.timestamp(last), last);
+                }
+                visitor.accept(flyweight.moveTo(row));
+                visited++;
+                last = row;
+            }
+        }
+        return null;
+    }
+
+    // index of the bucket holding the timestamp, created if there is none
+    private int bucketFor(long timestamp) {
+        long start = timestamp - Math.floorMod(timestamp, bucketMillis);
+        if (bucketCount > 0 && starts[bucketCount - 1] == start) {
+            return bucketCount - 1;
+        }
+        int bucket = lastBucketStartingAtOrBefore(start);
+        if (bucket >= 0 && starts[bucket] == start) {
+            return bucket;
+        }
+        bucket++;
+        if (bucketCount == starts.length) {
+            starts = Arrays.copyOf(starts, bucketCount * 2);
+            buckets = Arrays.copyOf(buckets, bucketCount * 2);
+            sizes = Arrays.copyOf(sizes, bucketCount * 2);
+        }
+        System.arraycopy(starts, bucket, starts, bucket + 1, bucketCount - bucket);
+        System.arraycopy(buckets, bucket, buckets, bucket + 1, bucketCount - bucket);
+        System.arraycopy(sizes, bucket, sizes, bucket + 1, bucketCount - bucket);
+        starts[bucket] = start;
+        buckets[bucket] = new int[INITIAL_BUCKET_CAPACITY];
+        sizes[bucket] = 0;
+        bucketCount++;
+        return bucket;
+    }
+
+    // -1 if every bucket starts after the timestamp
+    private int lastBucketStartingAtOrBefore(long timestamp) {
+        int low = 0;
+        int high = bucketCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] <= timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low - 1;
+    }
+
+    // index of the first row of the bucket not earlier than the timestamp
+    private int lowerBound(int bucket, long timestamp) {
+        int[] rows = buckets[bucket];
+        int low = 0;
+        int high = sizes[bucket];
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ledger.timestamp(rows[middle]) < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // index of the first row of the bucket greater than (timestamp, row)
+    private int upperBound(int bucket, long timestamp, long row) {
+        int[] rows = buckets[bucket];
+        int low = 0;
+        int high = sizes[bucket];
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int byTime = Long.compare(ledger.timestamp(rows[middle]), timestamp);
+            if (byTime < 0 || byTime == 0 && rows[middle] <= row) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
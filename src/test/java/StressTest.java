@@ -5,6 +5,7 @@ import org.junit.Ignore;
 import org.junit.Test;
 import ru.ovchinnikov.Main;
 import ru.ovchinnikov.model.Account;
+import ru.ovchinnikov.model.Money;
 import ru.ovchinnikov.rest.AccountService;
 
 import javax.ws.rs.client.ClientBuilder;
@@ -13,6 +14,7 @@ import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.GenericType;
 import javax.ws.rs.core.MediaType;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -102,9 +104,9 @@ public class StressTest {
             Collections.shuffle(localAccounts);
             Account from = localAccounts.get(0);
             Account to = localAccounts.get(1);
-            double amount = ThreadLocalRandom.current().nextDouble(INITIAL_BALANCE);
-            transfer(client, from.id(), to.id(),
-                    BigDecimal.valueOf(amount), String.valueOf(from.id()) + "->" + String.valueOf(to.id()));
+            BigDecimal amount = BigDecimal.valueOf(ThreadLocalRandom.current().nextDouble(INITIAL_BALANCE))
+                    .setScale(Money.SCALE, RoundingMode.DOWN);
+            transfer(client, from.id(), to.id(), amount, String.valueOf(from.id()) + "->" + String.valueOf(to.id()));
         }
     }
 
@@ -0,0 +1,96 @@
+package ru.ovchinnikov.binary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ru.ovchinnikov.binary.BinaryClient.Reply;
+import ru.ovchinnikov.binary.BinaryProtocol.Status;
+import ru.ovchinnikov.controllers.AccountController;
+import ru.ovchinnikov.controllers.TransactionController;
+import ru.ovchinnikov.journal.Journal;
+import ru.ovchinnikov.reactor.Reactor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.Assert.*;
+
+public class BinaryServerTest {
+    private static final int TRANSFERS = 1_000;
+
+    private ExecutorService[] executors;
+    private BinaryServer server;
+    private BinaryClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        executors = Reactor.newExecutors(2);
+        Reactor reactor = Reactor.withEmptyStorages(executors);
+        server = BinaryServer.start("localhost", 0, 1, new AccountController(reactor, Journal.DISABLED),
+                new TransactionController(reactor, Journal.DISABLED));
+        client = new BinaryClient("localhost", server.port());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        server.close();
+        for (ExecutorService executor : executors) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void transfer_shouldAnswerEveryPipelinedRequest() throws Exception {
+        long from = createAccount();
+        long to = createAccount();
+        client.recharge(from, TRANSFERS * 100L);
+        assertEquals(Status.OK, client.read().status());
+
+        Map<Long, Status> statuses = new HashMap<>();
+        for (int i = 0; i < TRANSFERS; i++) {
+            client.transfer(from, to, 100, i % 2 == 0 ? "" : "pipelined");
+        }
+        for (int i = 0; i < TRANSFERS; i++) {
+            Reply reply = client.read();
+            statuses.put(reply.requestId(), reply.status());
+        }
+
+        assertEquals(TRANSFERS, statuses.size());
+        assertTrue(statuses.values().stream().allMatch(Status.OK::equals));
+        assertEquals(0, getAccount(from).balance());
+        assertEquals(TRANSFERS * 100L, getAccount(to).balance());
+    }
+
+    @Test
+    public void withdraw_shouldBeRejected_whenNotEnoughMoney() throws Exception {
+        long account = createAccount();
+
+        client.withdraw(account, 1);
+
+        assertEquals(Status.REJECTED, client.read().status());
+    }
+
+    @Test
+    public void getAccount_shouldAnswerNotFound_forUnknownAccount() throws Exception {
+        client.getAccount(Long.MAX_VALUE);
+
+        assertEquals(Status.NOT_FOUND, client.read().status());
+    }
+
+    private long createAccount() throws Exception {
+        client.createAccount();
+        Reply reply = client.read();
+        assertEquals(Status.OK, reply.status());
+        return reply.account();
+    }
+
+    private Reply getAccount(long id) throws Exception {
+        client.getAccount(id);
+        Reply reply = client.read();
+        assertEquals(Status.OK, reply.status());
+        assertEquals(id, reply.account());
+        return reply;
+    }
+}
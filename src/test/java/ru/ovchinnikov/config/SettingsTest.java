@@ -0,0 +1,84 @@
+package ru.ovchinnikov.config;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+public class SettingsTest {
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("rvlt", ".properties");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void value_shouldPreferSystemPropertyThenEnvironmentThenFile() throws IOException {
+        write("a=file\nb=file\nc=file\n", 1);
+        Properties system = new Properties();
+        system.setProperty("a", "system");
+        Settings settings = new Settings(file, Collections.singletonMap("RVLT_B", "environment"), system);
+
+        assertEquals("system", settings.stringValue("a", "default"));
+        assertEquals("environment", settings.stringValue("b", "default"));
+        assertEquals("file", settings.stringValue("c", "default"));
+        assertEquals("default", settings.stringValue("d", "default"));
+        assertTrue(settings.describe().contains("# environment RVLT_B\nb=environment\n"));
+        assertTrue(settings.describe().contains("# default\nd=default\n"));
+    }
+
+    @Test
+    public void value_shouldDefault_whenFileIsMissing() throws IOException {
+        Files.delete(file);
+        Settings settings = new Settings(file, Collections.emptyMap(), new Properties());
+
+        assertEquals(7, settings.intValue("threads", 7));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void value_shouldThrowIllegalArgumentException_whenMalformed() throws IOException {
+        write("threads=many\n", 1);
+        new Settings(file, Collections.emptyMap(), new Properties()).intValue("threads", 7);
+    }
+
+    @Test
+    public void live_shouldFollowFile_fallingBackWhenUnset() throws IOException {
+        write("timeout.ms=100\n", 1);
+        Settings settings = new Settings(file, Collections.emptyMap(), new Properties());
+        LiveSetting timeout = settings.live("timeout.ms", 10);
+        LiveSetting transferTimeout = settings.live("timeout.transfer.ms", timeout);
+        assertEquals(100, transferTimeout.get());
+
+        write("timeout.ms=200\ntimeout.transfer.ms=300\n", 2);
+        assertTrue(settings.reload());
+        assertEquals(200, timeout.get());
+        assertEquals(300, transferTimeout.get());
+        assertFalse(settings.reload());
+
+        write("timeout.transfer.ms=soon\n", 3);
+        assertTrue(settings.reload());
+        assertEquals(10, timeout.get());
+        assertEquals(300, transferTimeout.get());
+        assertTrue(settings.describe().contains("# default, live\ntimeout.ms=10\n"));
+    }
+
+    // modification times are set apart, as writes within the same tick may leave them the same
+    private void write(String content, long second) throws IOException {
+        Files.write(file, content.getBytes("UTF-8"));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(second * 1000));
+    }
+}
@@ -3,11 +3,17 @@ package ru.ovchinnikov.controllers;
 import org.hamcrest.core.Is;
 import org.junit.Before;
 import org.junit.Test;
+import ru.ovchinnikov.journal.Journal;
 import ru.ovchinnikov.model.Account;
+import ru.ovchinnikov.model.AccountRange;
+import ru.ovchinnikov.reactor.Reactor;
 import ru.ovchinnikov.storage.AccountStorage;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.Executors;
 
 import static org.junit.Assert.*;
@@ -34,6 +40,21 @@ public class AccountControllerTest {
         assertEquals(account, accounts.get(0));
     }
 
+    @Test
+    public void createAccounts_shouldCreateConsecutiveIdsOnEveryShard() throws Throwable {
+        AccountController controller = new AccountController(Reactor.withEmptyStorages(Reactor.newExecutors(3)),
+                Journal.DISABLED);
+
+        AccountRange range = controller.createAccounts(10);
+
+        assertEquals(10, range.count());
+        for (long id = range.first(); id <= range.last(); id++) {
+            assertTrue(controller.findAccount(id).isPresent());
+        }
+        assertEquals(10, controller.getAccounts().size());
+        assertTrue(controller.createAccount().id() > range.last());
+    }
+
     @Test
     public void findAccount() throws Throwable {
         List<Account> accounts = controller.getAccounts();
@@ -82,4 +103,69 @@ public class AccountControllerTest {
 
         assertFalse(controller.deleteAccount(1));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getAccounts_shouldReturnCopies_notAccountsChangedLater() throws Throwable {
+        Account account = controller.createAccount();
+
+        List<Account> all = controller.getAccounts();
+        List<Account> page = controller.getAccounts(AccountCursor.START, 10).accounts();
+        controller.findAccount(account.id()).get().recharge(100);
+
+        assertEquals(0, all.get(0).balanceUnits());
+        assertEquals(0, page.get(0).balanceUnits());
+    }
+
+    @Test
+    public void getAccounts_shouldWalkAllShardsPageByPage() throws Throwable {
+        Reactor reactor = Reactor.withEmptyStorages(Reactor.newExecutors(2));
+        AccountController shardedController = new AccountController(reactor, Journal.DISABLED);
+        Set<Account> created = new HashSet<>();
+        for (int i = 0; i < 7; i++) {
+            created.add(shardedController.createAccount());
+        }
+
+        Set<Account> walked = new HashSet<>();
+        AccountCursor cursor = AccountCursor.START;
+        int pages = 0;
+        while (cursor != null) {
+            AccountPage page = shardedController.getAccounts(cursor, 3);
+            assertTrue(page.accounts().size() <= 3);
+            walked.addAll(page.accounts());
+            cursor = page.next().map(next -> AccountCursor.decode(next.encode())).orElse(null);
+            pages++;
+        }
+
+        assertEquals(created, walked);
+        assertTrue(pages >= 3);
+    }
+
+    @Test
+    public void getAccounts_shouldSeeEachAccountOnce_whenStorageIsRehashedBetweenPages() throws Throwable {
+        Reactor reactor = Reactor.withEmptyStorages(Reactor.newExecutors(2));
+        AccountController shardedController = new AccountController(reactor, Journal.DISABLED);
+        Set<Account> created = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            created.add(shardedController.createAccount());
+        }
+
+        List<Account> walked = new ArrayList<>();
+        AccountPage first = shardedController.getAccounts(AccountCursor.START, 4);
+        walked.addAll(first.accounts());
+        // grows each shard's table several times over
+        for (int i = 0; i < 200; i++) {
+            shardedController.createAccount();
+        }
+        AccountCursor cursor = first.next().orElse(null);
+        while (cursor != null) {
+            AccountPage page = shardedController.getAccounts(cursor, 4);
+            walked.addAll(page.accounts());
+            cursor = page.next().orElse(null);
+        }
+
+        for (Account account : created) {
+            assertEquals(1, walked.stream().filter(account::equals).count());
+        }
+        assertEquals(walked.size(), new HashSet<>(walked).size());
+    }
+}
@@ -2,17 +2,33 @@ package ru.ovchinnikov.controllers;
 
 import org.junit.Before;
 import org.junit.Test;
+import ru.ovchinnikov.journal.Journal;
+import ru.ovchinnikov.journal.JournalFailedException;
+import ru.ovchinnikov.journal.JournalRecord;
 import ru.ovchinnikov.model.Account;
+import ru.ovchinnikov.model.AccountSummary;
 import ru.ovchinnikov.model.Transaction;
+import ru.ovchinnikov.model.Transfer;
+import ru.ovchinnikov.model.TransferResult;
+import ru.ovchinnikov.reactor.Reactor;
+import ru.ovchinnikov.reactor.Shard;
 import ru.ovchinnikov.storage.AccountStorage;
+import ru.ovchinnikov.storage.Rollup;
 import ru.ovchinnikov.storage.TransactionStorage;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
+import static ru.ovchinnikov.ConfigConstant.MAX_ATOMIC_BATCH_SHARDS;
 import static ru.ovchinnikov.controllers.TransactionController.RECHARGE_DESC;
 import static ru.ovchinnikov.controllers.TransactionController.WITHDRAW_DESC;
 
@@ -45,8 +61,8 @@ public class TransactionControllerTest {
 
         controller.transfer(from.id(), to.id(), amount, "");
 
-        assertEquals(from.balance().subtract(amount), accountStorage.findAccountFor(from.id()).get().balance());
-        assertEquals(to.balance().add(amount), accountStorage.findAccountFor(to.id()).get().balance());
+        assertEquals(BigDecimal.TEN.subtract(amount), accountStorage.findAccountFor(from.id()).get().balance());
+        assertEquals(BigDecimal.ONE.add(amount), accountStorage.findAccountFor(to.id()).get().balance());
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -84,6 +100,158 @@ public class TransactionControllerTest {
         fail();
     }
 
+    @Test
+    public void transfer_shouldMoveMoney_whenAccountsLiveOnDifferentShards() throws Throwable {
+        Reactor reactor = twoShardReactor();
+        TransactionController shardedController = new TransactionController(reactor, Journal.DISABLED);
+        Shard source = reactor.shardFor(1);
+        Shard target = reactor.shardFor(2);
+        source.accountStorage().store(Account.create(1, BigDecimal.TEN));
+        target.accountStorage().store(Account.create(2, BigDecimal.ONE));
+
+        shardedController.transfer(1, 2, BigDecimal.ONE, "cross");
+
+        assertEquals(BigDecimal.valueOf(9), source.accountStorage().findAccountFor(1).get().balance());
+        assertEquals(BigDecimal.valueOf(2), target.accountStorage().findAccountFor(2).get().balance());
+        assertEquals(1, shardedController.getAllTransactions(1).size());
+        assertEquals(1, shardedController.getAllTransactions(2).size());
+    }
+
+    @Test
+    public void transfer_shouldReturnMoney_whenToAccountOnOtherShardIsAbsent() throws Throwable {
+        Reactor reactor = twoShardReactor();
+        TransactionController shardedController = new TransactionController(reactor, Journal.DISABLED);
+        Shard source = reactor.shardFor(1);
+        source.accountStorage().store(Account.create(1, BigDecimal.TEN));
+
+        try {
+            shardedController.transfer(1, 2, BigDecimal.ONE, "cross");
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals(BigDecimal.TEN, source.accountStorage().findAccountFor(1).get().balance());
+            assertTrue(shardedController.getAllTransactions(1).isEmpty());
+        }
+    }
+
+    @Test
+    public void getShardTransactions_shouldListEveryTransactionOnce_acrossShards() throws Throwable {
+        Reactor reactor = twoShardReactor();
+        TransactionController shardedController = new TransactionController(reactor, Journal.DISABLED);
+        reactor.shardFor(1).accountStorage().store(Account.create(1, BigDecimal.TEN));
+        reactor.shardFor(2).accountStorage().store(Account.create(2, BigDecimal.TEN));
+        reactor.shardFor(3).accountStorage().store(Account.create(3, BigDecimal.TEN));
+
+        shardedController.transfer(1, 2, BigDecimal.ONE, "cross");
+        shardedController.transfer(1, 3, BigDecimal.ONE, "same shard");
+        shardedController.recharge(2, BigDecimal.ONE);
+
+        List<Transaction> all = new ArrayList<>();
+        for (int shard = 0; shard < shardedController.shardCount(); shard++) {
+            all.addAll(shardedController.getShardTransactions(shard, Long.MIN_VALUE, Long.MAX_VALUE, null, 10)
+                    .transactions());
+        }
+        assertEquals(3, all.size());
+        assertEquals(1, all.stream().filter(transaction -> "cross".equals(transaction.description())).count());
+    }
+
+    @Test
+    public void transfer_shouldLeaveBothAccountsAsTheyWere_whenCreditOverflows() throws Throwable {
+        Reactor reactor = twoShardReactor();
+        TransactionController shardedController = new TransactionController(reactor, Journal.DISABLED);
+        reactor.shardFor(1).accountStorage().store(Account.create(1, BigDecimal.TEN));
+        reactor.shardFor(3).accountStorage().store(Account.create(3, Long.MAX_VALUE));
+
+        try {
+            shardedController.transfer(1, 3, BigDecimal.ONE, "overflow");
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // the credit failed after the debit
+        }
+
+        assertEquals(BigDecimal.TEN, reactor.shardFor(1).accountStorage().findAccountFor(1).get().balance());
+        assertEquals(Long.MAX_VALUE, reactor.shardFor(3).accountStorage().findAccountFor(3).get().balanceUnits());
+        assertTrue(shardedController.getAllTransactions(1).isEmpty());
+    }
+
+    @Test
+    public void transferBatch_shouldApplyEachTransferOnItsOwn_whenNotAtomic() throws Throwable {
+        Reactor reactor = twoShardReactor();
+        TransactionController shardedController = new TransactionController(reactor, Journal.DISABLED);
+        reactor.shardFor(1).accountStorage().store(Account.create(1, BigDecimal.TEN));
+        reactor.shardFor(2).accountStorage().store(Account.create(2, BigDecimal.ONE));
+        reactor.shardFor(3).accountStorage().store(Account.create(3, BigDecimal.ZERO));
+
+        List<TransferResult> results = shardedController.transferBatch(Arrays.asList(
+                Transfer.create(1, 2, BigDecimal.valueOf(4), "cross"),
+                Transfer.create(1, 3, BigDecimal.valueOf(7), "too much"),
+                Transfer.create(2, 5, BigDecimal.ONE, "nobody"),
+                Transfer.create(1, 3, BigDecimal.valueOf(6), "same shard")), false);
+
+        assertEquals(TransferResult.Status.DONE, results.get(0).status());
+        assertEquals(TransferResult.Status.REJECTED, results.get(1).status());
+        assertEquals(TransferResult.Status.NOT_FOUND, results.get(2).status());
+        assertEquals(TransferResult.Status.DONE, results.get(3).status());
+        assertEquals(BigDecimal.ZERO, reactor.shardFor(1).accountStorage().findAccountFor(1).get().balance());
+        assertEquals(BigDecimal.valueOf(5), reactor.shardFor(2).accountStorage().findAccountFor(2).get().balance());
+        assertEquals(BigDecimal.valueOf(6), reactor.shardFor(3).accountStorage().findAccountFor(3).get().balance());
+        assertEquals(2, shardedController.getAllTransactions(1).size());
+        assertEquals(1, shardedController.getAllTransactions(2).size());
+    }
+
+    @Test
+    public void transferBatch_shouldNotStopOtherShards_whenNotAtomic() throws Throwable {
+        Reactor reactor = twoShardReactor();
+        TransactionController shardedController = new TransactionController(reactor, Journal.DISABLED);
+        reactor.shardFor(1).accountStorage().store(Account.create(1, BigDecimal.TEN));
+        reactor.shardFor(2).accountStorage().store(Account.create(2, BigDecimal.ONE));
+        reactor.shardFor(3).accountStorage().store(Account.create(3, BigDecimal.ZERO));
+        CountDownLatch stopped = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        reactor.shardFor(2).submit(() -> {
+            stopped.countDown();
+            awaitUninterruptibly(release);
+            return null;
+        });
+        stopped.await();
+
+        CompletableFuture<List<TransferResult>> batch = shardedController.transferBatchAsync(Arrays.asList(
+                Transfer.create(1, 2, BigDecimal.valueOf(4), "cross"),
+                Transfer.create(1, 3, BigDecimal.valueOf(5), "same shard")), false).toCompletableFuture();
+        long balance = reactor.shardFor(1).submit(
+                () -> reactor.shardFor(3).accountStorage().findAccountFor(3).get().balanceUnits()).get();
+
+        assertEquals(500, balance);
+        assertFalse(batch.isDone());
+        release.countDown();
+        List<TransferResult> results = batch.get(5, TimeUnit.SECONDS);
+        assertEquals(TransferResult.Status.DONE, results.get(0).status());
+        assertEquals(TransferResult.Status.DONE, results.get(1).status());
+        assertEquals(BigDecimal.valueOf(5), reactor.shardFor(2).accountStorage().findAccountFor(2).get().balance());
+    }
+
+    @Test
+    public void transferBatch_shouldApplyNothing_whenAtomicAndAnyTransferFails() throws Throwable {
+        Reactor reactor = twoShardReactor();
+        TransactionController shardedController = new TransactionController(reactor, Journal.DISABLED);
+        reactor.shardFor(1).accountStorage().store(Account.create(1, BigDecimal.TEN));
+        reactor.shardFor(2).accountStorage().store(Account.create(2, BigDecimal.ONE));
+
+        List<TransferResult> results = shardedController.transferBatch(Arrays.asList(
+                Transfer.create(1, 2, BigDecimal.valueOf(4), "first"),
+                Transfer.create(2, 1, BigDecimal.valueOf(5), "second"),
+                Transfer.create(2, 1, BigDecimal.ONE, "too much"),
+                Transfer.create(1, 2, BigDecimal.ONE, "never tried")), true);
+
+        assertEquals(TransferResult.Status.ABORTED, results.get(0).status());
+        assertEquals(TransferResult.Status.ABORTED, results.get(1).status());
+        assertEquals(TransferResult.Status.REJECTED, results.get(2).status());
+        assertEquals(TransferResult.Status.ABORTED, results.get(3).status());
+        assertEquals(BigDecimal.TEN, reactor.shardFor(1).accountStorage().findAccountFor(1).get().balance());
+        assertEquals(BigDecimal.ONE, reactor.shardFor(2).accountStorage().findAccountFor(2).get().balance());
+        assertTrue(shardedController.getAllTransactions(1).isEmpty());
+        assertTrue(shardedController.getAllTransactions(2).isEmpty());
+    }
+
     @Test(expected = IllegalStateException.class)
     public void getAllTransactions_shouldThrowIllegalStateException_whenAccountIsAbsent() throws Throwable {
         controller.getAllTransactions(1);
@@ -102,7 +270,7 @@ public class TransactionControllerTest {
 
         assertEquals(1, transactions.size());
         assertTrue(transactions.contains(Transaction.create(account.id(), account.id(), amount.negate(), WITHDRAW_DESC, 1)));
-        assertEquals(account.balance().subtract(amount), accountStorage.findAccountFor(account.id()).get().balance());
+        assertEquals(BigDecimal.TEN.subtract(amount), accountStorage.findAccountFor(account.id()).get().balance());
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -132,7 +300,7 @@ public class TransactionControllerTest {
 
         assertEquals(1, transactions.size());
         assertTrue(transactions.contains(Transaction.create(account.id(), account.id(), amount, RECHARGE_DESC, 1)));
-        assertEquals(account.balance().add(amount), accountStorage.findAccountFor(account.id()).get().balance());
+        assertEquals(BigDecimal.TEN.add(amount), accountStorage.findAccountFor(account.id()).get().balance());
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -150,4 +318,121 @@ public class TransactionControllerTest {
 
         fail();
     }
+
+    @Test
+    public void transfer_shouldBeTurnedAwayBeforeRunning_whenJournalIsBackedUp() throws Throwable {
+        Reactor reactor = twoShardReactor();
+        TransactionController backedUp = new TransactionController(reactor, new Journal() {
+            @Override
+            public CompletableFuture<Void> append(JournalRecord record) {
+                throw new AssertionError("Nothing should run");
+            }
+
+            @Override
+            public long nextTransferId() {
+                return 0;
+            }
+
+            @Override
+            public boolean isBackedUp() {
+                return true;
+            }
+
+            @Override
+            public JournalFailedException failure() {
+                return null;
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        reactor.shardFor(1).accountStorage().store(Account.create(1, BigDecimal.TEN));
+        reactor.shardFor(2).accountStorage().store(Account.create(2));
+
+        try {
+            backedUp.transfer(1, 2, BigDecimal.ONE, "");
+            fail();
+        } catch (RejectedExecutionException e) {
+            assertEquals(BigDecimal.TEN, reactor.shardFor(1).accountStorage().findAccountFor(1).get().balance());
+        }
+    }
+
+    @Test
+    public void getSummary_shouldCountEveryMutation_acrossShards() throws Throwable {
+        Reactor reactor = twoShardReactor();
+        TransactionController shardedController = new TransactionController(reactor, Journal.DISABLED);
+        reactor.shardFor(1).accountStorage().store(Account.create(1));
+        reactor.shardFor(2).accountStorage().store(Account.create(2));
+
+        shardedController.recharge(1, BigDecimal.TEN);
+        shardedController.transfer(1, 2, BigDecimal.ONE, "cross");
+        shardedController.withdraw(2, BigDecimal.ONE);
+        shardedController.transfer(1, 1, BigDecimal.ONE, "to itself");
+
+        AccountSummary source = shardedController.getSummary(1, Rollup.DAY, Long.MIN_VALUE, Long.MAX_VALUE);
+        AccountSummary target = shardedController.getSummary(2, null, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(1_100, source.inflowUnits());
+        assertEquals(200, source.outflowUnits());
+        assertEquals(3, source.count());
+        assertEquals(1, source.buckets().size());
+        assertEquals(3, source.buckets().get(0).count());
+        assertEquals(100, target.inflowUnits());
+        assertEquals(100, target.outflowUnits());
+        assertEquals(2, target.count());
+    }
+
+    @Test
+    public void getSummary_shouldCountTransferToItselfAsBoth_whateverItsDescription() throws Throwable {
+        Account account = Account.create(1);
+        accountStorage.store(account);
+
+        controller.recharge(account.id(), BigDecimal.TEN);
+        controller.transfer(account.id(), account.id(), BigDecimal.ONE, RECHARGE_DESC);
+
+        AccountSummary summary = controller.getSummary(account.id(), null, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(1_100, summary.inflowUnits());
+        assertEquals(100, summary.outflowUnits());
+    }
+
+    @Test
+    public void transferBatch_shouldBeRefused_whenAtomicAndInvolvingTooManyShards() throws Throwable {
+        Reactor reactor = Reactor.withEmptyStorages(Reactor.newExecutors(MAX_ATOMIC_BATCH_SHARDS + 1));
+        TransactionController shardedController = new TransactionController(reactor, Journal.DISABLED);
+        List<Transfer> transfers = new ArrayList<>();
+        for (long id = 0; id <= MAX_ATOMIC_BATCH_SHARDS; id++) {
+            reactor.shardFor(id).accountStorage().store(Account.create(id, BigDecimal.TEN));
+            transfers.add(Transfer.create(id, (id + 1) % (MAX_ATOMIC_BATCH_SHARDS + 1), BigDecimal.ONE, "wide"));
+        }
+
+        assertEquals(MAX_ATOMIC_BATCH_SHARDS + 1, shardedController.shardsInvolved(transfers));
+        try {
+            shardedController.transferBatch(transfers, true);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // refused before any shard is stopped
+        }
+        assertEquals(BigDecimal.TEN, reactor.shardFor(0).accountStorage().findAccountFor(0).get().balance());
+        assertEquals(MAX_ATOMIC_BATCH_SHARDS + 1, shardedController.transferBatch(transfers, false).size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void getSummary_shouldThrowIllegalStateException_whenAccountIsAbsent() throws Throwable {
+        controller.getSummary(1, null, Long.MIN_VALUE, Long.MAX_VALUE);
+
+        fail();
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Reactor twoShardReactor() {
+        return Reactor.withEmptyStorages(new ExecutorService[]{
+                Executors.newSingleThreadExecutor(), Executors.newSingleThreadExecutor()});
+    }
 }
\ No newline at end of file
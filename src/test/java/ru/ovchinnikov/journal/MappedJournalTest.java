@@ -0,0 +1,183 @@
+package ru.ovchinnikov.journal;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.ovchinnikov.model.Account;
+import ru.ovchinnikov.model.Transaction;
+import ru.ovchinnikov.reactor.Reactor;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class MappedJournalTest {
+    private static final int SEGMENT_SIZE = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void open_shouldReplayAppendedRecords() throws Exception {
+        JournalConfig config = config(JournalConfig.Durability.SYNC);
+        try (MappedJournal journal = MappedJournal.open(config, (lsn, record) -> fail())) {
+            CompletableFuture.allOf(
+                    journal.append(JournalRecord.create(1)),
+                    journal.append(JournalRecord.create(2)),
+                    journal.append(JournalRecord.recharge(1, 1000, 10)),
+                    journal.append(JournalRecord.transfer(1, 2, 300, "rent", 20)),
+                    journal.append(JournalRecord.withdraw(2, 100, 30))
+            ).join();
+        }
+
+        Reactor reactor = singleShardReactor();
+        JournalReplayer replayer = new JournalReplayer(reactor);
+        MappedJournal.open(config, replayer).close();
+
+        assertEquals(5, replayer.replayed());
+        assertEquals(700, account(reactor, 1).balanceUnits());
+        assertEquals(200, account(reactor, 2).balanceUnits());
+        List<Transaction> transactions = reactor.shardFor(2).transactionStorage().findTransactionsFor(2);
+        assertEquals(2, transactions.size());
+        assertTrue(transactions.contains(Transaction.create(1, 2, 300, "rent", 20)));
+        assertTrue(transactions.contains(Transaction.create(2, 2, -100, Transaction.WITHDRAW_DESC, 30)));
+    }
+
+    @Test
+    public void append_shouldRollOverToNewSegment_whenSegmentIsFull() throws Exception {
+        JournalConfig config = config(JournalConfig.Durability.ASYNC);
+        int records = 3 * SEGMENT_SIZE / JournalRecord.FIXED_SIZE;
+        try (MappedJournal journal = MappedJournal.open(config, (lsn, record) -> fail())) {
+            List<CompletableFuture<Void>> appends = new ArrayList<>();
+            for (int i = 1; i <= records; i++) {
+                appends.add(journal.append(JournalRecord.create(i)));
+            }
+            CompletableFuture.allOf(appends.toArray(new CompletableFuture<?>[0])).join();
+        }
+
+        List<Long> lsns = new ArrayList<>();
+        MappedJournal.open(config, (lsn, record) -> lsns.add(lsn)).close();
+
+        assertEquals(records, lsns.size());
+        assertTrue(JournalSegment.list(folder.getRoot().toPath()).size() > 3);
+        for (int i = 1; i < lsns.size(); i++) {
+            assertTrue(lsns.get(i) > lsns.get(i - 1));
+        }
+    }
+
+    @Test
+    public void open_shouldDiscardTornRecord_andContinueAfterLastIntactOne() throws Exception {
+        JournalConfig config = config(JournalConfig.Durability.SYNC);
+        try (MappedJournal journal = MappedJournal.open(config, (lsn, record) -> fail())) {
+            journal.append(JournalRecord.create(1)).join();
+            journal.append(JournalRecord.create(2)).join();
+        }
+        Path segment = JournalSegment.list(folder.getRoot().toPath()).get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(JournalSegment.HEADER_SIZE + JournalRecord.FIXED_SIZE + JournalSegment.HEADER_SIZE + 3);
+            file.write(0x7f);
+        }
+
+        List<JournalRecord> replayed = new ArrayList<>();
+        try (MappedJournal journal = MappedJournal.open(config, (lsn, record) -> replayed.add(record))) {
+            journal.append(JournalRecord.create(3)).join();
+        }
+        assertEquals(1, replayed.size());
+        replayed.clear();
+        MappedJournal.open(config, (lsn, record) -> replayed.add(record)).close();
+
+        assertEquals(2, replayed.size());
+        assertEquals(1, replayed.get(0).from());
+        assertEquals(3, replayed.get(1).from());
+    }
+
+    @Test
+    public void refundUnsettledTransfers_shouldReturnMoneyOfTransferWithoutCredit() throws Exception {
+        JournalConfig config = config(JournalConfig.Durability.SYNC);
+        try (MappedJournal journal = MappedJournal.open(config, (lsn, record) -> fail())) {
+            journal.append(JournalRecord.create(1)).join();
+            journal.append(JournalRecord.create(2)).join();
+            journal.append(JournalRecord.recharge(1, 1000, 10)).join();
+            journal.append(JournalRecord.transferDebit(7, 1, 2, 400, "lost", 20)).join();
+        }
+
+        Reactor reactor = singleShardReactor();
+        JournalReplayer replayer = new JournalReplayer(reactor);
+        try (MappedJournal journal = MappedJournal.open(config, replayer)) {
+            assertEquals(600, account(reactor, 1).balanceUnits());
+            replayer.refundUnsettledTransfers(journal);
+            assertTrue(journal.nextTransferId() > 7);
+        }
+        assertEquals(1000, account(reactor, 1).balanceUnits());
+
+        Reactor restarted = singleShardReactor();
+        JournalReplayer secondReplayer = new JournalReplayer(restarted);
+        try (MappedJournal journal = MappedJournal.open(config, secondReplayer)) {
+            secondReplayer.refundUnsettledTransfers(journal);
+        }
+        assertEquals(1000, account(restarted, 1).balanceUnits());
+        assertEquals(0, account(restarted, 2).balanceUnits());
+    }
+
+    @Test
+    public void append_shouldNotWait_whenBackedUp() throws Exception {
+        JournalConfig config = new JournalConfig(folder.getRoot().toPath(), JournalConfig.Durability.SYNC,
+                SEGMENT_SIZE, 64, 0, 1, 1);
+        try (MappedJournal journal = MappedJournal.open(config, (lsn, record) -> fail())) {
+            List<CompletableFuture<Void>> appends = new ArrayList<>();
+            for (int i = 0; i < 1_000; i++) {
+                appends.add(journal.append(JournalRecord.create(i)));
+            }
+            CompletableFuture.allOf(appends.toArray(new CompletableFuture<?>[0])).join();
+
+            assertFalse(journal.isBackedUp());
+        }
+    }
+
+    @Test
+    public void append_shouldFail_whenJournalIsClosed() throws Exception {
+        MappedJournal journal = MappedJournal.open(config(JournalConfig.Durability.SYNC), (lsn, record) -> fail());
+        journal.close();
+
+        assertTrue(journal.append(JournalRecord.create(1)).isCompletedExceptionally());
+    }
+
+    @Test
+    public void append_shouldFailForGood_onceWritingFailed() throws Exception {
+        // too small for any record, so the first write fails
+        JournalConfig config = new JournalConfig(folder.getRoot().toPath(), JournalConfig.Durability.SYNC,
+                16, 64, 0, 1, 1024);
+        try (MappedJournal journal = MappedJournal.open(config, (lsn, record) -> fail())) {
+            try {
+                journal.append(JournalRecord.create(1)).join();
+                fail();
+            } catch (CompletionException e) {
+                assertTrue(e.getCause() instanceof JournalFailedException);
+            }
+
+            assertNotNull(journal.failure());
+            CompletableFuture<Void> later = journal.append(JournalRecord.create(2));
+            assertTrue(later.isCompletedExceptionally());
+            assertFalse(journal.isBackedUp());
+        }
+    }
+
+    private JournalConfig config(JournalConfig.Durability durability) {
+        return new JournalConfig(folder.getRoot().toPath(), durability, SEGMENT_SIZE, 64, 0, 1, 1024);
+    }
+
+    private static Reactor singleShardReactor() {
+        return Reactor.withEmptyStorages(new ExecutorService[]{Executors.newSingleThreadExecutor()});
+    }
+
+    private static Account account(Reactor reactor, long id) {
+        return reactor.shardFor(id).accountStorage().findAccountFor(id).get();
+    }
+}
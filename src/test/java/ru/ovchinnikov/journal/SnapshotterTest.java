@@ -0,0 +1,212 @@
+package ru.ovchinnikov.journal;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.ovchinnikov.model.Account;
+import ru.ovchinnikov.model.AccountSummary;
+import ru.ovchinnikov.model.Transaction;
+import ru.ovchinnikov.reactor.Reactor;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SnapshotterTest {
+    private static final int SEGMENT_SIZE = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recover_shouldRestoreStateFromSnapshotAndJournalTail() throws Exception {
+        JournalConfig config = config();
+        try (MappedJournal journal = MappedJournal.open(config, (lsn, record) -> fail());
+             Snapshotter snapshotter = new Snapshotter(journal)) {
+            append(journal,
+                    JournalRecord.create(1),
+                    JournalRecord.create(2),
+                    JournalRecord.recharge(1, 1000, 10),
+                    JournalRecord.transfer(1, 2, 300, "rent", 20));
+            assertTrue(snapshotter.takeSnapshot());
+            assertFalse(snapshotter.takeSnapshot());
+            append(journal,
+                    JournalRecord.withdraw(2, 100, 30),
+                    JournalRecord.create(3),
+                    JournalRecord.delete(3));
+            assertTrue(snapshotter.takeSnapshot());
+            append(journal, JournalRecord.recharge(2, 50, 40));
+        }
+
+        Reactor reactor = singleShardReactor();
+        Recovery.recover(config, reactor).close();
+
+        assertEquals(700, account(reactor, 1).balanceUnits());
+        assertEquals(250, account(reactor, 2).balanceUnits());
+        assertFalse(reactor.shardFor(3).accountStorage().findAccountFor(3).isPresent());
+        List<Transaction> transactions = reactor.shardFor(2).transactionStorage().findTransactionsFor(2);
+        assertEquals(3, transactions.size());
+        assertTrue(transactions.contains(Transaction.create(1, 2, 300, "rent", 20)));
+        assertTrue(transactions.contains(Transaction.create(2, 2, -100, Transaction.WITHDRAW_DESC, 30)));
+        assertTrue(transactions.contains(Transaction.create(2, 2, 50, Transaction.RECHARGE_DESC, 40)));
+        assertTrue(Account.create().id() > 3);
+    }
+
+    @Test
+    public void recover_shouldKeepKindsOfTransactionsFromSnapshot() throws Exception {
+        JournalConfig config = config();
+        try (MappedJournal journal = MappedJournal.open(config, (lsn, record) -> fail());
+             Snapshotter snapshotter = new Snapshotter(journal)) {
+            append(journal,
+                    JournalRecord.create(1),
+                    JournalRecord.recharge(1, 1000, 10),
+                    JournalRecord.transfer(1, 1, 100, Transaction.RECHARGE_DESC, 20));
+            assertTrue(snapshotter.takeSnapshot());
+        }
+
+        Reactor reactor = singleShardReactor();
+        Recovery.recover(config, reactor).close();
+
+        AccountSummary summary = reactor.shardFor(1).transactionStorage()
+                .summarize(1, null, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(1_100, summary.inflowUnits());
+        assertEquals(100, summary.outflowUnits());
+    }
+
+    @Test
+    public void recover_shouldRefundTransferLeftUnsettledInSnapshot() throws Exception {
+        JournalConfig config = config();
+        try (MappedJournal journal = MappedJournal.open(config, (lsn, record) -> fail());
+             Snapshotter snapshotter = new Snapshotter(journal)) {
+            append(journal,
+                    JournalRecord.create(1),
+                    JournalRecord.create(2),
+                    JournalRecord.recharge(1, 1000, 10),
+                    JournalRecord.transferDebit(7, 1, 2, 400, "lost", 20));
+            assertTrue(snapshotter.takeSnapshot());
+        }
+
+        Reactor reactor = singleShardReactor();
+        try (MappedJournal journal = Recovery.recover(config, reactor)) {
+            assertTrue(journal.nextTransferId() > 7);
+        }
+
+        assertEquals(1000, account(reactor, 1).balanceUnits());
+        assertEquals(0, account(reactor, 2).balanceUnits());
+    }
+
+    @Test
+    public void recover_shouldRestoreAccountsCreatedInBlocks() throws Exception {
+        JournalConfig config = config();
+        try (MappedJournal journal = MappedJournal.open(config, (lsn, record) -> fail())) {
+            append(journal,
+                    JournalRecord.createBlock(101, 107, 3),
+                    JournalRecord.createBlock(102, 107, 3),
+                    JournalRecord.createBlock(103, 107, 3),
+                    JournalRecord.recharge(105, 500, 10));
+        }
+
+        Reactor reactor = singleShardReactor();
+        Recovery.recover(config, reactor).close();
+
+        for (long id = 101; id <= 107; id++) {
+            assertTrue(reactor.shardFor(id).accountStorage().findAccountFor(id).isPresent());
+        }
+        assertFalse(reactor.shardFor(108).accountStorage().findAccountFor(108).isPresent());
+        assertEquals(500, account(reactor, 105).balanceUnits());
+        assertTrue(Account.create().id() > 107);
+    }
+
+    @Test
+    public void takeSnapshot_shouldRemoveSegmentsAndSnapshotsNoLongerNeeded() throws Exception {
+        JournalConfig config = config();
+        Path directory = folder.getRoot().toPath();
+        int records = 3 * SEGMENT_SIZE / JournalRecord.FIXED_SIZE;
+        try (MappedJournal journal = MappedJournal.open(config, (lsn, record) -> fail());
+             Snapshotter snapshotter = new Snapshotter(journal)) {
+            append(journal, JournalRecord.create(1));
+            for (int generation = 0; generation < 3; generation++) {
+                List<JournalRecord> recharges = new ArrayList<>();
+                for (int i = 0; i < records; i++) {
+                    recharges.add(JournalRecord.recharge(1, 1, i));
+                }
+                append(journal, recharges.toArray(new JournalRecord[0]));
+                assertTrue(snapshotter.takeSnapshot());
+            }
+            assertEquals(2, SnapshotFile.list(directory).size());
+            long previousLsn = SnapshotFile.lsnOf(SnapshotFile.list(directory).get(0));
+            List<Path> segments = JournalSegment.list(directory);
+            assertTrue(JournalSegment.baseLsnOf(segments.get(0)) <= previousLsn);
+            assertTrue(JournalSegment.baseLsnOf(segments.get(1)) > previousLsn);
+        }
+
+        Reactor reactor = singleShardReactor();
+        Recovery.recover(config, reactor).close();
+
+        assertEquals(3 * records, account(reactor, 1).balanceUnits());
+        assertEquals(3 * records, reactor.shardFor(1).transactionStorage().findTransactionsFor(1).size());
+    }
+
+    @Test
+    public void takeSnapshot_shouldNotCoverRecordsNotYetForced() throws Exception {
+        JournalConfig config = new JournalConfig(folder.getRoot().toPath(), JournalConfig.Durability.ASYNC,
+                SEGMENT_SIZE, 64, 0, TimeUnit.HOURS.toMillis(1), 1024);
+        try (MappedJournal journal = MappedJournal.open(config, (lsn, record) -> fail());
+             Snapshotter snapshotter = new Snapshotter(journal)) {
+            append(journal, JournalRecord.create(1), JournalRecord.recharge(1, 1000, 10));
+
+            assertEquals(0, journal.forcedLsn());
+            assertFalse(snapshotter.takeSnapshot());
+        }
+    }
+
+    @Test
+    public void recover_shouldNumberNewRecordsFromSnapshot_whenJournalEndsBelowIt() throws Exception {
+        JournalConfig config = config();
+        Path directory = folder.getRoot().toPath();
+        try (MappedJournal journal = MappedJournal.open(config, (lsn, record) -> fail());
+             Snapshotter snapshotter = new Snapshotter(journal)) {
+            append(journal, JournalRecord.create(1), JournalRecord.recharge(1, 1000, 10));
+            assertTrue(snapshotter.takeSnapshot());
+        }
+        // as if the OS crashed before the records reached the disk
+        for (Path segment : JournalSegment.list(directory)) {
+            Files.write(segment, new byte[(int) Files.size(segment)]);
+        }
+
+        try (MappedJournal journal = Recovery.recover(config, singleShardReactor())) {
+            append(journal, JournalRecord.recharge(1, 50, 20));
+        }
+        Reactor reactor = singleShardReactor();
+        Recovery.recover(config, reactor).close();
+
+        assertEquals(1050, account(reactor, 1).balanceUnits());
+    }
+
+    private static void append(MappedJournal journal, JournalRecord... records) {
+        List<CompletableFuture<Void>> appends = new ArrayList<>();
+        for (JournalRecord record : records) {
+            appends.add(journal.append(record));
+        }
+        CompletableFuture.allOf(appends.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    private JournalConfig config() {
+        return new JournalConfig(folder.getRoot().toPath(), JournalConfig.Durability.SYNC, SEGMENT_SIZE, 64, 0, 1, 1024);
+    }
+
+    private static Reactor singleShardReactor() {
+        return Reactor.withEmptyStorages(new ExecutorService[]{Executors.newSingleThreadExecutor()});
+    }
+
+    private static Account account(Reactor reactor, long id) {
+        return reactor.shardFor(id).accountStorage().findAccountFor(id).get();
+    }
+}
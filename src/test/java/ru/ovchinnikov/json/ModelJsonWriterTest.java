@@ -0,0 +1,77 @@
+package ru.ovchinnikov.json;
+
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
+import org.junit.Test;
+import ru.ovchinnikov.model.Account;
+import ru.ovchinnikov.model.Transaction;
+
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.MediaType;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ModelJsonWriterTest {
+    // set up as jersey-media-json-jackson sets it up
+    private static final ObjectMapper MAPPER = new ObjectMapper().setAnnotationIntrospector(
+            AnnotationIntrospector.pair(new JacksonAnnotationIntrospector(),
+                    new JaxbAnnotationIntrospector(TypeFactory.defaultInstance())));
+    private final ModelJsonWriter writer = new ModelJsonWriter();
+
+    @Test
+    public void writeTo_shouldWriteAccountsAsJacksonDoes() throws IOException {
+        List<Account> accounts = Arrays.asList(Account.create(1, 0), Account.create(2, -50), Account.create(3, 100),
+                Account.create(4, 12_345), Account.create(5, 1_000_000), Account.create(6, Long.MIN_VALUE),
+                Account.create(Long.MAX_VALUE, Long.MAX_VALUE));
+
+        assertSameAsJackson(ModelJsonWriter.accounts(accounts));
+        assertSameAsJackson(accounts.get(3));
+    }
+
+    @Test
+    public void writeTo_shouldWriteTransactionsAsJacksonDoes() throws IOException {
+        List<Transaction> transactions = Arrays.asList(
+                Transaction.create(1, 2, 1_050, "plain", 1_500_000_000_000L),
+                Transaction.create(2, 1, -7, "", 0),
+                Transaction.create(3, 4, 5, "quote \" backslash \\ slash / tab \t newline \n bell \u0007", 1),
+                Transaction.create(4, 3, 20, "юникод € 😀", Long.MAX_VALUE),
+                Transaction.create(5, 6, 1, null, 2));
+
+        assertSameAsJackson(ModelJsonWriter.transactions(transactions));
+        assertSameAsJackson(ModelJsonWriter.transactions(Collections.emptyList()));
+        assertSameAsJackson(transactions.get(2));
+        assertSameAsJackson(transactions.get(4));
+    }
+
+    @Test
+    public void isWriteable_shouldLeaveCollectionsOfUnknownElementsToJackson() {
+        assertTrue(writer.isWriteable(List.class, ModelJsonWriter.accounts(Collections.emptyList()).getType(),
+                new Annotation[0], MediaType.APPLICATION_JSON_TYPE));
+        assertFalse(writer.isWriteable(List.class, List.class, new Annotation[0], MediaType.APPLICATION_JSON_TYPE));
+        assertFalse(writer.isWriteable(String.class, String.class, new Annotation[0],
+                MediaType.APPLICATION_JSON_TYPE));
+    }
+
+    private void assertSameAsJackson(Object entity) throws IOException {
+        Object value = entity instanceof GenericEntity ? ((GenericEntity<?>) entity).getEntity() : entity;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.writeTo(value, value.getClass(), entity instanceof GenericEntity
+                        ? ((GenericEntity<?>) entity).getType() : value.getClass(), new Annotation[0],
+                MediaType.APPLICATION_JSON_TYPE, null, output);
+
+        JsonNode expected = MAPPER.readTree(MAPPER.writeValueAsBytes(value));
+        assertEquals(expected, MAPPER.readTree(output.toByteArray()));
+    }
+}
@@ -0,0 +1,71 @@
+package ru.ovchinnikov.json;
+
+import org.junit.Test;
+import ru.ovchinnikov.model.Transfer;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.MediaType;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TransferListReaderTest {
+    private static final GenericType<List<Transfer>> TRANSFERS = new GenericType<List<Transfer>>() {
+    };
+    private final TransferListReader reader = new TransferListReader();
+
+    @Test
+    public void readFrom_shouldReadEveryField() throws IOException {
+        List<Transfer> transfers = read("[{\"from\": 1, \"to\": \"2\", \"amount\": 10, \"description\": \"rent\"},"
+                + " {\"amount\": 0.5, \"to\": 4, \"from\": 3}, {\"from\": 5, \"to\": 6, \"amount\": \"7.25\"}]");
+
+        assertEquals(3, transfers.size());
+        assertTransfer(transfers.get(0), 1, 2, 1_000, "rent");
+        assertTransfer(transfers.get(1), 3, 4, 50, "");
+        assertTransfer(transfers.get(2), 5, 6, 725, "");
+    }
+
+    @Test
+    public void readFrom_shouldReturnNull_whenBodyIsEmptyOrNull() throws IOException {
+        assertNull(read(""));
+        assertNull(read("null"));
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void readFrom_shouldThrowBadRequest_onUnknownField() throws IOException {
+        read("[{\"from\": 1, \"to\": 2, \"amount\": 1, \"currency\": \"EUR\"}]");
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void readFrom_shouldThrowBadRequest_whenAmountHasTooManyDigits() throws IOException {
+        read("[{\"from\": 1, \"to\": 2, \"amount\": 0.001}]");
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void readFrom_shouldThrowBadRequest_whenAmountOverflows() throws IOException {
+        read("[{\"from\": 1, \"to\": 2, \"amount\": " + Long.MAX_VALUE + "}]");
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void readFrom_shouldThrowBadRequest_onMalformedBody() throws IOException {
+        read("[{\"from\": 1, \"to\": 2");
+    }
+
+    private List<Transfer> read(String body) throws IOException {
+        return reader.readFrom(null, TRANSFERS.getType(), new Annotation[0], MediaType.APPLICATION_JSON_TYPE, null,
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static void assertTransfer(Transfer transfer, long from, long to, long amount, String description) {
+        assertEquals(from, transfer.from());
+        assertEquals(to, transfer.to());
+        assertEquals(amount, transfer.amountUnits());
+        assertEquals(description, transfer.description());
+    }
+}
@@ -0,0 +1,85 @@
+package ru.ovchinnikov.load;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of durations like {@link ru.ovchinnikov.metrics.LatencyHistogram}, but with
+ * {@link #SUB_BUCKETS} buckets per power of two, so a percentile is off by less than 1%. Counts nanoseconds
+ * up to about 2^40 ns, some 18 minutes; the maximum is kept exactly.
+ */
+// @ThreadSafe
+final class Histogram {
+    private static final int SUB_BITS = 7;
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS + SUB_BUCKETS;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long nanos) {
+        long duration = Math.max(nanos, 0);
+        counts.incrementAndGet(index(duration));
+        count.incrementAndGet();
+        long current;
+        while ((current = max.get()) < duration && !max.compareAndSet(current, duration)) {
+            // retry until the max is at least the duration
+        }
+    }
+
+    long count() {
+        return count.get();
+    }
+
+    long maxNanos() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile within (0, 100]
+     * @return upper bound of the bucket holding the value the given share of durations doesn't exceed,
+     * capped by the maximum
+     */
+    long percentileNanos(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundNanos(i) - 1, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    static int index(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (nanos >>> exponent - SUB_BITS) & SUB_BUCKETS - 1;
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    // exclusive upper bound of the bucket
+    static long upperBoundNanos(int index) {
+        if (index < SUB_BUCKETS) {
+            return index + 1;
+        }
+        if (index == BUCKETS - 1) {
+            return Long.MAX_VALUE;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        long lower = (SUB_BUCKETS + subBucket) << exponent - SUB_BITS;
+        return lower + (1L << exponent - SUB_BITS);
+    }
+}
@@ -0,0 +1,31 @@
+package ru.ovchinnikov.load;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HistogramTest {
+
+    @Test
+    public void percentile_shouldBeWithinOnePercent() {
+        Histogram histogram = new Histogram();
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        assertEquals(10_000, histogram.count());
+        assertEquals(5_000_000, histogram.percentileNanos(50), 50_000);
+        assertEquals(9_900_000, histogram.percentileNanos(99), 99_000);
+        assertEquals(10_000_000, histogram.percentileNanos(100));
+        assertEquals(10_000_000, histogram.maxNanos());
+    }
+
+    @Test
+    public void index_shouldMatchBucketBounds() {
+        for (long nanos : new long[]{0, 1, 127, 128, 129, 1_000, 123_456_789, 1L << 40}) {
+            int index = Histogram.index(nanos);
+            assertTrue(nanos < Histogram.upperBoundNanos(index));
+            assertTrue(index == 0 || nanos >= Histogram.upperBoundNanos(index - 1));
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package ru.ovchinnikov.load;
+
+import org.glassfish.grizzly.http.server.HttpServer;
+import ru.ovchinnikov.Main;
+import ru.ovchinnikov.model.AccountRange;
+import ru.ovchinnikov.rest.AccountService;
+import ru.ovchinnikov.rest.TransactionService;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator: sends requests at a fixed rate whether or not earlier ones have been answered,
+ * so queueing in the server shows up in the latency instead of slowing the load down. Every request has
+ * the time it was due to be sent, and its latency is counted from that time, not from when a connection
+ * got free to send it, which corrects for coordinated omission. Service time, counted from the actual send,
+ * is reported next to it; where the two part, requests have been queueing.
+ * <p>
+ * Runs one step per given rate, so a sweep like {@code --rate=1000,2000,4000,8000} shows where the server
+ * stops keeping up. Without {@code --url} starts the embedded server, configured by the usual system
+ * properties. Accounts are created in one block and funded before the first step; which account a request
+ * goes to is drawn from a Zipfian distribution, so a few accounts, and their shards, are hot.
+ * <pre>
+ *   bin/load.sh --rate=2000,4000 --duration=30 --accounts=10000 --skew=0.99 \
+ *       --mix=transfer=70,recharge=5,withdraw=5,get=15,history=5
+ * </pre>
+ */
+public final class LoadGenerator {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+    private static final String AMOUNT = "0.01";
+    private static final Map<String, String> DEFAULTS = new HashMap<>();
+
+    static {
+        DEFAULTS.put("rate", "1000");
+        DEFAULTS.put("duration", "30");
+        DEFAULTS.put("warmup", "5");
+        DEFAULTS.put("accounts", "1000");
+        DEFAULTS.put("skew", "0.99");
+        DEFAULTS.put("mix", "transfer=70,recharge=5,withdraw=5,get=15,history=5");
+        DEFAULTS.put("balance", "1000");
+        DEFAULTS.put("connections", "64");
+        DEFAULTS.put("seed", "42");
+        DEFAULTS.put("url", "");
+    }
+
+    private final WebTarget accounts;
+    private final int connections;
+    private final OperationMix mix;
+    private final Zipfian zipfian;
+    private final long accountCount;
+    private final Random random;
+    private long firstAccount;
+
+    private LoadGenerator(WebTarget accounts, int connections, OperationMix mix, long accountCount, double skew,
+                          long seed) {
+        this.accounts = accounts;
+        this.connections = connections;
+        this.mix = mix;
+        this.zipfian = new Zipfian(accountCount, skew);
+        this.accountCount = accountCount;
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = parse(args);
+        int connections = Integer.parseInt(options.get("connections"));
+        // the JDK connector keeps only 5 idle connections per host otherwise
+        System.setProperty("http.maxConnections", String.valueOf(connections));
+        String url = options.get("url");
+        HttpServer server = url.isEmpty() ? Main.startServer() : null;
+        Client client = ClientBuilder.newClient();
+        try {
+            WebTarget accounts = client.target(url.isEmpty() ? Main.BASE_URI : url).path(AccountService.ACCOUNTS);
+            LoadGenerator generator = new LoadGenerator(accounts, connections, OperationMix.parse(options.get("mix")),
+                    Long.parseLong(options.get("accounts")), Double.parseDouble(options.get("skew")),
+                    Long.parseLong(options.get("seed")));
+            generator.prepare(options.get("balance"));
+            System.out.printf(Locale.ROOT, "%d accounts, skew %s, mix %s, %d connections%n",
+                    generator.accountCount, options.get("skew"), generator.mix, connections);
+            long duration = TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("duration")));
+            long warmup = TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("warmup")));
+            Double saturation = null;
+            for (String rate : options.get("rate").split(",")) {
+                Step step = generator.run(Double.parseDouble(rate), warmup, duration);
+                step.report(System.out);
+                if (saturation == null && !step.keptUp()) {
+                    saturation = step.rate;
+                }
+            }
+            System.out.println(saturation == null ? "Every rate was sustained"
+                    : String.format(Locale.ROOT, "First rate not sustained: %.0f/s", saturation));
+        } finally {
+            client.close();
+            if (server != null) {
+                Main.stopServer(server);
+            }
+        }
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            String name = arg.startsWith("--") && separator > 2 ? arg.substring(2, separator) : null;
+            if (name == null || !DEFAULTS.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown option " + arg + ", expected --name=value with name one of "
+                        + DEFAULTS.keySet());
+            }
+            options.put(name, arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    // creates the accounts in one block and funds each, a connection's worth of requests at a time
+    private void prepare(String balance) throws InterruptedException {
+        Response created = accounts.queryParam("count", accountCount).request(MediaType.APPLICATION_JSON)
+                .post(Entity.json(""));
+        if (created.getStatus() != Response.Status.CREATED.getStatusCode()) {
+            throw new IllegalStateException("Couldn't create accounts: " + created.getStatus());
+        }
+        firstAccount = created.readEntity(AccountRange.class).first();
+        if (Double.parseDouble(balance) <= 0) {
+            return;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(connections);
+        for (long id = firstAccount; id < firstAccount + accountCount; id++) {
+            long account = id;
+            pool.execute(() -> close(post(accounts.path(account + TransactionService.RECHARGE)
+                    .queryParam("amount", balance))));
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.HOURS);
+    }
+
+    private Step run(double rate, long warmup, long duration) throws InterruptedException {
+        Step step = new Step(rate);
+        ExecutorService pool = Executors.newFixedThreadPool(connections);
+        long start = System.nanoTime();
+        long measuredFrom = start + warmup;
+        long end = measuredFrom + duration;
+        step.measuredFrom = measuredFrom;
+        for (long i = 0; ; i++) {
+            long due = start + (long) (i * 1e9 / rate);
+            if (due >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            OperationMix.Operation operation = mix.next(random);
+            long account = nextAccount();
+            long counterpart = operation == OperationMix.Operation.TRANSFER ? nextCounterpart(account) : account;
+            boolean measured = due >= measuredFrom;
+            pool.execute(() -> {
+                long sent = System.nanoTime();
+                int status = send(operation, account, counterpart);
+                long done = System.nanoTime();
+                if (measured) {
+                    step.record(due, sent, done, status);
+                }
+            });
+        }
+        step.dispatchedUntil = System.nanoTime();
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.HOURS);
+        return step;
+    }
+
+    private long nextAccount() {
+        return firstAccount + zipfian.next(random);
+    }
+
+    private long nextCounterpart(long from) {
+        long to = nextAccount();
+        return to != from ? to : firstAccount + (to - firstAccount + 1) % accountCount;
+    }
+
+    // HTTP status, or 0 if the request failed without one
+    private int send(OperationMix.Operation operation, long account, long counterpart) {
+        try {
+            switch (operation) {
+                case TRANSFER:
+                    return close(post(accounts.path(account + TransactionService.TRANSFER)
+                            .queryParam("to", counterpart).queryParam("amount", AMOUNT).queryParam("desc", "load")));
+                case RECHARGE:
+                    return close(post(accounts.path(account + TransactionService.RECHARGE)
+                            .queryParam("amount", AMOUNT)));
+                case WITHDRAW:
+                    return close(post(accounts.path(account + TransactionService.WITHDRAW)
+                            .queryParam("amount", AMOUNT)));
+                case GET:
+                    return close(accounts.path(String.valueOf(account)).request(MediaType.APPLICATION_JSON).get());
+                case HISTORY:
+                    return close(accounts.path(account + TransactionService.TRANSACTIONS).queryParam("limit", 10)
+                            .request(MediaType.APPLICATION_JSON).get());
+                default:
+                    throw new IllegalArgumentException("Unknown operation " + operation);
+            }
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    private static Response post(WebTarget target) {
+        return target.request(MediaType.APPLICATION_JSON).post(Entity.json(""));
+    }
+
+    // reads the body out, so the connection can be reused
+    private static int close(Response response) {
+        try {
+            if (response.hasEntity()) {
+                response.readEntity(String.class);
+            }
+            return response.getStatus();
+        } finally {
+            response.close();
+        }
+    }
+
+    private static final class Step {
+        private static final int MAX_STATUS = 600;
+        private final double rate;
+        private final Histogram latency = new Histogram();
+        private final Histogram serviceTime = new Histogram();
+        private final AtomicLongArray statuses = new AtomicLongArray(MAX_STATUS);
+        private final AtomicLong succeeded = new AtomicLong();
+        private final AtomicLong lastDone = new AtomicLong();
+        private long measuredFrom;
+        private long dispatchedUntil;
+
+        private Step(double rate) {
+            this.rate = rate;
+        }
+
+        private void record(long due, long sent, long done, int status) {
+            latency.record(done - due);
+            serviceTime.record(done - sent);
+            statuses.incrementAndGet(status >= 0 && status < MAX_STATUS ? status : 0);
+            if (status >= 200 && status < 300) {
+                succeeded.incrementAndGet();
+            }
+            lastDone.accumulateAndGet(done, Math::max);
+        }
+
+        // of successful requests only, as errors are usually cheaper than the work asked for
+        private double throughput() {
+            long elapsed = Math.max(lastDone.get(), dispatchedUntil) - measuredFrom;
+            return elapsed <= 0 ? 0 : succeeded.get() * 1e9 / elapsed;
+        }
+
+        private double errorRate() {
+            long count = latency.count();
+            return count == 0 ? 0 : (count - succeeded.get()) * 100.0 / count;
+        }
+
+        // successful requests within 5% of the rate asked for
+        private boolean keptUp() {
+            return throughput() >= rate * 0.95;
+        }
+
+        private void report(PrintStream out) {
+            Map<Integer, Long> byStatus = new TreeMap<>();
+            for (int status = 0; status < MAX_STATUS; status++) {
+                if (statuses.get(status) > 0) {
+                    byStatus.put(status, statuses.get(status));
+                }
+            }
+            out.printf(Locale.ROOT, "rate %.0f/s: %d requests, throughput %.1f/s, errors %.2f%%, by status %s%n",
+                    rate, latency.count(), throughput(), errorRate(), byStatus);
+            out.println("  latency      " + percentiles(latency));
+            out.println("  service time " + percentiles(serviceTime));
+        }
+
+        private static String percentiles(Histogram histogram) {
+            List<String> columns = new ArrayList<>();
+            for (double percentile : PERCENTILES) {
+                columns.add(String.format(Locale.ROOT, "p%s %.3f ms", format(percentile),
+                        histogram.percentileNanos(percentile) / 1e6));
+            }
+            columns.add(String.format(Locale.ROOT, "max %.3f ms", histogram.maxNanos() / 1e6));
+            return String.join("  ", columns);
+        }
+
+        private static String format(double percentile) {
+            return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ru.ovchinnikov.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Weighted choice among operations, parsed from {@code name=weight} pairs separated by commas, e.g.
+ * {@code transfer=80,get=20}.
+ */
+// @Immutable
+final class OperationMix {
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    private OperationMix(Operation[] operations, int[] cumulativeWeights) {
+        this.operations = operations;
+        this.cumulativeWeights = cumulativeWeights;
+    }
+
+    static OperationMix parse(String mix) {
+        List<Operation> operations = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        int total = 0;
+        for (String pair : mix.split(",")) {
+            String[] parts = pair.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected name=weight, got " + pair);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight of " + parts[0]);
+            }
+            total += weight;
+            operations.add(Operation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)));
+            weights.add(total);
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("No operation has weight in " + mix);
+        }
+        return new OperationMix(operations.toArray(new Operation[0]),
+                weights.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    Operation next(Random random) {
+        int point = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (cumulativeWeights[i] <= point) {
+            i++;
+        }
+        return operations[i];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < operations.length; i++) {
+            int weight = cumulativeWeights[i] - (i == 0 ? 0 : cumulativeWeights[i - 1]);
+            builder.append(i == 0 ? "" : ",").append(operations[i].name().toLowerCase(Locale.ROOT))
+                    .append('=').append(weight);
+        }
+        return builder.toString();
+    }
+
+    enum Operation {
+        TRANSFER, RECHARGE, WITHDRAW, GET, HISTORY
+    }
+}
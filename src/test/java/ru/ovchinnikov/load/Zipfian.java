@@ -0,0 +1,58 @@
+package ru.ovchinnikov.load;
+
+import java.util.Random;
+
+/**
+ * Ranks in [0, n) with rank k drawn with probability proportional to 1 / (k + 1)^skew, by the method of
+ * Gray et al., "Quickly Generating Billion-Record Synthetic Databases", the one YCSB uses. Rank 0 is the
+ * hottest. Skew 0 is uniform; the closer it is to 1, the more requests go to the first few ranks.
+ * Setting up costs O(n), drawing is O(1).
+ */
+// @ThreadSafe
+final class Zipfian {
+    private final long n;
+    private final double skew;
+    private final double zetaN;
+    private final double alpha;
+    private final double eta;
+    private final double secondRankThreshold;
+
+    Zipfian(long n, double skew) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Expected at least one rank, got " + n);
+        }
+        if (skew < 0 || skew >= 1) {
+            throw new IllegalArgumentException("Skew must be within [0, 1), got " + skew);
+        }
+        this.n = n;
+        this.skew = skew;
+        this.zetaN = zeta(n, skew);
+        this.alpha = 1 / (1 - skew);
+        // unused with less than three ranks, those are all drawn by the thresholds
+        this.eta = (1 - Math.pow(2.0 / n, 1 - skew)) / (1 - zeta(Math.min(n, 2), skew) / zetaN);
+        this.secondRankThreshold = 1 + Math.pow(0.5, skew);
+    }
+
+    long next(Random random) {
+        if (skew == 0) {
+            return (long) (random.nextDouble() * n);
+        }
+        double u = random.nextDouble();
+        double uz = u * zetaN;
+        if (uz < 1) {
+            return 0;
+        }
+        if (uz < secondRankThreshold) {
+            return 1;
+        }
+        return Math.min(n - 1, (long) (n * Math.pow(eta * u - eta + 1, alpha)));
+    }
+
+    private static double zeta(long n, double skew) {
+        double sum = 0;
+        for (long i = 1; i <= n; i++) {
+            sum += 1 / Math.pow(i, skew);
+        }
+        return sum;
+    }
+}
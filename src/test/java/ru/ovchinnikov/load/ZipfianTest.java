@@ -0,0 +1,56 @@
+package ru.ovchinnikov.load;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ZipfianTest {
+
+    @Test
+    public void next_shouldFavourLowRanks_inProportionToSkew() {
+        Zipfian zipfian = new Zipfian(1000, 0.99);
+        Random random = new Random(1);
+        int[] counts = new int[1000];
+        for (int i = 0; i < 100_000; i++) {
+            counts[(int) zipfian.next(random)]++;
+        }
+
+        // 1 / zeta(1000, 0.99) is about 13% of draws for the hottest rank, half as many for the next one
+        assertTrue(counts[0] > 11_000 && counts[0] < 15_000);
+        assertEquals(2.0, (double) counts[0] / counts[1], 0.2);
+        assertTrue(counts[0] > 50 * counts[999]);
+    }
+
+    @Test
+    public void next_shouldStayWithinRanks() {
+        Random random = new Random(1);
+        for (long n : new long[]{1, 2, 3, 10}) {
+            Zipfian zipfian = new Zipfian(n, 0.5);
+            for (int i = 0; i < 10_000; i++) {
+                long rank = zipfian.next(random);
+                assertTrue(rank >= 0 && rank < n);
+            }
+        }
+    }
+
+    @Test
+    public void next_shouldBeUniform_whenSkewIsZero() {
+        Zipfian zipfian = new Zipfian(10, 0);
+        Random random = new Random(1);
+        int[] counts = new int[10];
+        for (int i = 0; i < 100_000; i++) {
+            counts[(int) zipfian.next(random)]++;
+        }
+
+        for (int count : counts) {
+            assertEquals(10_000, count, 500);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_shouldThrowIllegalArgumentException_whenSkewIsOne() {
+        new Zipfian(10, 1);
+    }
+}
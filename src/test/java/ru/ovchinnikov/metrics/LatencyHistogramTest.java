@@ -0,0 +1,46 @@
+package ru.ovchinnikov.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void index_shouldPutValueBelowUpperBoundOfItsBucket() {
+        for (long nanos = 0; nanos < TimeUnit.SECONDS.toNanos(20); nanos = nanos * 3 / 2 + 7) {
+            int index = LatencyHistogram.index(nanos);
+            assertTrue(nanos < LatencyHistogram.upperBoundNanos(index));
+            assertTrue(index == 0 || nanos >= LatencyHistogram.upperBoundNanos(index - 1));
+        }
+    }
+
+    @Test
+    public void index_shouldKeepRelativeErrorWithinSubBucket() {
+        for (long nanos = TimeUnit.MICROSECONDS.toNanos(10); nanos < TimeUnit.SECONDS.toNanos(20); nanos *= 3) {
+            long upper = LatencyHistogram.upperBoundNanos(LatencyHistogram.index(nanos));
+            assertTrue((upper - nanos) * LatencyHistogram.SUB_BUCKETS <= upper);
+        }
+    }
+
+    @Test
+    public void index_shouldPutVeryLongDurationsToLastBucket() {
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.index(TimeUnit.HOURS.toNanos(1)));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.index(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void record_shouldCountAndSumDurations() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        histogram.record(-5);
+
+        assertEquals(2, histogram.count(LatencyHistogram.index(TimeUnit.MILLISECONDS.toNanos(1))));
+        assertEquals(1, histogram.count(0));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(2), histogram.sumNanos());
+    }
+}
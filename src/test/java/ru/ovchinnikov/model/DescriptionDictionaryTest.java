@@ -0,0 +1,61 @@
+package ru.ovchinnikov.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.AnnotationIntrospectorPair;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DescriptionDictionaryTest {
+
+    @Test
+    public void encode_shouldKnowWithdrawAndRechargeFromStart() {
+        DescriptionDictionary dictionary = new DescriptionDictionary(16, 64);
+
+        int code = dictionary.encode(Transaction.WITHDRAW_DESC);
+
+        assertNotEquals(DescriptionDictionary.NOT_ENCODED, code);
+        assertSame(Transaction.WITHDRAW_DESC, dictionary.decode(code));
+        assertNotEquals(DescriptionDictionary.NOT_ENCODED, dictionary.encode(Transaction.RECHARGE_DESC));
+    }
+
+    @Test
+    public void encode_shouldAdmitValueOnSecondSighting() {
+        DescriptionDictionary dictionary = new DescriptionDictionary(16, 64);
+
+        assertEquals(DescriptionDictionary.NOT_ENCODED, dictionary.encode("rent"));
+        int code = dictionary.encode(new String("rent"));
+
+        assertNotEquals(DescriptionDictionary.NOT_ENCODED, code);
+        assertEquals(code, dictionary.encode("rent"));
+        assertEquals("rent", dictionary.decode(code));
+    }
+
+    @Test
+    public void encode_shouldLeaveValuesUnencoded_whenTooLongOrFull() {
+        DescriptionDictionary dictionary = new DescriptionDictionary(4, 8);
+        dictionary.encode("salary");
+        dictionary.encode("salary");
+
+        dictionary.encode("rent");
+        assertEquals(DescriptionDictionary.NOT_ENCODED, dictionary.encode("rent"));
+        dictionary.encode("too long for it");
+        assertEquals(DescriptionDictionary.NOT_ENCODED, dictionary.encode("too long for it"));
+        assertEquals(4, dictionary.size());
+    }
+
+    @Test
+    public void serializer_shouldWriteEncodedAndPlainDescriptions() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().setAnnotationIntrospector(new AnnotationIntrospectorPair(
+                new JacksonAnnotationIntrospector(), new JaxbAnnotationIntrospector(TypeFactory.defaultInstance())));
+
+        String withdraw = mapper.writeValueAsString(Transaction.create(1, 1, -100, Transaction.WITHDRAW_DESC, 10));
+        String plain = mapper.writeValueAsString(Transaction.create(1, 2, 100, "\"quoted\" once", 10));
+
+        assertTrue(withdraw, withdraw.contains("\"description\":\"Withdraw\""));
+        assertTrue(plain, plain.contains("\"description\":\"\\\"quoted\\\" once\""));
+    }
+}
@@ -0,0 +1,44 @@
+package ru.ovchinnikov.model;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+
+public class MoneyTest {
+
+    @Test
+    public void toUnits() {
+        assertEquals(5030, Money.toUnits(new BigDecimal("50.3")));
+        assertEquals(-100, Money.toUnits(BigDecimal.ONE.negate()));
+        assertEquals(0, Money.toUnits(BigDecimal.ZERO));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void toUnits_shouldThrowIllegalArgumentException_whenAmountHasTooManyDigits() {
+        Money.toUnits(new BigDecimal("0.001"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void toUnits_shouldThrowIllegalArgumentException_whenAmountDoesNotFitLong() {
+        Money.toUnits(BigDecimal.valueOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void toDecimal() {
+        assertEquals(new BigDecimal("50.3"), Money.toDecimal(5030));
+        assertEquals(BigDecimal.valueOf(200), Money.toDecimal(20000));
+        assertEquals(BigDecimal.ZERO, Money.toDecimal(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_shouldThrowIllegalArgumentException_onOverflow() {
+        Money.add(Long.MAX_VALUE, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void subtract_shouldThrowIllegalArgumentException_onOverflow() {
+        Money.subtract(Long.MIN_VALUE, 1);
+    }
+}
@@ -0,0 +1,221 @@
+package ru.ovchinnikov.reactor;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class CommandRingTest {
+    private static final int PRODUCERS = 4;
+    private static final int COMMANDS_PER_PRODUCER = 10_000;
+
+    private final ExecutorService consumer = Executors.newSingleThreadExecutor();
+    private final ExecutorService producers = Executors.newFixedThreadPool(PRODUCERS);
+
+    @After
+    public void tearDown() {
+        producers.shutdownNow();
+        consumer.shutdownNow();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void new_shouldRejectCapacityNotPowerOfTwo() {
+        new CommandRing(6, WaitStrategy.BLOCKING);
+    }
+
+    @Test
+    public void publish_shouldRunEveryCommandOnce_whenRingWrapsAround_blocking() throws Exception {
+        runEveryCommandOnce(WaitStrategy.BLOCKING);
+    }
+
+    @Test
+    public void publish_shouldRunEveryCommandOnce_whenRingWrapsAround_yielding() throws Exception {
+        runEveryCommandOnce(WaitStrategy.YIELDING);
+    }
+
+    @Test
+    public void publish_shouldRunEveryCommandOnce_whenRingWrapsAround_busySpin() throws Exception {
+        runEveryCommandOnce(WaitStrategy.BUSY_SPIN);
+    }
+
+    @Test
+    public void publish_shouldKeepOrderOfEachProducer() throws Exception {
+        CommandRing ring = start(new CommandRing(8, WaitStrategy.BLOCKING));
+        long[] last = new long[PRODUCERS];
+        CommandHandler<Boolean> inOrder = (shard, command) -> {
+            int producer = (int) command.account();
+            boolean ordered = command.amount() == last[producer] + 1;
+            last[producer] = command.amount();
+            return ordered;
+        };
+        List<CompletableFuture<Boolean>> results = produce(producer -> {
+            List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+            for (int i = 1; i <= COMMANDS_PER_PRODUCER; i++) {
+                futures.add(ring.publish(CommandType.TASK, inOrder, producer, 0, i, null, null));
+            }
+            return futures;
+        });
+        for (CompletableFuture<Boolean> result : results) {
+            assertTrue(result.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void publish_shouldCompleteExceptionally_whenHandlerThrows() throws Exception {
+        CommandRing ring = start(new CommandRing(8, WaitStrategy.BLOCKING));
+        CompletableFuture<Object> result = ring.publish(CommandType.TASK, (shard, command) -> {
+            throw new IllegalStateException("boom");
+        }, 0, 0, 0, null, null);
+        CompletableFuture<Object> next = ring.publish(CommandType.TASK, (shard, command) -> command.description(),
+                0, 0, 0, "next", null);
+
+        assertEquals("next", next.get(10, TimeUnit.SECONDS));
+        assertTrue(result.isCompletedExceptionally());
+    }
+
+    @Test
+    public void publish_shouldNotWaitForFreeSlot_whenCalledFromShardThread() throws Exception {
+        CommandRing ring = start(new CommandRing(2, WaitStrategy.BLOCKING));
+        CountDownLatch done = new CountDownLatch(1);
+        ring.publish(CommandType.TASK, (shard, command) -> {
+            // more continuations than slots, none of them may run before this command returns
+            List<CompletableFuture<Object>> continuations = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                continuations.add(ring.publish(CommandType.TASK, (s, c) -> c.amount(), 0, 0, i, null, null));
+            }
+            CompletableFuture.allOf(continuations.toArray(new CompletableFuture[0]))
+                    .thenRun(done::countDown);
+            return null;
+        }, 0, 0, 0, null, null);
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void offer_shouldRejectBulkBeforeNormal_whenQueueFills() throws Exception {
+        CommandRing ring = start(new CommandRing(8, WaitStrategy.BLOCKING,
+                priority -> priority == Priority.BULK ? 2 : 4));
+        CountDownLatch release = new CountDownLatch(1);
+        CommandHandler<Object> blocked = (shard, command) -> {
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        };
+        // holds its slot, and every one after it, until released
+        List<CompletableFuture<Object>> queued = new ArrayList<>();
+        queued.add(ring.offer(CommandType.TASK, blocked, 0, 0, 0, null, null));
+        queued.add(ring.offer(CommandType.HISTORY, blocked, 0, 0, 0, null, null));
+        CompletableFuture<Object> bulk = ring.offer(CommandType.HISTORY, blocked, 0, 0, 0, null, null);
+        queued.add(ring.offer(CommandType.TRANSFER, blocked, 0, 0, 0, null, null));
+        queued.add(ring.offer(CommandType.TRANSFER, blocked, 0, 0, 0, null, null));
+        CompletableFuture<Object> normal = ring.offer(CommandType.TRANSFER, blocked, 0, 0, 0, null, null);
+
+        assertTrue(isRejected(bulk));
+        assertTrue(isRejected(normal));
+        release.countDown();
+        CompletableFuture.allOf(queued.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        // futures complete just before the slots are handed back
+        while (ring.depth() > 0) {
+            Thread.yield();
+        }
+        assertTrue(ring.admits(CommandType.HISTORY));
+        assertFalse(isRejected(ring.offer(CommandType.HISTORY, blocked, 0, 0, 0, null, null)));
+    }
+
+    @Test
+    public void offer_shouldDropCommand_whenDeadlinePassesInQueue() throws Exception {
+        CommandRing ring = start(new CommandRing(8, WaitStrategy.BLOCKING));
+        CountDownLatch release = new CountDownLatch(1);
+        ring.offer(CommandType.TASK, (shard, command) -> {
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }, 0, 0, 0, null, null);
+        AtomicBoolean ran = new AtomicBoolean();
+        CommandHandler<Object> run = (shard, command) -> ran.getAndSet(true);
+        CompletableFuture<Object> late = Deadline.within(1, TimeUnit.MILLISECONDS,
+                () -> ring.offer(CommandType.TRANSFER, run, 0, 0, 0, null, null));
+        CompletableFuture<Object> timely = Deadline.within(10, TimeUnit.SECONDS,
+                () -> ring.offer(CommandType.TRANSFER, (shard, command) -> "done", 0, 0, 0, null, null));
+        Thread.sleep(5);
+        release.countDown();
+
+        assertEquals("done", timely.get(10, TimeUnit.SECONDS));
+        try {
+            late.get(10, TimeUnit.SECONDS);
+            fail("Expected the late command to be dropped");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof DeadlineExceededException);
+        }
+        assertFalse(ran.get());
+    }
+
+    private void runEveryCommandOnce(WaitStrategy waitStrategy) throws Exception {
+        CommandRing ring = start(new CommandRing(16, waitStrategy));
+        long[] sum = new long[1];
+        // confined to the consumer thread, no synchronization needed
+        CommandHandler<Long> add = (shard, command) -> sum[0] += command.amount();
+        List<CompletableFuture<Long>> results = produce(producer -> {
+            List<CompletableFuture<Long>> futures = new ArrayList<>();
+            for (int i = 1; i <= COMMANDS_PER_PRODUCER; i++) {
+                futures.add(ring.publish(CommandType.TASK, add, producer, 0, i, null, null));
+            }
+            return futures;
+        });
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        long total = ring.publish(CommandType.TASK, (shard, command) -> sum[0], 0, 0, 0, null, null)
+                .get(10, TimeUnit.SECONDS);
+
+        assertEquals(PRODUCERS * (long) COMMANDS_PER_PRODUCER * (COMMANDS_PER_PRODUCER + 1) / 2, total);
+    }
+
+    private static boolean isRejected(CompletableFuture<?> future) throws InterruptedException {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            return false;
+        } catch (ExecutionException e) {
+            return e.getCause() instanceof ShardOverloadedException;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    private CommandRing start(CommandRing ring) {
+        consumer.execute(() -> ring.run(null));
+        return ring;
+    }
+
+    private <T> List<T> produce(Producer<T> producer) throws Exception {
+        List<CompletableFuture<List<T>>> submitted = new ArrayList<>();
+        for (int i = 0; i < PRODUCERS; i++) {
+            int index = i;
+            submitted.add(CompletableFuture.supplyAsync(() -> producer.produce(index), producers));
+        }
+        List<T> results = new ArrayList<>();
+        for (CompletableFuture<List<T>> future : submitted) {
+            results.addAll(future.get(10, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    private interface Producer<T> {
+        List<T> produce(int index);
+    }
+}
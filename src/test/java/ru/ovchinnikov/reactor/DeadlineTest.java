@@ -0,0 +1,29 @@
+package ru.ovchinnikov.reactor;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DeadlineTest {
+
+    @Test
+    public void within_shouldKeepEarlierDeadline_whenNested() {
+        Deadline inner = Deadline.within(1, TimeUnit.MILLISECONDS,
+                () -> Deadline.within(1, TimeUnit.HOURS, Deadline::current));
+
+        assertTrue(inner.hasPassed(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(2)));
+    }
+
+    @Test
+    public void within_shouldRestoreOuterDeadline_whenDone() {
+        Deadline outer = Deadline.within(1, TimeUnit.HOURS, () -> {
+            Deadline.within(1, TimeUnit.MILLISECONDS, Deadline::current);
+            return Deadline.current();
+        });
+
+        assertFalse(outer.hasPassed(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(2)));
+        assertNull(Deadline.current());
+    }
+}
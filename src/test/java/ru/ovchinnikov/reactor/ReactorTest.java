@@ -0,0 +1,50 @@
+package ru.ovchinnikov.reactor;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ReactorTest {
+
+    @Test
+    public void submitExclusive_shouldReleaseOtherShards_whenTaskFails() throws Exception {
+        Reactor reactor = Reactor.withEmptyStorages(Reactor.newExecutors(3));
+
+        CompletableFuture<Object> failed = reactor.submitExclusive(CommandType.BATCH,
+                Arrays.asList(reactor.shard(0), reactor.shard(1), reactor.shard(2)), () -> {
+                    throw new IllegalStateException("broken");
+                });
+
+        try {
+            failed.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        for (int i = 0; i < reactor.shardCount(); i++) {
+            int index = i;
+            assertEquals(index, (int) reactor.shard(i).submit(CommandType.TASK, () -> index).get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void submitExclusive_shouldRunTaskWithEveryShardStopped() throws Exception {
+        Reactor reactor = Reactor.withEmptyStorages(Reactor.newExecutors(2));
+        CompletableFuture<Void> blocker = new CompletableFuture<>();
+        // keeps the second shard busy, so the task can't run before it is through
+        reactor.shard(1).submit(CommandType.TASK, blocker::join);
+
+        CompletableFuture<Boolean> exclusive = reactor.submitExclusive(CommandType.BATCH,
+                Arrays.asList(reactor.shard(0), reactor.shard(1)), () -> blocker.isDone());
+        Thread.sleep(50);
+        assertFalse(exclusive.isDone());
+        blocker.complete(null);
+
+        assertTrue(exclusive.get(5, TimeUnit.SECONDS));
+    }
+}
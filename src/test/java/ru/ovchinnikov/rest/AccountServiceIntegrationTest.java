@@ -7,6 +7,7 @@ import org.junit.Before;
 import org.junit.Test;
 import ru.ovchinnikov.Main;
 import ru.ovchinnikov.model.Account;
+import ru.ovchinnikov.model.AccountRange;
 
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
@@ -15,7 +16,9 @@ import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.GenericType;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 import static org.junit.Assert.*;
 import static org.junit.Assume.assumeThat;
@@ -43,6 +46,41 @@ public class AccountServiceIntegrationTest {
         assertEquals(Response.Status.CREATED.getStatusCode(), responseMsg.getStatus());
     }
 
+    @Test
+    public void testCreateAccount_shouldCreateOneAccount_whenRetriedWithSameIdempotencyKey() {
+        String key = UUID.randomUUID().toString();
+
+        Response first = target.request(MediaType.APPLICATION_JSON).header(IdempotencyCache.HEADER, key)
+                .post(Entity.json(""));
+        Response retry = target.request(MediaType.APPLICATION_JSON).header(IdempotencyCache.HEADER, key)
+                .post(Entity.json(""));
+
+        assertEquals(Response.Status.CREATED.getStatusCode(), retry.getStatus());
+        assertEquals(first.getHeaderString("Location"), retry.getHeaderString("Location"));
+        assertEquals(1, target.request(MediaType.APPLICATION_JSON).get(new GenericType<List<Account>>() {
+        }).size());
+    }
+
+    @Test
+    public void testCreateAccounts_shouldReturnRangeOfCreatedAccounts() {
+        Response response = target.queryParam("count", 50).request(MediaType.APPLICATION_JSON).post(Entity.json(""));
+
+        assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
+        AccountRange range = response.readEntity(AccountRange.class);
+        assertEquals(50, range.count());
+        assertEquals(Response.Status.OK.getStatusCode(),
+                target.path(String.valueOf(range.last())).request(MediaType.APPLICATION_JSON).get().getStatus());
+        assertEquals(50, target.request(MediaType.APPLICATION_JSON).get(new GenericType<List<Account>>() {
+        }).size());
+    }
+
+    @Test
+    public void testCreateAccounts_shouldReturnBadRequest_whenCountIsNotPositive() {
+        Response response = target.queryParam("count", 0).request(MediaType.APPLICATION_JSON).post(Entity.json(""));
+
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+    }
+
     @Test
     public void testGetAccounts_shouldReturnEmptyAccounts_ifNonePresent() {
         List<Account> accounts = target.request(MediaType.APPLICATION_JSON).get(new GenericType<List<Account>>() {
@@ -61,6 +99,36 @@ public class AccountServiceIntegrationTest {
         assertEquals(1, accounts.size());
     }
 
+    @Test
+    public void testGetAccounts_shouldReturnPages_followingNextLink() {
+        getAccounts(0);
+        for (int i = 0; i < 5; i++) {
+            createAccount();
+        }
+
+        List<Account> accounts = new ArrayList<>();
+        Response page = target.queryParam("limit", 2).request(MediaType.APPLICATION_JSON).get();
+        int pages = 1;
+        accounts.addAll(page.readEntity(new GenericType<List<Account>>() {
+        }));
+        while (page.getLink("next") != null) {
+            page = ClientBuilder.newClient().target(page.getLink("next")).request(MediaType.APPLICATION_JSON).get();
+            accounts.addAll(page.readEntity(new GenericType<List<Account>>() {
+            }));
+            pages++;
+        }
+
+        assertEquals(3, pages);
+        assertEquals(5, accounts.size());
+    }
+
+    @Test
+    public void testGetAccounts_shouldReturnBadRequest_whenLimitIsOutOfRange() {
+        Response response = target.queryParam("limit", 0).request(MediaType.APPLICATION_JSON).get();
+
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+    }
+
     @Test
     public void testCreateAccount_shouldCreateNewAccount_eachTimeItsCalled() {
         getAccounts(0);
@@ -0,0 +1,55 @@
+package ru.ovchinnikov.rest;
+
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ru.ovchinnikov.Main;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import static org.junit.Assert.*;
+
+public class AdminServiceIntegrationTest {
+
+    private HttpServer server;
+    private WebTarget target;
+
+    @Before
+    public void setUp() throws Exception {
+        server = Main.startServer();
+        Client c = ClientBuilder.newClient();
+        target = c.target(Main.BASE_URI);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdownNow();
+    }
+
+    @Test
+    public void testConfig_shouldListEffectiveSettingsWithTheirSources() {
+        Response response = target.path(AdminService.CONFIG).request().get();
+
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertTrue(response.getMediaType().toString().startsWith(MediaType.TEXT_PLAIN));
+        String config = response.readEntity(String.class);
+        assertTrue(config.contains("\nreactor.shards="));
+        assertTrue(config.contains("\nserver.worker.threads="));
+        assertTrue(config.contains("# default, live\nrequest.timeout.ms=10000\n"));
+        assertTrue(config.contains("# as request.timeout.ms, live\ntimeout.transfer.ms=10000\n"));
+    }
+
+    @Test
+    public void testReload_shouldAnswerWithConfig() {
+        Response response = target.path(AdminService.CONFIG + AdminService.RELOAD).request().post(Entity.text(""));
+
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertTrue(response.readEntity(String.class).contains("request.timeout.ms="));
+    }
+}
@@ -0,0 +1,233 @@
+package ru.ovchinnikov.rest;
+
+import org.junit.Test;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class IdempotencyCacheTest {
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @Test
+    public void execute_shouldAnswerDuplicateWithFirstOutcome_onceItCompletes() {
+        IdempotencyCache cache = new IdempotencyCache(10, 1, TimeUnit.HOURS, Runnable::run);
+        CompletableFuture<Response> mutation = new CompletableFuture<>();
+        RecordingResponse first = new RecordingResponse();
+        RecordingResponse retry = new RecordingResponse();
+
+        cache.execute("key", "POST /a", first, () -> mutation);
+        cache.execute("key", "POST /a", retry, this::execute);
+        assertNull(retry.resumed);
+        mutation.complete(Response.status(Response.Status.NOT_FOUND).build());
+
+        assertEquals(404, first.status());
+        assertEquals(404, retry.status());
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    public void execute_shouldResumeOnResumer_notOnThreadCompletingMutation() {
+        List<Runnable> resumptions = new ArrayList<>();
+        IdempotencyCache cache = new IdempotencyCache(10, 1, TimeUnit.HOURS, resumptions::add);
+        CompletableFuture<Response> mutation = new CompletableFuture<>();
+        RecordingResponse response = new RecordingResponse();
+
+        cache.execute("key", "POST /a", response, () -> mutation);
+        mutation.complete(Response.ok().build());
+        assertNull(response.resumed);
+        resumptions.forEach(Runnable::run);
+
+        assertEquals(200, response.status());
+    }
+
+    @Test
+    public void execute_shouldRunAgain_whenFirstRequestWasTurnedAway() {
+        IdempotencyCache cache = new IdempotencyCache(10, 1, TimeUnit.HOURS, Runnable::run);
+        RecordingResponse first = new RecordingResponse();
+        RecordingResponse retry = new RecordingResponse();
+
+        cache.execute("key", "POST /a", first, () -> CompletableFuture.completedFuture(
+                Response.status(Response.Status.SERVICE_UNAVAILABLE).build()));
+        cache.execute("key", "POST /a", retry, this::execute);
+
+        assertEquals(503, first.status());
+        assertEquals(1, executions.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void execute_shouldKeepQueueBounded_whenRequestsAreTurnedAway() {
+        IdempotencyCache cache = new IdempotencyCache(10, 1, TimeUnit.HOURS, Runnable::run);
+
+        for (int i = 0; i < 1_000; i++) {
+            cache.execute("key" + i, "POST /a", new RecordingResponse(), () -> CompletableFuture.completedFuture(
+                    Response.status(Response.Status.SERVICE_UNAVAILABLE).build()));
+        }
+
+        assertEquals(0, cache.size());
+        assertTrue(cache.queued() <= 10);
+    }
+
+    @Test
+    public void execute_shouldKeepQueueBounded_whenRequestsMissTheirDeadline() {
+        IdempotencyCache cache = new IdempotencyCache(10, 1, TimeUnit.HOURS, Runnable::run);
+
+        for (int i = 0; i < 1_000; i++) {
+            cache.execute("key" + i, "POST /a", new RecordingResponse(), () -> CompletableFuture.completedFuture(
+                    Response.status(Response.Status.GATEWAY_TIMEOUT).build()));
+        }
+
+        assertEquals(0, cache.size());
+        assertTrue(cache.queued() <= 10);
+    }
+
+    @Test
+    public void execute_shouldKeepCompletedOutcome_whenStormOfRequestsIsTurnedAway() {
+        IdempotencyCache cache = new IdempotencyCache(10, 1, TimeUnit.HOURS, Runnable::run);
+        RecordingResponse retry = new RecordingResponse();
+
+        cache.execute("completed", "POST /a", new RecordingResponse(), this::execute);
+        for (int i = 0; i < 1_000; i++) {
+            cache.execute("key" + i, "POST /a", new RecordingResponse(), () -> CompletableFuture.completedFuture(
+                    Response.status(Response.Status.SERVICE_UNAVAILABLE).build()));
+        }
+        cache.execute("completed", "POST /a", retry, this::execute);
+
+        assertEquals(200, retry.status());
+        assertEquals(1, executions.get());
+        assertEquals(1, cache.queued());
+    }
+
+    @Test
+    public void execute_shouldRunAgain_whenKeyIsEvictedBySize() {
+        IdempotencyCache cache = new IdempotencyCache(2, 1, TimeUnit.HOURS, Runnable::run);
+
+        cache.execute("first", "POST /a", new RecordingResponse(), this::execute);
+        cache.execute("second", "POST /a", new RecordingResponse(), this::execute);
+        cache.execute("third", "POST /a", new RecordingResponse(), this::execute);
+        cache.execute("first", "POST /a", new RecordingResponse(), this::execute);
+
+        assertEquals(4, executions.get());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void execute_shouldRunAgain_whenKeyHasExpired() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(10, 1, TimeUnit.MILLISECONDS, Runnable::run);
+
+        cache.execute("key", "POST /a", new RecordingResponse(), this::execute);
+        Thread.sleep(5);
+        cache.execute("key", "POST /a", new RecordingResponse(), this::execute);
+
+        assertEquals(2, executions.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void execute_shouldMapSynchronousFailure() {
+        IdempotencyCache cache = new IdempotencyCache(10, 1, TimeUnit.HOURS, Runnable::run);
+        RecordingResponse response = new RecordingResponse();
+
+        cache.execute("key", "POST /a", response, () -> {
+            throw new IllegalArgumentException("negative amount");
+        });
+
+        assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), response.status());
+    }
+
+    private CompletableFuture<Response> execute() {
+        executions.incrementAndGet();
+        return CompletableFuture.completedFuture(Response.ok().build());
+    }
+
+    private static class RecordingResponse implements AsyncResponse {
+        private volatile Object resumed;
+
+        int status() {
+            return ((Response) resumed).getStatus();
+        }
+
+        @Override
+        public boolean resume(Object response) {
+            resumed = response;
+            return true;
+        }
+
+        @Override
+        public boolean resume(Throwable response) {
+            resumed = response;
+            return true;
+        }
+
+        @Override
+        public boolean cancel() {
+            return false;
+        }
+
+        @Override
+        public boolean cancel(int retryAfter) {
+            return false;
+        }
+
+        @Override
+        public boolean cancel(Date retryAfter) {
+            return false;
+        }
+
+        @Override
+        public boolean isSuspended() {
+            return resumed == null;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return resumed != null;
+        }
+
+        @Override
+        public boolean setTimeout(long time, TimeUnit unit) {
+            return true;
+        }
+
+        @Override
+        public void setTimeoutHandler(TimeoutHandler handler) {
+        }
+
+        @Override
+        public Collection<Class<?>> register(Class<?> callback) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Map<Class<?>, Collection<Class<?>>> register(Class<?> callback, Class<?>... callbacks) {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public Collection<Class<?>> register(Object callback) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Map<Class<?>, Collection<Class<?>>> register(Object callback, Object... callbacks) {
+            return Collections.emptyMap();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ru.ovchinnikov.rest;
+
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ru.ovchinnikov.Main;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class MetricsServiceIntegrationTest {
+
+    private HttpServer server;
+    private WebTarget target;
+
+    @Before
+    public void setUp() throws Exception {
+        server = Main.startServer();
+        Client c = ClientBuilder.newClient();
+        target = c.target(Main.BASE_URI);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdownNow();
+    }
+
+    @Test
+    public void testMetrics_shouldExposeRequestsAndCommands() {
+        Response created = target.path(AccountService.ACCOUNTS).request().post(Entity.json(""));
+        assertEquals(Response.Status.CREATED.getStatusCode(), created.getStatus());
+        Response missing = target.path(AccountService.ACCOUNTS).path("-1").request(MediaType.APPLICATION_JSON).get();
+        assertEquals(Response.Status.NOT_FOUND.getStatusCode(), missing.getStatus());
+
+        Response response = target.path(MetricsService.METRICS).request().get();
+
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertTrue(response.getMediaType().toString().startsWith(MediaType.TEXT_PLAIN));
+        String metrics = response.readEntity(String.class);
+        assertTrue(metrics.contains("rvlt_http_requests_total{endpoint=\"POST /accounts\",status=\"201\"}"));
+        assertTrue(metrics.contains("rvlt_http_requests_total{endpoint=\"GET /accounts/{id}\",status=\"404\"}"));
+        assertTrue(metrics.contains("rvlt_http_request_duration_seconds_bucket{endpoint=\"POST /accounts\",le=\"+Inf\"}"));
+        // four bounds per power of two from a microsecond to half a minute
+        assertTrue(Arrays.stream(metrics.split("\n"))
+                .filter(line -> line.startsWith("rvlt_http_request_duration_seconds_bucket{endpoint=\"POST /accounts\""))
+                .count() <= 4 * 25 + 1);
+        assertTrue(metrics.contains("rvlt_command_queue_wait_seconds_count{command=\"create\"}"));
+        assertTrue(metrics.contains("rvlt_command_execution_seconds_count{command=\"create\"}"));
+        assertTrue(metrics.contains("rvlt_reactor_queue_depth{shard=\"0\"} 0"));
+        assertTrue(metrics.contains("rvlt_reactor_busy_seconds_total{shard=\"0\"}"));
+        assertFalse(metrics.contains("endpoint=\"GET /metrics\""));
+    }
+}
@@ -7,19 +7,25 @@ import org.junit.Before;
 import org.junit.Test;
 import ru.ovchinnikov.Main;
 import ru.ovchinnikov.model.Account;
+import ru.ovchinnikov.model.AccountSummary;
+import ru.ovchinnikov.model.Money;
 import ru.ovchinnikov.model.Transaction;
+import ru.ovchinnikov.model.TransferResult;
 
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.Link;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeThat;
 import static ru.ovchinnikov.rest.TransactionService.*;
@@ -54,6 +60,44 @@ public class TransactionServiceIntegrationTest {
         assertEquals(balance, account.balance());
     }
 
+    @Test
+    public void testRecharge_shouldRechargeOnce_whenRetriedWithSameIdempotencyKey() {
+        long id = createAccount();
+        String key = UUID.randomUUID().toString();
+
+        for (int i = 0; i < 3; i++) {
+            Response response = target.path(String.valueOf(id) + RECHARGE).queryParam("amount", BigDecimal.TEN)
+                    .request(MediaType.APPLICATION_JSON)
+                    .header(IdempotencyCache.HEADER, key)
+                    .post(Entity.json(""));
+            assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        }
+
+        assertEquals(0, BigDecimal.TEN.compareTo(getAccount(id).balance()));
+        assertEquals(1, target.path(String.valueOf(id) + TRANSACTIONS).request(MediaType.APPLICATION_JSON)
+                .get(new GenericType<List<Transaction>>() {
+                }).size());
+    }
+
+    @Test
+    public void testRecharge_shouldReturnUnprocessableEntity_whenIdempotencyKeyIsReusedForAnotherRequest() {
+        long id = createAccount();
+        String key = UUID.randomUUID().toString();
+        Response first = target.path(String.valueOf(id) + RECHARGE).queryParam("amount", BigDecimal.TEN)
+                .request(MediaType.APPLICATION_JSON)
+                .header(IdempotencyCache.HEADER, key)
+                .post(Entity.json(""));
+        assumeThat(first.getStatus(), Is.is(Response.Status.OK.getStatusCode()));
+
+        Response second = target.path(String.valueOf(id) + RECHARGE).queryParam("amount", BigDecimal.ONE)
+                .request(MediaType.APPLICATION_JSON)
+                .header(IdempotencyCache.HEADER, key)
+                .post(Entity.json(""));
+
+        assertEquals(422, second.getStatus());
+        assertEquals(0, BigDecimal.TEN.compareTo(getAccount(id).balance()));
+    }
+
     @Test
     public void testRecharge_shouldReturnError_whenAccountDoesntExist() {
         BigDecimal balance = new BigDecimal(100);
@@ -70,7 +114,7 @@ public class TransactionServiceIntegrationTest {
         long id = createAccount();
         BigDecimal balance = new BigDecimal(100);
         recharge(id, balance);
-        BigDecimal withdraw = new BigDecimal(50.3);
+        BigDecimal withdraw = new BigDecimal("50.3");
 
         Response withDrawResponse = target.path(String.valueOf(id) + WITHDRAW).queryParam("amount", withdraw)
                 .request(MediaType.APPLICATION_JSON)
@@ -198,6 +242,31 @@ public class TransactionServiceIntegrationTest {
         assertTrue(transactions.contains(Transaction.create(to, from, BigDecimal.ONE, "one back", 1)));
     }
 
+    @Test
+    public void testStreamTransactions_shouldListTransactionsOfAllAccountsWithinRangeOnce() {
+        long since = System.currentTimeMillis();
+        long from = createAccount();
+        long to = createAccount();
+        recharge(from, new BigDecimal(100));
+        transfer(from, to, BigDecimal.TEN, "ten");
+        transfer(to, from, BigDecimal.ONE, "one back");
+
+        List<Transaction> transactions = ledger().queryParam("from", since)
+                .request(MediaType.APPLICATION_JSON).get(new GenericType<List<Transaction>>() {
+                });
+        List<Transaction> none = ledger().queryParam("to", since)
+                .request(MediaType.APPLICATION_JSON).get(new GenericType<List<Transaction>>() {
+                });
+
+        assertEquals(3, transactions.size());
+        assertTrue(transactions.contains(Transaction.create(from, to, BigDecimal.TEN, "ten", 1)));
+        assertTrue(transactions.contains(Transaction.create(to, from, BigDecimal.ONE, "one back", 1)));
+        for (int i = 1; i < transactions.size(); i++) {
+            assertTrue(transactions.get(i - 1).timestamp() <= transactions.get(i).timestamp());
+        }
+        assertTrue(none.isEmpty());
+    }
+
     @Test
     public void testGetTransactions_shouldReturnEmptyList_whenAccountDoesntHaveTransactions() {
         long from = createAccount();
@@ -209,6 +278,39 @@ public class TransactionServiceIntegrationTest {
         assertTrue(transactions.isEmpty());
     }
 
+    @Test
+    public void testGetTransactions_shouldPageThroughHistory_followingNextLink() {
+        long id = createAccount();
+        long to = createAccount();
+        recharge(id, new BigDecimal(100));
+        for (int i = 0; i < 5; i++) {
+            transfer(id, to, BigDecimal.ONE, "part " + i);
+        }
+
+        Response first = target.path(String.valueOf(id) + TRANSACTIONS).queryParam("limit", 4)
+                .request(MediaType.APPLICATION_JSON).get();
+        List<Transaction> firstPage = first.readEntity(new GenericType<List<Transaction>>() {
+        });
+        Link next = first.getLink("next");
+        Response second = ClientBuilder.newClient().target(next).request(MediaType.APPLICATION_JSON).get();
+        List<Transaction> secondPage = second.readEntity(new GenericType<List<Transaction>>() {
+        });
+
+        assertEquals(4, firstPage.size());
+        assertEquals(2, secondPage.size());
+        assertNull(second.getLink("next"));
+    }
+
+    @Test
+    public void testGetTransactions_shouldReturnBadRequest_whenCursorIsMalformed() {
+        long id = createAccount();
+
+        Response response = target.path(String.valueOf(id) + TRANSACTIONS).queryParam("cursor", "garbage!")
+                .request(MediaType.APPLICATION_JSON).get();
+
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+    }
+
     @Test
     public void testGetTransactions_shouldReturnError_whenAccountDoesntExist() {
         Response transferResponse = target.path("1" + TRANSACTIONS).request(MediaType.APPLICATION_JSON).get();
@@ -216,6 +318,85 @@ public class TransactionServiceIntegrationTest {
         assertEquals(Response.Status.NOT_FOUND.getStatusCode(), transferResponse.getStatus());
     }
 
+    @Test
+    public void testGetSummary_shouldReturnTotals_whenAccountExists() {
+        long from = createAccount();
+        long to = createAccount();
+        recharge(from, new BigDecimal(100));
+        transfer(from, to, BigDecimal.TEN, "ten");
+        transfer(to, from, BigDecimal.ONE, "one back");
+
+        AccountSummary summary = target.path(from + SUMMARY).queryParam("rollup", "month")
+                .request(MediaType.APPLICATION_JSON).get(AccountSummary.class);
+
+        assertEquals(new BigDecimal(101), Money.toDecimal(summary.inflowUnits()));
+        assertEquals(BigDecimal.TEN, Money.toDecimal(summary.outflowUnits()));
+        assertEquals(3, summary.count());
+        assertEquals(1, summary.buckets().size());
+        assertEquals(3, summary.buckets().get(0).count());
+    }
+
+    @Test
+    public void testGetSummary_shouldReturnBadRequest_whenRollupIsUnknown() {
+        long id = createAccount();
+
+        Response response = target.path(id + SUMMARY).queryParam("rollup", "week")
+                .request(MediaType.APPLICATION_JSON).get();
+
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+    }
+
+    @Test
+    public void testGetSummary_shouldReturnError_whenAccountDoesntExist() {
+        Response response = target.path("1" + SUMMARY).request(MediaType.APPLICATION_JSON).get();
+
+        assertEquals(Response.Status.NOT_FOUND.getStatusCode(), response.getStatus());
+    }
+
+    @Test
+    public void testTransferBatch_shouldReturnResultPerTransfer() {
+        long from = createAccount();
+        long to = createAccount();
+        recharge(from, new BigDecimal(100));
+        String batch = "[{\"from\":" + from + ",\"to\":" + to + ",\"amount\":30.5,\"description\":\"a\"},"
+                + "{\"from\":" + from + ",\"to\":" + to + ",\"amount\":70}]";
+
+        Response response = transfers().request(MediaType.APPLICATION_JSON)
+                .post(Entity.json(batch));
+        List<TransferResult> results = response.readEntity(new GenericType<List<TransferResult>>() {
+        });
+
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(TransferResult.Status.DONE, results.get(0).status());
+        assertEquals(TransferResult.Status.REJECTED, results.get(1).status());
+        assertEquals(new BigDecimal("69.5"), getAccount(from).balance());
+        assertEquals(new BigDecimal("30.5"), getAccount(to).balance());
+    }
+
+    @Test
+    public void testTransferBatch_shouldReturnConflict_whenAtomicBatchFails() {
+        long from = createAccount();
+        long to = createAccount();
+        recharge(from, new BigDecimal(100));
+        String batch = "[{\"from\":" + from + ",\"to\":" + to + ",\"amount\":30.5},"
+                + "{\"from\":" + from + ",\"to\":" + to + ",\"amount\":70}]";
+
+        Response response = transfers().queryParam("atomic", true)
+                .request(MediaType.APPLICATION_JSON).post(Entity.json(batch));
+
+        assertEquals(Response.Status.CONFLICT.getStatusCode(), response.getStatus());
+        assertEquals(new BigDecimal(100), getAccount(from).balance());
+        assertEquals(BigDecimal.ZERO, getAccount(to).balance());
+    }
+
+    private WebTarget ledger() {
+        return ClientBuilder.newClient().target(Main.BASE_URI).path(TRANSACTIONS);
+    }
+
+    private WebTarget transfers() {
+        return ClientBuilder.newClient().target(Main.BASE_URI).path(TransferService.TRANSFERS);
+    }
+
     private void transfer(long from, long to, BigDecimal amount, String description) {
         Response transferResponse = target.path(String.valueOf(from) + TRANSFER)
                 .queryParam("to", to)
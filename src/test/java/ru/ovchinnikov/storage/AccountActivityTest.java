@@ -0,0 +1,147 @@
+package ru.ovchinnikov.storage;
+
+import org.junit.Test;
+import ru.ovchinnikov.model.AccountSummary;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AccountActivityTest {
+    private static final int RETENTION_DAYS = 366;
+    private static final long JAN_31 = millis(2017, 1, 31);
+    private static final long FEB_1 = millis(2017, 2, 1);
+    private static final long FEB_2 = millis(2017, 2, 2);
+
+    @Test
+    public void summarize_shouldReturnTotals() {
+        AccountActivity activity = new AccountActivity(RETENTION_DAYS);
+        activity.add(FEB_1 + 5, 100, 0);
+        activity.add(FEB_1 + 7, 0, 30);
+        activity.add(FEB_1 + 6, 20, 20);
+
+        AccountSummary summary = activity.summarize(1, null, Long.MIN_VALUE, Long.MAX_VALUE);
+
+        assertEquals(1, summary.id());
+        assertEquals(120, summary.inflowUnits());
+        assertEquals(50, summary.outflowUnits());
+        assertEquals(3, summary.count());
+        assertEquals(Long.valueOf(FEB_1 + 7), summary.lastTimestamp());
+        assertNull(summary.buckets());
+    }
+
+    @Test
+    public void summarize_shouldLeaveLastTimestampOut_whenThereAreNoTransactions() {
+        AccountSummary summary = new AccountActivity(RETENTION_DAYS).summarize(1, Rollup.DAY, Long.MIN_VALUE, Long.MAX_VALUE);
+
+        assertEquals(0, summary.count());
+        assertNull(summary.lastTimestamp());
+        assertTrue(summary.buckets().isEmpty());
+    }
+
+    @Test
+    public void summarize_shouldSumDays_whenTransactionsComeLate() {
+        AccountActivity activity = new AccountActivity(RETENTION_DAYS);
+        activity.add(FEB_2 + 1, 1, 0);
+        activity.add(JAN_31 + 1, 10, 0);
+        activity.add(FEB_1 + 1, 0, 100);
+        activity.add(FEB_2 + 2, 1_000, 0);
+
+        List<AccountSummary.Bucket> days = activity.summarize(1, Rollup.DAY, Long.MIN_VALUE, Long.MAX_VALUE)
+                .buckets();
+
+        assertEquals(3, days.size());
+        assertBucket(days.get(0), JAN_31, 10, 0, 1);
+        assertBucket(days.get(1), FEB_1, 0, 100, 1);
+        assertBucket(days.get(2), FEB_2, 1_001, 0, 2);
+    }
+
+    @Test
+    public void summarize_shouldSumMonthsStartingWithinRange() {
+        AccountActivity activity = new AccountActivity(RETENTION_DAYS);
+        activity.add(JAN_31, 10, 0);
+        activity.add(FEB_1, 0, 100);
+        activity.add(FEB_2, 1, 0);
+
+        List<AccountSummary.Bucket> all = activity.summarize(1, Rollup.MONTH, Long.MIN_VALUE, Long.MAX_VALUE)
+                .buckets();
+        List<AccountSummary.Bucket> februaryStartsInRange = activity.summarize(1, Rollup.MONTH, JAN_31, FEB_2)
+                .buckets();
+        List<AccountSummary.Bucket> noneStartsInRange = activity.summarize(1, Rollup.MONTH, FEB_1 + 1, FEB_2 + 1)
+                .buckets();
+
+        assertEquals(2, all.size());
+        assertBucket(all.get(0), millis(2017, 1, 1), 10, 0, 1);
+        assertBucket(all.get(1), FEB_1, 1, 100, 2);
+        assertEquals(1, februaryStartsInRange.size());
+        assertBucket(februaryStartsInRange.get(0), FEB_1, 1, 100, 2);
+        assertTrue(noneStartsInRange.isEmpty());
+    }
+
+    @Test
+    public void summarize_shouldKeepOnlyRetainedDaysInBuckets_butEveryDayInTotals() {
+        AccountActivity activity = new AccountActivity(2);
+        activity.add(JAN_31, 10, 0);
+        activity.add(FEB_1, 20, 0);
+        activity.add(FEB_2, 30, 0);
+        activity.add(JAN_31 + 1, 40, 0);
+
+        AccountSummary summary = activity.summarize(1, Rollup.DAY, Long.MIN_VALUE, Long.MAX_VALUE);
+
+        assertEquals(100, summary.inflowUnits());
+        assertEquals(4, summary.count());
+        assertEquals(2, summary.buckets().size());
+        assertBucket(summary.buckets().get(0), FEB_1, 20, 0, 1);
+        assertBucket(summary.buckets().get(1), FEB_2, 30, 0, 1);
+    }
+
+    @Test
+    public void summarize_shouldReturnNoBuckets_whenRollupsAreOff() {
+        AccountActivity activity = new AccountActivity(0);
+        activity.add(FEB_1, 20, 0);
+
+        AccountSummary summary = activity.summarize(1, Rollup.DAY, Long.MIN_VALUE, Long.MAX_VALUE);
+
+        assertEquals(20, summary.inflowUnits());
+        assertTrue(summary.buckets().isEmpty());
+    }
+
+    @Test
+    public void add_shouldSaturateTotals_insteadOfOverflowing() {
+        AccountActivity activity = new AccountActivity(RETENTION_DAYS);
+        activity.add(FEB_1, Long.MAX_VALUE, 0);
+        activity.add(FEB_1, 1, 0);
+
+        AccountSummary summary = activity.summarize(1, Rollup.DAY, Long.MIN_VALUE, Long.MAX_VALUE);
+
+        assertEquals(Long.MAX_VALUE, summary.inflowUnits());
+        assertEquals(Long.MAX_VALUE, summary.buckets().get(0).inflowUnits());
+    }
+
+    @Test
+    public void summarize_shouldSaturateMonths_whenTheirDaysAreSaturated() {
+        AccountActivity activity = new AccountActivity(RETENTION_DAYS);
+        activity.add(FEB_1, Long.MAX_VALUE, Long.MAX_VALUE);
+        activity.add(FEB_2, Long.MAX_VALUE, 1);
+
+        List<AccountSummary.Bucket> months = activity.summarize(1, Rollup.MONTH, Long.MIN_VALUE, Long.MAX_VALUE)
+                .buckets();
+
+        assertEquals(1, months.size());
+        assertBucket(months.get(0), FEB_1, Long.MAX_VALUE, Long.MAX_VALUE, 2);
+    }
+
+    private static void assertBucket(AccountSummary.Bucket bucket, long start, long inflow, long outflow,
+                                     long count) {
+        assertEquals(start, bucket.start());
+        assertEquals(inflow, bucket.inflowUnits());
+        assertEquals(outflow, bucket.outflowUnits());
+        assertEquals(count, bucket.count());
+    }
+
+    private static long millis(int year, int month, int day) {
+        return LocalDate.of(year, month, day).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+}
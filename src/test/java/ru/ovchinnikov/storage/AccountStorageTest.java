@@ -0,0 +1,63 @@
+package ru.ovchinnikov.storage;
+
+import org.junit.Test;
+import ru.ovchinnikov.model.Account;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AccountStorageTest {
+
+    @Test
+    public void scanAccounts_shouldGoInIdOrder_whenStoredOutOfOrder() {
+        AccountStorage storage = new AccountStorage();
+        for (long id : new long[]{5, 3, 9, 1, 7}) {
+            storage.store(Account.create(id));
+        }
+
+        List<Account> walked = new ArrayList<>();
+        assertTrue(storage.scanAccounts(Long.MIN_VALUE, 2, walked));
+        assertTrue(storage.scanAccounts(3, 2, walked));
+        assertFalse(storage.scanAccounts(7, 2, walked));
+
+        assertEquals(ids(1, 3, 5, 7, 9), idsOf(walked));
+    }
+
+    @Test
+    public void scanAccounts_shouldSkipRemovedAccounts_andSeeThemOnce_whenStoredAgain() {
+        AccountStorage storage = new AccountStorage();
+        for (long id = 1; id <= 100; id++) {
+            storage.store(Account.create(id));
+        }
+        for (long id = 1; id <= 100; id++) {
+            if (id % 10 != 0) {
+                assertTrue(storage.remove(id));
+            }
+        }
+        storage.store(Account.create(55));
+        storage.store(Account.create(55));
+
+        List<Account> walked = new ArrayList<>();
+        assertFalse(storage.scanAccounts(0, 100, walked));
+
+        assertEquals(ids(10, 20, 30, 40, 50, 55, 60, 70, 80, 90, 100), idsOf(walked));
+    }
+
+    private static List<Long> ids(long... ids) {
+        List<Long> list = new ArrayList<>();
+        for (long id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+
+    private static List<Long> idsOf(List<Account> accounts) {
+        List<Long> ids = new ArrayList<>();
+        for (Account account : accounts) {
+            ids.add(account.id());
+        }
+        return ids;
+    }
+}
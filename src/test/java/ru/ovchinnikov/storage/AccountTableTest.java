@@ -0,0 +1,92 @@
+package ru.ovchinnikov.storage;
+
+import org.junit.Test;
+import ru.ovchinnikov.model.Account;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class AccountTableTest {
+
+    @Test
+    public void get_shouldFindAccountsSurvivingRehashAndRemoval() {
+        AccountTable table = new AccountTable();
+        for (long id = 0; id < 10_000; id++) {
+            table.put(Account.create(id, id));
+        }
+        for (long id = 0; id < 10_000; id += 2) {
+            assertTrue(table.remove(id));
+        }
+
+        assertEquals(5_000, table.size());
+        for (long id = 0; id < 10_000; id++) {
+            Account account = table.get(id);
+            if (id % 2 == 0) {
+                assertNull(account);
+            } else {
+                assertEquals(id, account.balanceUnits());
+            }
+        }
+        assertFalse(table.remove(0));
+    }
+
+    @Test
+    public void put_shouldReplaceAccountWithSameId() {
+        AccountTable table = new AccountTable();
+        table.put(Account.create(7, 1));
+        table.put(Account.create(7, 2));
+
+        assertEquals(1, table.size());
+        assertEquals(2, table.get(7).balanceUnits());
+    }
+
+    @Test
+    public void forEach_shouldWalkAllAccounts() {
+        AccountTable table = new AccountTable();
+        for (long id = 0; id < 100; id++) {
+            table.put(Account.create(id));
+        }
+
+        List<Account> walked = new ArrayList<>();
+        table.forEach(walked::add);
+
+        assertEquals(100, walked.size());
+    }
+
+    @Test
+    public void get_shouldNeverReturnAnotherAccount_whileWriterChangesTable() throws Exception {
+        AccountTable table = new AccountTable();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CompletableFuture<Long> reader = CompletableFuture.supplyAsync(() -> {
+            long found = 0;
+            while (writing.get()) {
+                for (long id = 0; id < 1_000; id++) {
+                    Account account = table.get(id);
+                    if (account != null) {
+                        assertEquals(id, account.id());
+                        found++;
+                    }
+                }
+            }
+            return found;
+        });
+
+        for (int round = 0; round < 200; round++) {
+            for (long id = 0; id < 1_000; id++) {
+                table.put(Account.create(id));
+            }
+            for (long id = 0; id < 1_000; id++) {
+                table.remove(id);
+            }
+        }
+        writing.set(false);
+
+        assertTrue(reader.get(10, TimeUnit.SECONDS) >= 0);
+        assertEquals(0, table.size());
+    }
+}
@@ -0,0 +1,130 @@
+package ru.ovchinnikov.storage;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class LongObjectHashMapTest {
+
+    private LongObjectHashMap<String> map;
+
+    @Before
+    public void setUp() throws Exception {
+        map = new LongObjectHashMap<>();
+    }
+
+    @Test
+    public void put() {
+        assertNull(map.put(1, "one"));
+        assertNull(map.put(0, "zero"));
+        assertNull(map.put(-1, "minus one"));
+
+        assertEquals(3, map.size());
+        assertEquals("one", map.get(1));
+        assertEquals("zero", map.get(0));
+        assertEquals("minus one", map.get(-1));
+        assertNull(map.get(2));
+    }
+
+    @Test
+    public void put_shouldReplaceValue_whenKeyIsPresent() {
+        map.put(1, "one");
+
+        assertEquals("one", map.put(1, "uno"));
+
+        assertEquals(1, map.size());
+        assertEquals("uno", map.get(1));
+    }
+
+    @Test
+    public void remove() {
+        map.put(1, "one");
+        map.put(2, "two");
+
+        assertEquals("one", map.remove(1));
+
+        assertEquals(1, map.size());
+        assertFalse(map.containsKey(1));
+        assertEquals("two", map.get(2));
+        assertNull(map.remove(1));
+    }
+
+    @Test
+    public void remove_shouldKeepProbeChainsReachable_whenKeysCollide() {
+        for (long key = 0; key < 12; key++) {
+            map.put(key << 32, "v" + key);
+        }
+
+        for (long key = 0; key < 12; key += 2) {
+            map.remove(key << 32);
+        }
+
+        for (long key = 1; key < 12; key += 2) {
+            assertEquals("v" + key, map.get(key << 32));
+        }
+        assertEquals(6, map.size());
+    }
+
+    @Test
+    public void forEachValue() {
+        map.put(1, "one");
+        map.put(2, "two");
+        map.put(3, "three");
+        map.remove(2);
+
+        List<String> values = new ArrayList<>();
+        map.forEachValue(values::add);
+
+        assertEquals(2, values.size());
+        assertTrue(values.contains("one"));
+        assertTrue(values.contains("three"));
+    }
+
+    @Test
+    public void forEachValue_shouldWalkWholeMapInBoundedSteps() {
+        for (long key = 0; key < 100; key++) {
+            map.put(key, "v" + key);
+        }
+
+        Set<String> values = new HashSet<>();
+        int steps = 0;
+        int slot = 0;
+        while (slot >= 0) {
+            List<String> step = new ArrayList<>();
+            slot = map.forEachValue(slot, 30, step::add);
+            assertTrue(step.size() <= 30);
+            values.addAll(step);
+            steps++;
+        }
+
+        assertEquals(4, steps);
+        assertEquals(100, values.size());
+    }
+
+    @Test
+    public void shouldBehaveAsHashMap_underRandomOperations() {
+        Map<Long, String> reference = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(reference.remove(key), map.remove(key));
+            } else {
+                String value = String.valueOf(i);
+                assertEquals(reference.put(key, value), map.put(key, value));
+            }
+        }
+
+        assertEquals(reference.size(), map.size());
+        reference.forEach((key, value) -> assertEquals(value, map.get(key)));
+    }
+}
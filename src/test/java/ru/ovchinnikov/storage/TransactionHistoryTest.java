@@ -0,0 +1,99 @@
+package ru.ovchinnikov.storage;
+
+import org.junit.Test;
+import ru.ovchinnikov.model.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TransactionHistoryTest {
+    private final TransactionLedger ledger = new TransactionLedger();
+    private final TransactionRow flyweight = new TransactionRow(ledger);
+
+    @Test
+    public void page_shouldWalkWholeHistoryInTimeOrder_followingCursors() {
+        TransactionHistory history = new TransactionHistory(ledger);
+        for (int i = 0; i < 10; i++) {
+            add(history, transaction(i / 3));
+        }
+
+        List<Transaction> walked = new ArrayList<>();
+        HistoryCursor cursor = null;
+        int pages = 0;
+        do {
+            HistoryCursor next = history.page(Long.MIN_VALUE, Long.MAX_VALUE, cursor, 4, flyweight,
+                    row -> walked.add(row.toTransaction()));
+            cursor = next == null ? null : HistoryCursor.decode(next.encode());
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(toList(history), walked);
+    }
+
+    @Test
+    public void page_shouldReturnOnlyTransactionsWithinTimeRange() {
+        TransactionHistory history = new TransactionHistory(ledger);
+        for (int i = 0; i < 10; i++) {
+            add(history, transaction(i * 10));
+        }
+
+        List<Transaction> page = new ArrayList<>();
+        HistoryCursor next = history.page(20, 50, null, 100, flyweight, row -> page.add(row.toTransaction()));
+
+        assertEquals(3, page.size());
+        assertEquals(20, page.get(0).timestamp());
+        assertEquals(40, page.get(2).timestamp());
+        assertNull(next);
+    }
+
+    @Test
+    public void page_shouldNotOfferNextCursor_whenRestIsOutOfRange() {
+        TransactionHistory history = new TransactionHistory(ledger);
+        for (int i = 0; i < 10; i++) {
+            add(history, transaction(i));
+        }
+
+        assertNull(history.page(0, 5, null, 5, flyweight, row -> {
+        }));
+        assertNotNull(history.page(0, 6, null, 5, flyweight, row -> {
+        }));
+    }
+
+    @Test
+    public void add_shouldKeepTimeOrder_whenTransactionArrivesLate() {
+        TransactionHistory history = new TransactionHistory(ledger);
+        add(history, transaction(10));
+        add(history, transaction(30));
+        add(history, transaction(20));
+        add(history, transaction(5));
+
+        List<Transaction> transactions = toList(history);
+
+        assertEquals(5, transactions.get(0).timestamp());
+        assertEquals(10, transactions.get(1).timestamp());
+        assertEquals(20, transactions.get(2).timestamp());
+        assertEquals(30, transactions.get(3).timestamp());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_shouldThrowIllegalArgumentException_whenCursorIsMalformed() {
+        HistoryCursor.decode("not a cursor");
+    }
+
+    private void add(TransactionHistory history, Transaction transaction) {
+        history.add(ledger.append(transaction));
+    }
+
+    private List<Transaction> toList(TransactionHistory history) {
+        List<Transaction> transactions = new ArrayList<>();
+        history.forEach(flyweight, row -> transactions.add(row.toTransaction()));
+        return transactions;
+    }
+
+    private static Transaction transaction(long timestamp) {
+        return Transaction.create(1, 1, 100, "", timestamp);
+    }
+}
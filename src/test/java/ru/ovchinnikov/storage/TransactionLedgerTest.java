@@ -0,0 +1,55 @@
+package ru.ovchinnikov.storage;
+
+import org.junit.Test;
+import ru.ovchinnikov.model.DescriptionDictionary;
+import ru.ovchinnikov.model.Transaction;
+
+import static org.junit.Assert.*;
+
+public class TransactionLedgerTest {
+    private final TransactionLedger ledger = new TransactionLedger();
+
+    @Test
+    public void read_shouldReturnEveryColumn_acrossSegments() {
+        String longDescription = new String(new char[300 * 1024]).replace('\0', 'x');
+        for (int i = 0; i < 40_000; i++) {
+            String description = i % 1000 == 0 ? longDescription : "\u00e9pargne " + i;
+            assertEquals(i, ledger.append(i, -i, i * 100L, description, i * 7L));
+        }
+
+        for (int i = 0; i < 40_000; i += 997) {
+            Transaction expected = Transaction.create(i, -i, i * 100L,
+                    i % 1000 == 0 ? longDescription : "\u00e9pargne " + i, i * 7L);
+            assertEquals(expected, ledger.read(i));
+            assertEquals(i * 7L, ledger.timestamp(i));
+        }
+    }
+
+    @Test
+    public void description_shouldBeSharedInstance_whenEncodedByDictionary() {
+        TransactionLedger ledger = new TransactionLedger(new DescriptionDictionary(16, 64));
+        int first = ledger.append(1, 2, 300, "rent", 40);
+        int second = ledger.append(1, 2, 300, new String("rent"), 50);
+        int third = ledger.append(1, 2, 300, "rent", 60);
+        int empty = ledger.append(1, 1, 300, null, 70);
+
+        assertEquals("rent", ledger.description(first));
+        assertSame(ledger.description(second), ledger.description(third));
+        assertNull(ledger.description(empty));
+    }
+
+    @Test
+    public void row_shouldReadColumnsInPlace() {
+        ledger.append(1, 2, 300, "rent", 40);
+        int row = ledger.append(Transaction.create(5, 6, -700, "", 80));
+        TransactionRow flyweight = new TransactionRow(ledger).moveTo(row);
+
+        assertEquals(1, row);
+        assertEquals(5, flyweight.from());
+        assertEquals(6, flyweight.to());
+        assertEquals(-700, flyweight.amountUnits());
+        assertEquals(80, flyweight.timestamp());
+        assertEquals("", flyweight.description());
+        assertEquals("rent", flyweight.moveTo(0).description());
+    }
+}
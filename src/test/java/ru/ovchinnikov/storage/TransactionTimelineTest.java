@@ -0,0 +1,86 @@
+package ru.ovchinnikov.storage;
+
+import org.junit.Test;
+import ru.ovchinnikov.model.Transaction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TransactionTimelineTest {
+    private final TransactionLedger ledger = new TransactionLedger();
+    private final TransactionRow flyweight = new TransactionRow(ledger);
+    private final TransactionTimeline timeline = new TransactionTimeline(ledger, 10);
+
+    @Test
+    public void page_shouldWalkAllBucketsInTimeOrder_followingCursors() {
+        for (int i = 0; i < 100; i++) {
+            add(i / 3);
+        }
+
+        List<Transaction> walked = new ArrayList<>();
+        HistoryCursor cursor = null;
+        int pages = 0;
+        do {
+            HistoryCursor next = timeline.page(Long.MIN_VALUE, Long.MAX_VALUE, cursor, 7, flyweight,
+                    row -> walked.add(row.toTransaction()));
+            cursor = next == null ? null : HistoryCursor.decode(next.encode());
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(15, pages);
+        assertEquals(100, walked.size());
+        for (int i = 1; i < walked.size(); i++) {
+            assertTrue(walked.get(i - 1).timestamp() <= walked.get(i).timestamp());
+        }
+    }
+
+    @Test
+    public void page_shouldReturnOnlyTransactionsWithinTimeRange() {
+        for (int i = 0; i < 100; i++) {
+            add(i * 7);
+        }
+
+        List<Transaction> page = new ArrayList<>();
+        HistoryCursor next = timeline.page(95, 200, null, 100, flyweight, row -> page.add(row.toTransaction()));
+
+        assertEquals(15, page.size());
+        assertEquals(98, page.get(0).timestamp());
+        assertEquals(196, page.get(14).timestamp());
+        assertNull(next);
+    }
+
+    @Test
+    public void page_shouldNotOfferNextCursor_whenRestIsOutOfRange() {
+        for (int i = 0; i < 10; i++) {
+            add(i);
+        }
+
+        assertNull(timeline.page(0, 5, null, 5, flyweight, row -> {
+        }));
+        assertNotNull(timeline.page(0, 6, null, 5, flyweight, row -> {
+        }));
+    }
+
+    @Test
+    public void add_shouldKeepTimeOrder_whenTransactionArrivesLateOrBeforeAllBuckets() {
+        add(25);
+        add(45);
+        add(21);
+        add(-3);
+        add(35);
+        add(-15);
+
+        List<Long> timestamps = new ArrayList<>();
+        timeline.page(Long.MIN_VALUE, Long.MAX_VALUE, null, 100, flyweight, row -> timestamps.add(row.timestamp()));
+
+        assertEquals(6, timeline.size());
+        assertEquals(Arrays.asList(-15L, -3L, 21L, 25L, 35L, 45L), timestamps);
+    }
+
+    private void add(long timestamp) {
+        timeline.add(ledger.append(Transaction.create(1, 2, 100, "", timestamp)));
+    }
+}